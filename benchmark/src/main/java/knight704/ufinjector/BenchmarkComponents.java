@@ -0,0 +1,72 @@
+package knight704.ufinjector;
+
+import dagger.Component;
+
+/**
+ * Components and factories shared by benchmarks. Factories don't allocate anything but component itself, so benchmarks show cache overhead only.
+ */
+final class BenchmarkComponents {
+    static final String ABSENT_KEY = "absent";
+
+    static final ComponentFactory<DefaultComponent> DEFAULT_FACTORY = new ComponentFactory<DefaultComponent>() {
+        @Override
+        public DefaultComponent create() {
+            return new DefaultComponent();
+        }
+    };
+    /**
+     * Same as factory generated for {@link knight704.ufinjector.annotations.GenerateFactory} component.
+     */
+    static final SlottedComponentFactory<SlottedComponent> SLOTTED_FACTORY = new SlottedComponentFactory<SlottedComponent>() {
+        private final int mSlot = ComponentRegistry.slotOf(SlottedComponent.class);
+
+        @Override
+        public SlottedComponent create() {
+            return new SlottedComponent();
+        }
+
+        @Override
+        public int getSlot() {
+            return mSlot;
+        }
+    };
+    static final ComponentFactory<KeyedComponent> KEYED_FACTORY = new ComponentFactory<KeyedComponent>() {
+        @Override
+        public KeyedComponent create() {
+            return new KeyedComponent();
+        }
+    };
+    static final ComponentFactory<MissComponent> MISS_FACTORY = new ComponentFactory<MissComponent>() {
+        @Override
+        public MissComponent create() {
+            return new MissComponent();
+        }
+    };
+
+    private BenchmarkComponents() {
+    }
+
+    static String[] keys(int count) {
+        String[] keys = new String[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = "key" + i;
+        }
+        return keys;
+    }
+
+    @Component
+    static class DefaultComponent {
+    }
+
+    @Component
+    static class SlottedComponent {
+    }
+
+    @Component
+    static class KeyedComponent {
+    }
+
+    @Component
+    static class MissComponent {
+    }
+}
@@ -0,0 +1,104 @@
+package knight704.ufinjector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-threaded cost of {@link CoreInjector} cache operations for default and keyed components. Default component created by
+ * slotted (generated) factory is found in slot table, compare hitDefaultSlotted with hitDefault that goes to hash index.
+ * <p>
+ * Miss can't be measured without release (cache would grow with every call), so miss benchmarks create and release component,
+ * while release of component that is not cached shows the lookup part of release.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CacheBenchmark {
+    static final int KEY_COUNT = 1024;
+
+    private CoreInjector mInjector;
+    private String[] mKeys;
+    private Long[] mIdKeys;
+    private int mKeyIndex;
+
+    @Setup
+    public void setUp() {
+        mInjector = new CoreInjector();
+        mKeys = BenchmarkComponents.keys(KEY_COUNT);
+        mInjector.getOrCreate(BenchmarkComponents.DefaultComponent.class, BenchmarkComponents.DEFAULT_FACTORY);
+        mInjector.getOrCreate(BenchmarkComponents.SlottedComponent.class, BenchmarkComponents.SLOTTED_FACTORY);
+        mIdKeys = new Long[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            mIdKeys[i] = (long) i;
+            mInjector.getOrCreate(BenchmarkComponents.KeyedComponent.class, mKeys[i], BenchmarkComponents.KEYED_FACTORY);
+            mInjector.getOrCreate(BenchmarkComponents.KeyedComponent.class, mIdKeys[i], BenchmarkComponents.KEYED_FACTORY);
+        }
+    }
+
+    @Benchmark
+    public Object hitDefault() {
+        return mInjector.getOrCreate(BenchmarkComponents.DefaultComponent.class, BenchmarkComponents.DEFAULT_FACTORY);
+    }
+
+    @Benchmark
+    public Object hitDefaultSlotted() {
+        return mInjector.getOrCreate(BenchmarkComponents.SlottedComponent.class, BenchmarkComponents.SLOTTED_FACTORY);
+    }
+
+    @Benchmark
+    public Object hitKeyed() {
+        return mInjector.getOrCreate(BenchmarkComponents.KeyedComponent.class, nextKey(), BenchmarkComponents.KEYED_FACTORY);
+    }
+
+    @Benchmark
+    public Object hitIdKeyed() {
+        Long key = mIdKeys[mKeyIndex];
+        mKeyIndex = (mKeyIndex + 1) & (KEY_COUNT - 1);
+        return mInjector.getOrCreate(BenchmarkComponents.KeyedComponent.class, key, BenchmarkComponents.KEYED_FACTORY);
+    }
+
+    @Benchmark
+    public Object missThenReleaseDefault() {
+        Object component = mInjector.getOrCreate(BenchmarkComponents.MissComponent.class, BenchmarkComponents.MISS_FACTORY);
+        mInjector.release(BenchmarkComponents.MissComponent.class);
+        return component;
+    }
+
+    @Benchmark
+    public Object missThenReleaseKeyed() {
+        String key = nextKey();
+        Object component = mInjector.getOrCreate(BenchmarkComponents.MissComponent.class, key, BenchmarkComponents.MISS_FACTORY);
+        mInjector.release(BenchmarkComponents.MissComponent.class, key);
+        return component;
+    }
+
+    @Benchmark
+    public void releaseNotCached() {
+        mInjector.release(BenchmarkComponents.KeyedComponent.class, BenchmarkComponents.ABSENT_KEY);
+    }
+
+    @Benchmark
+    public Object retainThenRevive() {
+        mInjector.retain(BenchmarkComponents.DefaultComponent.class);
+        return mInjector.getOrCreate(BenchmarkComponents.DefaultComponent.class, BenchmarkComponents.DEFAULT_FACTORY);
+    }
+
+    private String nextKey() {
+        String key = mKeys[mKeyIndex];
+        mKeyIndex = (mKeyIndex + 1) & (KEY_COUNT - 1);
+        return key;
+    }
+}
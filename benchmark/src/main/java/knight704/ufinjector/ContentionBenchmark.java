@@ -0,0 +1,87 @@
+package knight704.ufinjector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link CoreInjector} shared by several threads: hits of the same component, hits of different keys and create/release of the same key,
+ * which makes threads wait for each other's creation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ContentionBenchmark {
+    private CoreInjector mInjector;
+    private String[] mKeys;
+
+    @Setup
+    public void setUp() {
+        mInjector = new CoreInjector();
+        mKeys = BenchmarkComponents.keys(CacheBenchmark.KEY_COUNT);
+        mInjector.getOrCreate(BenchmarkComponents.DefaultComponent.class, BenchmarkComponents.DEFAULT_FACTORY);
+        for (String key : mKeys) {
+            mInjector.getOrCreate(BenchmarkComponents.KeyedComponent.class, key, BenchmarkComponents.KEYED_FACTORY);
+        }
+    }
+
+    @Benchmark
+    public Object sharedHitDefault() {
+        return mInjector.getOrCreate(BenchmarkComponents.DefaultComponent.class, BenchmarkComponents.DEFAULT_FACTORY);
+    }
+
+    @Benchmark
+    public Object sharedHitKeyed(ThreadKeys threadKeys) {
+        return mInjector.getOrCreate(BenchmarkComponents.KeyedComponent.class, threadKeys.next(mKeys), BenchmarkComponents.KEYED_FACTORY);
+    }
+
+    @Benchmark
+    public Object sharedMissThenRelease() {
+        Object component = mInjector.getOrCreate(BenchmarkComponents.MissComponent.class, BenchmarkComponents.MISS_FACTORY);
+        mInjector.release(BenchmarkComponents.MissComponent.class);
+        return component;
+    }
+
+    @Benchmark
+    public Object ownMissThenRelease(ThreadKeys threadKeys) {
+        String key = threadKeys.next(mKeys);
+        Object component = mInjector.getOrCreate(BenchmarkComponents.MissComponent.class, key, BenchmarkComponents.MISS_FACTORY);
+        mInjector.release(BenchmarkComponents.MissComponent.class, key);
+        return component;
+    }
+
+    /**
+     * Every thread walks its own stride of keys, so threads mostly touch different keys of the same class.
+     */
+    @State(Scope.Thread)
+    public static class ThreadKeys {
+        private static final AtomicInteger sThreadCount = new AtomicInteger();
+        private int mIndex;
+
+        @Setup
+        public void setUp() {
+            mIndex = sThreadCount.getAndIncrement() * 97;
+        }
+
+        String next(String[] keys) {
+            String key = keys[mIndex & (keys.length - 1)];
+            mIndex++;
+            return key;
+        }
+    }
+}
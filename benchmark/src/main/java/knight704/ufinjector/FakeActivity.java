@@ -0,0 +1,32 @@
+package knight704.ufinjector;
+
+import android.app.Activity;
+import android.app.Application;
+
+/**
+ * Activity of {@link FakeApplication}, finishing and config change flags are set by test before lifecycle is dispatched.
+ */
+class FakeActivity extends Activity {
+    private final Application mApplication;
+    boolean mFinishing;
+    boolean mChangingConfigurations;
+
+    FakeActivity(Application application) {
+        mApplication = application;
+    }
+
+    @Override
+    public Application getApplication() {
+        return mApplication;
+    }
+
+    @Override
+    public boolean isFinishing() {
+        return mFinishing;
+    }
+
+    @Override
+    public boolean isChangingConfigurations() {
+        return mChangingConfigurations;
+    }
+}
@@ -0,0 +1,71 @@
+package knight704.ufinjector;
+
+import android.app.Activity;
+import android.app.Application;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Application that really dispatches activity lifecycle to registered callbacks, so injector is driven the way it is on device.
+ */
+class FakeApplication extends Application {
+    private final List<ActivityLifecycleCallbacks> mCallbacks = new ArrayList<>();
+
+    @Override
+    public void registerActivityLifecycleCallbacks(ActivityLifecycleCallbacks callback) {
+        mCallbacks.add(callback);
+    }
+
+    @Override
+    public void unregisterActivityLifecycleCallbacks(ActivityLifecycleCallbacks callback) {
+        mCallbacks.remove(callback);
+    }
+
+    int getCallbackCount() {
+        return mCallbacks.size();
+    }
+
+    void dispatchCreated(Activity activity) {
+        for (ActivityLifecycleCallbacks callback : callbacks()) {
+            callback.onActivityCreated(activity, null);
+        }
+    }
+
+    void dispatchStarted(Activity activity) {
+        for (ActivityLifecycleCallbacks callback : callbacks()) {
+            callback.onActivityStarted(activity);
+        }
+    }
+
+    void dispatchResumed(Activity activity) {
+        for (ActivityLifecycleCallbacks callback : callbacks()) {
+            callback.onActivityResumed(activity);
+        }
+    }
+
+    void dispatchPaused(Activity activity) {
+        for (ActivityLifecycleCallbacks callback : callbacks()) {
+            callback.onActivityPaused(activity);
+        }
+    }
+
+    void dispatchStopped(Activity activity) {
+        for (ActivityLifecycleCallbacks callback : callbacks()) {
+            callback.onActivityStopped(activity);
+        }
+    }
+
+    void dispatchDestroyed(Activity activity) {
+        for (ActivityLifecycleCallbacks callback : callbacks()) {
+            callback.onActivityDestroyed(activity);
+        }
+    }
+
+    /**
+     * Callbacks may unregister while event is dispatched, so it is dispatched to a copy as Android does.
+     */
+    private ActivityLifecycleCallbacks[] callbacks() {
+        return mCallbacks.toArray(new ActivityLifecycleCallbacks[mCallbacks.size()]);
+    }
+}
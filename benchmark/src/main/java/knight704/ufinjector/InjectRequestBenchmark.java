@@ -0,0 +1,104 @@
+package knight704.ufinjector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import knight704.ufinjector.releasers.ActivityComponentReleaser;
+import knight704.ufinjector.releasers.ComponentReleaser;
+
+/**
+ * Full {@link InjectRequest#build(Class, ComponentFactory)} path: releaser registration, component annotation check and cache lookup.
+ * Every request is released as well, cached components stay in cache since setup holds their references (i.e components shared with
+ * long-lived owner). Lifecycle benchmarks dispatch activity stop, so request is released the way it is on device.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InjectRequestBenchmark {
+    private static final String KEY = "key";
+    private final ManualReleaser mReleaser = new ManualReleaser();
+    private Injector mInjector;
+    private FakeApplication mApplication;
+    private FakeActivity mActivity;
+
+    @Setup
+    public void setUp() {
+        mInjector = new Injector();
+        mApplication = new FakeApplication();
+        mActivity = new FakeActivity(mApplication);
+        mInjector.acquire(BenchmarkComponents.DefaultComponent.class, null);
+        mInjector.getOrCreate(BenchmarkComponents.DefaultComponent.class, BenchmarkComponents.DEFAULT_FACTORY);
+        mInjector.acquire(BenchmarkComponents.KeyedComponent.class, KEY);
+        mInjector.getOrCreate(BenchmarkComponents.KeyedComponent.class, KEY, BenchmarkComponents.KEYED_FACTORY);
+    }
+
+    @Benchmark
+    public Object buildCached() {
+        Object component = new InjectRequest(mInjector, mReleaser)
+                .build(BenchmarkComponents.DefaultComponent.class, BenchmarkComponents.DEFAULT_FACTORY);
+        mReleaser.release();
+        return component;
+    }
+
+    @Benchmark
+    public Object buildCachedByKey() {
+        Object component = new InjectRequest(mInjector, mReleaser)
+                .allowComponentDuplicates(KEY)
+                .build(BenchmarkComponents.KeyedComponent.class, BenchmarkComponents.KEYED_FACTORY);
+        mReleaser.release();
+        return component;
+    }
+
+    @Benchmark
+    public Object buildWithActivityThenStop() {
+        Object component = new InjectRequest(mInjector, new ActivityComponentReleaser(mActivity))
+                .build(BenchmarkComponents.MissComponent.class, BenchmarkComponents.MISS_FACTORY);
+        mApplication.dispatchStopped(mActivity);
+        return component;
+    }
+
+    @Benchmark
+    public Object buildRetainedWithActivityThenRotate() {
+        Object component = new InjectRequest(mInjector, new ActivityComponentReleaser(mActivity))
+                .retainOnConfigChange(true)
+                .build(BenchmarkComponents.DefaultComponent.class, BenchmarkComponents.DEFAULT_FACTORY);
+        mActivity.mChangingConfigurations = true;
+        mApplication.dispatchStopped(mActivity);
+        mActivity.mChangingConfigurations = false;
+        return component;
+    }
+
+    /**
+     * Releaser without lifecycle, owner is released right after component is built.
+     */
+    private static class ManualReleaser implements ComponentReleaser {
+        private OnReleaseListener mListener;
+
+        @Override
+        public void onRegisterReleaser(OnReleaseListener listener) {
+            mListener = listener;
+        }
+
+        @Override
+        public void onUnregisterReleaser() {
+            mListener = null;
+        }
+
+        void release() {
+            mListener.onRelease(false);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package knight704.ufinjector;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import knight704.ufinjector.releasers.ActivityComponentReleaser;
+
+/**
+ * Soak of injector driven by {@link FakeApplication} through thousands of activity lifecycles on plain JVM: create, rotation, opening
+ * another activity on top, going back and finish. Every activity builds components the way screens do, including one shared by
+ * activities and one retained on config change.
+ * <p>
+ * Throughput, cached entries, registered lifecycle callbacks and heap are reported per window of cycles. Run fails (exits with 1) if
+ * components, callbacks or activities are leaked. Growing cost of lifecycle event is only reported, since timing is noisy on shared
+ * machines, unless strict run is requested (i.e on dedicated performance machine):
+ * <pre>
+ * ./gradlew :benchmark:soak -Psoak="50000 1000" -PsoakStrict
+ * </pre>
+ */
+public class LifecycleSoak {
+    private static final int DEFAULT_CYCLES = 20000;
+    private static final int DEFAULT_WINDOW = 1000;
+    private static final int WARMUP_WINDOWS = 3;
+    private static final int COMPARED_WINDOWS = 3;
+    private static final double MAX_COST_GROWTH = 2.0;
+    private static final long MAX_HEAP_GROWTH_BYTES = 8 * 1024 * 1024;
+    private static final int SCREEN_KEYS = 64;
+    private static final String STRICT_PROPERTY = "ufinjector.soak.strict";
+
+    private final Injector mInjector = new Injector();
+    private final FakeApplication mApplication = new FakeApplication();
+    private final List<WeakReference<FakeActivity>> mDestroyed = new ArrayList<>();
+    private final List<String> mFailures = new ArrayList<>();
+    private final boolean mStrict = Boolean.getBoolean(STRICT_PROPERTY);
+    private long mEvents;
+
+    public static void main(String[] args) {
+        int cycles = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CYCLES;
+        int window = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_WINDOW;
+        List<String> failures = new LifecycleSoak().run(cycles, window);
+        if (!failures.isEmpty()) {
+            for (String failure : failures) {
+                System.err.println("FAILED: " + failure);
+            }
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    /**
+     * @return found leaks and regressions, empty if there are none.
+     */
+    List<String> run(int cycles, int window) {
+        if (cycles < window * (WARMUP_WINDOWS + COMPARED_WINDOWS * 2)) {
+            throw new IllegalArgumentException("Soak should run for at least " + (WARMUP_WINDOWS + COMPARED_WINDOWS * 2) + " windows");
+        }
+        List<Double> costs = new ArrayList<>();
+        long baselineHeap = 0;
+        System.out.println(String.format(Locale.US, "%8s %12s %10s %8s %10s %10s", "cycles", "events/s", "ns/event", "entries", "callbacks", "heap KB"));
+        for (int done = 0; done < cycles; done += window) {
+            long events = mEvents;
+            long start = System.nanoTime();
+            for (int i = 0; i < window; i++) {
+                cycle(done + i);
+            }
+            long elapsed = System.nanoTime() - start;
+            double cost = (double) elapsed / (mEvents - events);
+            costs.add(cost);
+
+            int entries = mInjector.getComponents().size();
+            int callbacks = mApplication.getCallbackCount();
+            long heap = usedHeap();
+            int leaked = countLeakedActivities();
+            if (costs.size() == WARMUP_WINDOWS) {
+                baselineHeap = heap;
+            }
+            System.out.println(String.format(Locale.US, "%8d %12.0f %10.1f %8d %10d %10d",
+                    done + window, 1e9 / cost, cost, entries, callbacks, heap / 1024));
+            // Every cycle ends with all activities finished, so nothing should be left behind.
+            if (entries != 0) {
+                mFailures.add(String.format("%d components are cached after %d cycles, all activities are finished", entries, done + window));
+            }
+            if (callbacks > 1) {
+                mFailures.add(String.format("%d lifecycle callbacks are registered after %d cycles, only shared one is expected", callbacks, done + window));
+            }
+            if (leaked > 0) {
+                mFailures.add(String.format("%d activities destroyed during %d cycles are not garbage collected", leaked, done + window));
+            }
+            if (!mFailures.isEmpty()) {
+                return mFailures;
+            }
+        }
+        checkCostGrowth(costs);
+        long heapGrowth = usedHeap() - baselineHeap;
+        if (heapGrowth > MAX_HEAP_GROWTH_BYTES) {
+            mFailures.add(String.format("Heap grew by %d KB since warmup", heapGrowth / 1024));
+        }
+        return mFailures;
+    }
+
+    /**
+     * Screen is opened, rotated, covered by detail screen that is closed, then screen is finished.
+     */
+    private void cycle(int index) {
+        FakeActivity main = create(index);
+        resume(main);
+
+        main.mChangingConfigurations = true;
+        destroy(main);
+        main = create(index);
+        resume(main);
+
+        mApplication.dispatchPaused(main);
+        mEvents++;
+        FakeActivity detail = create(index + 1);
+        resume(detail);
+        mApplication.dispatchStopped(main);
+        mEvents++;
+
+        detail.mFinishing = true;
+        mApplication.dispatchPaused(detail);
+        mEvents++;
+        // Stopped activity injects again once it is started.
+        inject(main, index);
+        resume(main);
+        destroy(detail);
+
+        main.mFinishing = true;
+        destroy(main);
+    }
+
+    private FakeActivity create(int index) {
+        FakeActivity activity = new FakeActivity(mApplication);
+        mApplication.dispatchCreated(activity);
+        mEvents++;
+        inject(activity, index);
+        return activity;
+    }
+
+    private void inject(FakeActivity activity, int index) {
+        new InjectRequest(mInjector, new ActivityComponentReleaser(activity))
+                .retainOnConfigChange(true)
+                .build(BenchmarkComponents.DefaultComponent.class, BenchmarkComponents.DEFAULT_FACTORY);
+        new InjectRequest(mInjector, new ActivityComponentReleaser(activity))
+                .allowComponentDuplicates(index % SCREEN_KEYS)
+                .build(BenchmarkComponents.KeyedComponent.class, BenchmarkComponents.KEYED_FACTORY);
+        // Shared by main screen and detail one covering it.
+        new InjectRequest(mInjector, new ActivityComponentReleaser(activity))
+                .build(BenchmarkComponents.SlottedComponent.class, BenchmarkComponents.SLOTTED_FACTORY);
+        mEvents += 3;
+    }
+
+    private void resume(FakeActivity activity) {
+        mApplication.dispatchStarted(activity);
+        mApplication.dispatchResumed(activity);
+        mEvents += 2;
+    }
+
+    private void destroy(FakeActivity activity) {
+        mApplication.dispatchPaused(activity);
+        mApplication.dispatchStopped(activity);
+        mApplication.dispatchDestroyed(activity);
+        mEvents += 3;
+        mDestroyed.add(new WeakReference<>(activity));
+    }
+
+    /**
+     * @return number of activities destroyed during the last window that are still reachable after GC.
+     */
+    private int countLeakedActivities() {
+        int leaked = 0;
+        for (int attempt = 0; attempt < 5; attempt++) {
+            System.gc();
+            leaked = 0;
+            for (WeakReference<FakeActivity> reference : mDestroyed) {
+                if (reference.get() != null) {
+                    leaked++;
+                }
+            }
+            if (leaked == 0) {
+                break;
+            }
+        }
+        mDestroyed.clear();
+        return leaked;
+    }
+
+    /**
+     * Compares the last windows with the first ones after warmup, medians are used to ignore single GC pauses.
+     * Growth fails only strict run, otherwise it is reported as warning.
+     */
+    private void checkCostGrowth(List<Double> costs) {
+        double first = median(costs.subList(WARMUP_WINDOWS, WARMUP_WINDOWS + COMPARED_WINDOWS));
+        double last = median(costs.subList(costs.size() - COMPARED_WINDOWS, costs.size()));
+        if (last > first * MAX_COST_GROWTH) {
+            String growth = String.format(Locale.US, "Cost of lifecycle event grew from %.1f ns to %.1f ns", first, last);
+            if (mStrict) {
+                mFailures.add(growth);
+            } else {
+                System.err.println("WARNING: " + growth);
+            }
+        }
+    }
+
+    private static double median(List<Double> values) {
+        List<Double> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
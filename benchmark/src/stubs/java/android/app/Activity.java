@@ -0,0 +1,24 @@
+package android.app;
+
+import android.content.ContextWrapper;
+
+/**
+ * Stub of Android type, only members used by injector are present.
+ */
+public class Activity extends ContextWrapper {
+    public Application getApplication() {
+        return null;
+    }
+
+    public boolean isFinishing() {
+        return false;
+    }
+
+    public boolean isChangingConfigurations() {
+        return false;
+    }
+
+    public FragmentManager getFragmentManager() {
+        return null;
+    }
+}
@@ -0,0 +1,12 @@
+package android.app;
+
+/**
+ * Stub of Android type, only members used by injector are present.
+ */
+public class Fragment {
+    public void setRetainInstance(boolean retain) {
+    }
+
+    public void onDestroy() {
+    }
+}
@@ -0,0 +1,10 @@
+package android.app;
+
+/**
+ * Stub of Android type, only members used by injector are present.
+ */
+public abstract class FragmentManager {
+    public abstract FragmentTransaction beginTransaction();
+
+    public abstract Fragment findFragmentByTag(String tag);
+}
@@ -0,0 +1,10 @@
+package android.app;
+
+/**
+ * Stub of Android type, only members used by injector are present.
+ */
+public abstract class FragmentTransaction {
+    public abstract FragmentTransaction add(Fragment fragment, String tag);
+
+    public abstract int commitAllowingStateLoss();
+}
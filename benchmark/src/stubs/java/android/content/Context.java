@@ -0,0 +1,7 @@
+package android.content;
+
+/**
+ * Stub of Android type, only members used by injector are present.
+ */
+public abstract class Context {
+}
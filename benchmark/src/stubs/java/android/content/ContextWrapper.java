@@ -0,0 +1,10 @@
+package android.content;
+
+/**
+ * Stub of Android type, only members used by injector are present.
+ */
+public class ContextWrapper extends Context {
+    public Context getBaseContext() {
+        return null;
+    }
+}
@@ -0,0 +1,15 @@
+package android.os;
+
+/**
+ * Stub of Android type, only members used by injector are present.
+ */
+public class Build {
+    public static class VERSION {
+        public static final int SDK_INT = VERSION_CODES.N;
+    }
+
+    public static class VERSION_CODES {
+        public static final int JELLY_BEAN_MR2 = 18;
+        public static final int N = 24;
+    }
+}
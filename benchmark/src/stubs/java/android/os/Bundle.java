@@ -0,0 +1,7 @@
+package android.os;
+
+/**
+ * Stub of Android type, only members used by injector are present.
+ */
+public final class Bundle {
+}
@@ -0,0 +1,13 @@
+package android.os;
+
+/**
+ * Stub of Android type, only members used by injector are present.
+ */
+public class Handler {
+    public Handler(Looper looper) {
+    }
+
+    public final boolean post(Runnable r) {
+        return false;
+    }
+}
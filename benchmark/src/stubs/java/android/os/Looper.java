@@ -0,0 +1,21 @@
+package android.os;
+
+/**
+ * Stub of Android type, only members used by injector are present.
+ */
+public final class Looper {
+    private Looper() {
+    }
+
+    public static Looper getMainLooper() {
+        return null;
+    }
+
+    public static Looper myLooper() {
+        return null;
+    }
+
+    public static MessageQueue myQueue() {
+        return null;
+    }
+}
@@ -0,0 +1,16 @@
+package android.os;
+
+/**
+ * Stub of Android type, only members used by injector are present.
+ */
+public final class MessageQueue {
+    private MessageQueue() {
+    }
+
+    public void addIdleHandler(IdleHandler handler) {
+    }
+
+    public interface IdleHandler {
+        boolean queueIdle();
+    }
+}
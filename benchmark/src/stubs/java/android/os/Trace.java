@@ -0,0 +1,15 @@
+package android.os;
+
+/**
+ * Stub of Android type, only members used by injector are present.
+ */
+public final class Trace {
+    private Trace() {
+    }
+
+    public static void beginSection(String sectionName) {
+    }
+
+    public static void endSection() {
+    }
+}
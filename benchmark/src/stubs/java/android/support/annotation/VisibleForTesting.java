@@ -0,0 +1,7 @@
+package android.support.annotation;
+
+/**
+ * Stub of Android type, only members used by injector are present.
+ */
+public @interface VisibleForTesting {
+}
@@ -0,0 +1,22 @@
+package android.support.v4.app;
+
+/**
+ * Stub of Android type, only members used by injector are present.
+ */
+public class Fragment {
+    public final FragmentActivity getActivity() {
+        return null;
+    }
+
+    public final FragmentManager getFragmentManager() {
+        return null;
+    }
+
+    public final boolean isRemoving() {
+        return false;
+    }
+
+    public final boolean getRetainInstance() {
+        return false;
+    }
+}
@@ -0,0 +1,9 @@
+package android.support.v4.app;
+
+import android.app.Activity;
+
+/**
+ * Stub of Android type, only members used by injector are present.
+ */
+public class FragmentActivity extends Activity {
+}
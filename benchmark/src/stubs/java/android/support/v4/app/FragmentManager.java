@@ -0,0 +1,18 @@
+package android.support.v4.app;
+
+/**
+ * Stub of Android type, only members used by injector are present.
+ */
+public abstract class FragmentManager {
+    public abstract void registerFragmentLifecycleCallbacks(FragmentLifecycleCallbacks callbacks, boolean recursive);
+
+    public abstract void unregisterFragmentLifecycleCallbacks(FragmentLifecycleCallbacks callbacks);
+
+    public abstract static class FragmentLifecycleCallbacks {
+        public void onFragmentViewDestroyed(FragmentManager fm, Fragment f) {
+        }
+
+        public void onFragmentDestroyed(FragmentManager fm, Fragment f) {
+        }
+    }
+}
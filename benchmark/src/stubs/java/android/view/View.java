@@ -0,0 +1,24 @@
+package android.view;
+
+import android.content.Context;
+
+/**
+ * Stub of Android type, only members used by injector are present.
+ */
+public class View {
+    public Context getContext() {
+        return null;
+    }
+
+    public void addOnAttachStateChangeListener(OnAttachStateChangeListener listener) {
+    }
+
+    public void removeOnAttachStateChangeListener(OnAttachStateChangeListener listener) {
+    }
+
+    public interface OnAttachStateChangeListener {
+        void onViewAttachedToWindow(View v);
+
+        void onViewDetachedFromWindow(View v);
+    }
+}
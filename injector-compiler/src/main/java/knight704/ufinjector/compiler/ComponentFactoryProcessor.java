@@ -0,0 +1,210 @@
+package knight704.ufinjector.compiler;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeSpec;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates singleton {@code ComponentFactory} for every Dagger component marked with {@code @GenerateFactory}.
+ * <p>
+ * Component is validated at compile time: it should be a {@code @Component} that Dagger is able to create with no arguments
+ * (no dependencies, no custom builder and every module has default constructor). Generated factory registers component
+ * in {@code ComponentRegistry}, so injector doesn't check it with reflection at runtime, and keeps slot of component class,
+ * so cached component is found without hashing.
+ */
+public class ComponentFactoryProcessor extends AbstractProcessor {
+    static final String GENERATE_FACTORY = "knight704.ufinjector.annotations.GenerateFactory";
+    static final String FACTORY_SUFFIX = "Factory";
+    private static final String DAGGER_COMPONENT = "dagger.Component";
+    private static final String DAGGER_COMPONENT_BUILDER = "dagger.Component.Builder";
+    private static final ClassName SLOTTED_COMPONENT_FACTORY = ClassName.get("knight704.ufinjector", "SlottedComponentFactory");
+    private static final ClassName COMPONENT_REGISTRY = ClassName.get("knight704.ufinjector", "ComponentRegistry");
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(GENERATE_FACTORY);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement generateFactory = processingEnv.getElementUtils().getTypeElement(GENERATE_FACTORY);
+        if (generateFactory == null) {
+            return false;
+        }
+        for (Element element : roundEnv.getElementsAnnotatedWith(generateFactory)) {
+            if (element.getKind() != ElementKind.INTERFACE && element.getKind() != ElementKind.CLASS) {
+                error(element, "@GenerateFactory can be applied only to component interface or abstract class");
+                continue;
+            }
+            TypeElement componentType = (TypeElement) element;
+            if (isValidComponent(componentType)) {
+                writeFactory(componentType);
+            }
+        }
+        return true;
+    }
+
+    private boolean isValidComponent(TypeElement componentType) {
+        AnnotationMirror component = findAnnotation(componentType, DAGGER_COMPONENT);
+        if (component == null) {
+            error(componentType, "%s is not annotated with @Component. Subcomponents are created by their parent and can't have factory",
+                    componentType.getQualifiedName());
+            return false;
+        }
+        if (componentType.getModifiers().contains(Modifier.PRIVATE)) {
+            error(componentType, "Component %s should not be private", componentType.getQualifiedName());
+            return false;
+        }
+        if (!getTypes(component, "dependencies").isEmpty()) {
+            error(componentType, "Component %s has dependencies, so it can't be created without arguments", componentType.getQualifiedName());
+            return false;
+        }
+        for (TypeElement nested : ElementFilter.typesIn(componentType.getEnclosedElements())) {
+            if (findAnnotation(nested, DAGGER_COMPONENT_BUILDER) != null) {
+                error(componentType, "Component %s declares custom builder, so it can't be created without arguments",
+                        componentType.getQualifiedName());
+                return false;
+            }
+        }
+        boolean valid = true;
+        for (TypeMirror module : getTypes(component, "modules")) {
+            TypeElement moduleType = (TypeElement) ((DeclaredType) module).asElement();
+            if (!canBeCreatedByDagger(moduleType)) {
+                error(componentType, "Module %s of component %s has no default constructor, so component can't be created without arguments",
+                        moduleType.getQualifiedName(), componentType.getQualifiedName());
+                valid = false;
+            }
+        }
+        return valid;
+    }
+
+    private boolean canBeCreatedByDagger(TypeElement moduleType) {
+        if (moduleType.getModifiers().contains(Modifier.ABSTRACT) || moduleType.getKind() == ElementKind.INTERFACE) {
+            return true;
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(moduleType.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeFactory(TypeElement componentType) {
+        ClassName component = ClassName.get(componentType);
+        String flatName = flatName(component);
+        ClassName factory = ClassName.get(component.packageName(), flatName + FACTORY_SUFFIX);
+        ClassName daggerComponent = ClassName.get(component.packageName(), "Dagger" + flatName);
+
+        TypeSpec factorySpec = TypeSpec.classBuilder(factory)
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .addSuperinterface(ParameterizedTypeName.get(SLOTTED_COMPONENT_FACTORY, component))
+                .addField(FieldSpec.builder(factory, "INSTANCE", Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                        .initializer("new $T()", factory)
+                        .build())
+                .addField(FieldSpec.builder(int.class, "SLOT", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                        .initializer("$T.slotOf($T.class)", COMPONENT_REGISTRY, component)
+                        .build())
+                .addStaticBlock(CodeBlock.of("$T.register($T.class, INSTANCE);\n", COMPONENT_REGISTRY, component))
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addModifiers(Modifier.PRIVATE)
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("create")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(component)
+                        .addStatement("return $T.create()", daggerComponent)
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("getSlot")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(int.class)
+                        .addStatement("return SLOT")
+                        .build())
+                .build();
+        try {
+            JavaFile.builder(component.packageName(), factorySpec)
+                    .addFileComment("Generated by UFInjector. Do not modify!")
+                    .build()
+                    .writeTo(processingEnv.getFiler());
+        } catch (IOException e) {
+            error(componentType, "Unable to write factory for %s: %s", componentType.getQualifiedName(), e.getMessage());
+        }
+    }
+
+    /**
+     * Same naming Dagger uses for generated components: enclosing simple names joined with underscore.
+     */
+    static String flatName(ClassName className) {
+        StringBuilder name = new StringBuilder();
+        for (String simpleName : className.simpleNames()) {
+            if (name.length() > 0) {
+                name.append('_');
+            }
+            name.append(simpleName);
+        }
+        return name.toString();
+    }
+
+    private static AnnotationMirror findAnnotation(Element element, String annotationName) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+            if (annotationType.getQualifiedName().contentEquals(annotationName)) {
+                return annotation;
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<TypeMirror> getTypes(AnnotationMirror annotation, String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotation.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                List<? extends AnnotationValue> values = (List<? extends AnnotationValue>) entry.getValue().getValue();
+                TypeMirror[] types = new TypeMirror[values.size()];
+                for (int i = 0; i < types.length; i++) {
+                    types[i] = (TypeMirror) values.get(i).getValue();
+                }
+                return Arrays.asList(types);
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    private void error(Element element, String message, Object... args) {
+        Messager messager = processingEnv.getMessager();
+        messager.printMessage(Diagnostic.Kind.ERROR, String.format(message, args), element);
+    }
+}
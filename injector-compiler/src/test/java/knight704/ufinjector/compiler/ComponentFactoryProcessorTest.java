@@ -0,0 +1,145 @@
+package knight704.ufinjector.compiler;
+
+import com.google.testing.compile.JavaFileObjects;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaFileObject;
+
+import static com.google.common.truth.Truth.assertAbout;
+import static com.google.testing.compile.JavaSourcesSubjectFactory.javaSources;
+
+public class ComponentFactoryProcessorTest {
+    private static final JavaFileObject GENERATE_FACTORY = JavaFileObjects.forSourceLines("knight704.ufinjector.annotations.GenerateFactory",
+            "package knight704.ufinjector.annotations;",
+            "public @interface GenerateFactory {}");
+    private static final JavaFileObject COMPONENT_FACTORY = JavaFileObjects.forSourceLines("knight704.ufinjector.ComponentFactory",
+            "package knight704.ufinjector;",
+            "public interface ComponentFactory<T> { T create(); }");
+    private static final JavaFileObject SLOTTED_COMPONENT_FACTORY = JavaFileObjects.forSourceLines("knight704.ufinjector.SlottedComponentFactory",
+            "package knight704.ufinjector;",
+            "public interface SlottedComponentFactory<T> extends ComponentFactory<T> { int getSlot(); }");
+    private static final JavaFileObject COMPONENT_REGISTRY = JavaFileObjects.forSourceLines("knight704.ufinjector.ComponentRegistry",
+            "package knight704.ufinjector;",
+            "public final class ComponentRegistry {",
+            "  public static <T> void register(Class<T> componentClass, ComponentFactory<T> componentFactory) {}",
+            "  public static int slotOf(Class componentClass) { return 0; }",
+            "}");
+    private static final JavaFileObject DAGGER_MAIN_COMPONENT = JavaFileObjects.forSourceLines("test.DaggerMainActivity_MainComponent",
+            "package test;",
+            "public final class DaggerMainActivity_MainComponent implements MainActivity.MainComponent {",
+            "  public static MainActivity.MainComponent create() { return new DaggerMainActivity_MainComponent(); }",
+            "}");
+
+    @Test
+    public void testShouldGenerateFactoryForComponent() throws Exception {
+        JavaFileObject component = JavaFileObjects.forSourceLines("test.MainActivity",
+                "package test;",
+                "import dagger.Component;",
+                "import knight704.ufinjector.annotations.GenerateFactory;",
+                "public class MainActivity {",
+                "  @GenerateFactory",
+                "  @Component",
+                "  public interface MainComponent {}",
+                "}");
+        JavaFileObject expectedFactory = JavaFileObjects.forSourceLines("test.MainActivity_MainComponentFactory",
+                "package test;",
+                "import java.lang.Override;",
+                "import knight704.ufinjector.ComponentRegistry;",
+                "import knight704.ufinjector.SlottedComponentFactory;",
+                "public final class MainActivity_MainComponentFactory implements SlottedComponentFactory<MainActivity.MainComponent> {",
+                "  public static final MainActivity_MainComponentFactory INSTANCE = new MainActivity_MainComponentFactory();",
+                "  private static final int SLOT = ComponentRegistry.slotOf(MainActivity.MainComponent.class);",
+                "  static {",
+                "    ComponentRegistry.register(MainActivity.MainComponent.class, INSTANCE);",
+                "  }",
+                "  private MainActivity_MainComponentFactory() {",
+                "  }",
+                "  @Override",
+                "  public MainActivity.MainComponent create() {",
+                "    return DaggerMainActivity_MainComponent.create();",
+                "  }",
+                "  @Override",
+                "  public int getSlot() {",
+                "    return SLOT;",
+                "  }",
+                "}");
+
+        assertAbout(javaSources())
+                .that(withRuntime(component, DAGGER_MAIN_COMPONENT))
+                .processedWith(new ComponentFactoryProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedFactory);
+    }
+
+    @Test
+    public void testSubcomponentShouldFailCompilation() throws Exception {
+        JavaFileObject subcomponent = JavaFileObjects.forSourceLines("test.ChildComponent",
+                "package test;",
+                "import dagger.Subcomponent;",
+                "import knight704.ufinjector.annotations.GenerateFactory;",
+                "@GenerateFactory",
+                "@Subcomponent",
+                "public interface ChildComponent {}");
+
+        assertAbout(javaSources())
+                .that(withRuntime(subcomponent))
+                .processedWith(new ComponentFactoryProcessor())
+                .failsToCompile()
+                .withErrorContaining("is not annotated with @Component");
+    }
+
+    @Test
+    public void testComponentWithDependenciesShouldFailCompilation() throws Exception {
+        JavaFileObject component = JavaFileObjects.forSourceLines("test.DependentComponent",
+                "package test;",
+                "import dagger.Component;",
+                "import knight704.ufinjector.annotations.GenerateFactory;",
+                "@GenerateFactory",
+                "@Component(dependencies = Object.class)",
+                "public interface DependentComponent {}");
+
+        assertAbout(javaSources())
+                .that(withRuntime(component))
+                .processedWith(new ComponentFactoryProcessor())
+                .failsToCompile()
+                .withErrorContaining("has dependencies");
+    }
+
+    @Test
+    public void testModuleWithoutDefaultConstructorShouldFailCompilation() throws Exception {
+        JavaFileObject component = JavaFileObjects.forSourceLines("test.ModuleComponent",
+                "package test;",
+                "import dagger.Component;",
+                "import dagger.Module;",
+                "import knight704.ufinjector.annotations.GenerateFactory;",
+                "@GenerateFactory",
+                "@Component(modules = ModuleComponent.ArgModule.class)",
+                "public interface ModuleComponent {",
+                "  @Module",
+                "  class ArgModule {",
+                "    ArgModule(String arg) {}",
+                "  }",
+                "}");
+
+        assertAbout(javaSources())
+                .that(withRuntime(component))
+                .processedWith(new ComponentFactoryProcessor())
+                .failsToCompile()
+                .withErrorContaining("has no default constructor");
+    }
+
+    private static List<JavaFileObject> withRuntime(JavaFileObject... sources) {
+        List<JavaFileObject> files = new ArrayList<>(Arrays.asList(sources));
+        files.add(GENERATE_FACTORY);
+        files.add(COMPONENT_FACTORY);
+        files.add(SLOTTED_COMPONENT_FACTORY);
+        files.add(COMPONENT_REGISTRY);
+        return files;
+    }
+}
@@ -0,0 +1,122 @@
+package knight704.ufinjector;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RunnableFuture;
+
+/**
+ * Components of {@link BatchRequest}, each of them is either created or being created on executor.
+ */
+public class BatchComponents {
+    private final BatchRequest mRequest;
+    private final List<BatchRequest.Entry<?>> mEntries;
+    private final List<Future<?>> mFutures;
+
+    BatchComponents(BatchRequest request, List<BatchRequest.Entry<?>> entries, List<Future<?>> futures) {
+        mRequest = request;
+        mEntries = entries;
+        mFutures = futures;
+    }
+
+    /**
+     * Get component with default key, waits for it if it is still being created.
+     */
+    public <T> T get(Class<T> componentClass) {
+        return get(componentClass, null);
+    }
+
+    /**
+     * Get component with specific key, waits for it if it is still being created. Creation is done on calling thread if executor hasn't
+     * started it yet.
+     *
+     * @throws RuntimeException thrown by factory of component, components of batch are released then.
+     */
+    public <T> T get(Class<T> componentClass, Object key) {
+        return componentClass.cast(await(mFutures.get(indexOf(componentClass, key))));
+    }
+
+    /**
+     * @return future of component with specific key, i.e to be composed with other async work.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Future<T> getFuture(Class<T> componentClass, Object key) {
+        return (Future<T>) mFutures.get(indexOf(componentClass, key));
+    }
+
+    /**
+     * @return true if every component of batch is created (or creation failed).
+     */
+    public boolean isDone() {
+        for (int i = 0; i < mFutures.size(); i++) {
+            if (!mFutures.get(i).isDone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Wait for every component, calling thread creates ones that executor hasn't started yet.
+     */
+    void awaitAll() {
+        for (int i = mFutures.size() - 1; i >= 0; i--) {
+            help(mFutures.get(i));
+        }
+        for (int i = 0; i < mFutures.size(); i++) {
+            await(mFutures.get(i));
+        }
+    }
+
+    private int indexOf(Class componentClass, Object key) {
+        for (int i = 0; i < mEntries.size(); i++) {
+            BatchRequest.Entry<?> entry = mEntries.get(i);
+            if (entry.componentClass == componentClass && (key == null ? entry.key == null : key.equals(entry.key))) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Component %s with key %s is not in batch", componentClass.getName(), key));
+    }
+
+    private Object await(Future<?> future) {
+        help(future);
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            mRequest.releaseFailed();
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Component creation failed", cause);
+        } catch (CancellationException e) {
+            // Shared creation was cancelled, i.e executor of another request rejected it.
+            mRequest.releaseFailed();
+            throw e;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Run creation on calling thread if executor hasn't started it yet, no-op otherwise.
+     */
+    private static void help(Future<?> future) {
+        if (!future.isDone() && future instanceof RunnableFuture) {
+            ((RunnableFuture<?>) future).run();
+        }
+    }
+}
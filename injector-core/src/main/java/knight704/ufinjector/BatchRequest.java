@@ -0,0 +1,166 @@
+package knight704.ufinjector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import knight704.ufinjector.releasers.ComponentReleaser;
+
+/**
+ * Request of several independent components bound to single lifecycle binding. Components that are not cached are created in parallel
+ * on provided executor, while calling thread creates the ones executor hasn't started yet instead of just waiting:
+ * <pre>
+ * BatchComponents components = Injector.batch(this)
+ *   .add(MainComponent.class, MainComponentFactory.INSTANCE)
+ *   .add(ChatComponent.class, chatId, ChatComponentFactory.INSTANCE)
+ *   .build(executor);
+ * components.get(MainComponent.class).inject(this);
+ * </pre>
+ * Every component is released (or retained) as if it was built by its own {@link InjectRequest}.
+ */
+public class BatchRequest implements ComponentReleaser.OnReleaseReasonListener {
+    private final ComponentCache mComponentCache;
+    private final ComponentReleaser mReleaser;
+    private final List<Entry<?>> mEntries = new ArrayList<>();
+    private boolean mRetainOnConfigChange;
+    private long mGraceNanos;
+    private List<InjectRequest> mRequests;
+
+    public BatchRequest(ComponentCache componentCache, ComponentReleaser releaser) {
+        mComponentCache = componentCache;
+        mReleaser = releaser;
+        releaser.onRegisterReleaser(this);
+    }
+
+    @Override
+    public void onRelease(boolean canRetain) {
+        onRelease(canRetain ? ReleaseReason.CONFIG_CHANGE : ReleaseReason.STOP);
+    }
+
+    @Override
+    public void onRelease(ReleaseReason reason) {
+        List<InjectRequest> requests = mRequests;
+        if (requests != null) {
+            for (int i = 0; i < requests.size(); i++) {
+                requests.get(i).onRelease(reason);
+            }
+        }
+        mReleaser.onUnregisterReleaser();
+    }
+
+    /**
+     * See {@link InjectRequest#retainOnConfigChange(boolean)}, applies to every component of batch.
+     */
+    public BatchRequest retainOnConfigChange(boolean retainOnConfigChange) {
+        mRetainOnConfigChange = retainOnConfigChange;
+        return this;
+    }
+
+    /**
+     * See {@link InjectRequest#retainFor(long, TimeUnit)}, applies to every component of batch.
+     */
+    public BatchRequest retainFor(long duration, TimeUnit unit) {
+        if (duration < 0 || unit == null) {
+            throw new IllegalArgumentException("Grace period should be non-negative duration");
+        }
+        mGraceNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * Add component with default key.
+     */
+    public <T> BatchRequest add(Class<T> componentClass, ComponentFactory<T> componentFactory) {
+        return add(componentClass, null, componentFactory);
+    }
+
+    /**
+     * Add component with specific key, see {@link InjectRequest#allowComponentDuplicates(Object)}.
+     */
+    public <T> BatchRequest add(Class<T> componentClass, Object key, ComponentFactory<T> componentFactory) {
+        if (componentClass == null || componentFactory == null) {
+            throw new IllegalArgumentException("Component class or factory is not provided");
+        }
+        if (mRequests != null) {
+            throw new IllegalStateException("Batch is already built");
+        }
+        for (Entry<?> entry : mEntries) {
+            if (entry.componentClass == componentClass && (key == null ? entry.key == null : key.equals(entry.key))) {
+                throw new IllegalArgumentException(String.format("Component %s with key %s is already in batch", componentClass.getName(), key));
+            }
+        }
+        mEntries.add(new Entry<>(componentClass, key, componentFactory));
+        return this;
+    }
+
+    /**
+     * Get or create every component of batch and wait for all of them.
+     *
+     * @param executor executor to create components that are not cached on, i.e pool of background threads.
+     * @throws RuntimeException thrown by factory of any component, components of batch are released then.
+     */
+    public BatchComponents build(Executor executor) {
+        BatchComponents components = buildAsync(executor);
+        components.awaitAll();
+        return components;
+    }
+
+    /**
+     * Same as {@link #build(Executor)}, but doesn't wait for components, they can be got or awaited one by one from result.
+     */
+    public BatchComponents buildAsync(Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor is not provided");
+        }
+        if (mRequests != null) {
+            throw new IllegalStateException("Batch is already built");
+        }
+        List<InjectRequest> requests = new ArrayList<>(mEntries.size());
+        List<Future<?>> futures = new ArrayList<>(mEntries.size());
+        mRequests = requests;
+        try {
+            for (Entry<?> entry : mEntries) {
+                InjectRequest request = new InjectRequest(mComponentCache).retainOnConfigChange(mRetainOnConfigChange);
+                if (mGraceNanos > 0) {
+                    request.retainFor(mGraceNanos, TimeUnit.NANOSECONDS);
+                }
+                if (entry.key != null) {
+                    request.allowComponentDuplicates(entry.key);
+                }
+                futures.add(entry.build(request, executor));
+                requests.add(request);
+            }
+        } catch (RuntimeException | Error e) {
+            releaseFailed();
+            throw e;
+        }
+        return new BatchComponents(this, mEntries, futures);
+    }
+
+    /**
+     * Creation of some component failed, release whole batch, so nothing is left in cache without owner.
+     */
+    void releaseFailed() {
+        for (InjectRequest request : mRequests) {
+            request.releaseFailed();
+        }
+    }
+
+    static class Entry<T> {
+        final Class<T> componentClass;
+        final Object key;
+        final ComponentFactory<T> componentFactory;
+
+        Entry(Class<T> componentClass, Object key, ComponentFactory<T> componentFactory) {
+            this.componentClass = componentClass;
+            this.key = key;
+            this.componentFactory = componentFactory;
+        }
+
+        Future<T> build(InjectRequest request, Executor executor) {
+            return request.buildAsync(componentClass, componentFactory, executor);
+        }
+    }
+}
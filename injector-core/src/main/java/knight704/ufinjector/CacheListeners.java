@@ -0,0 +1,78 @@
+package knight704.ufinjector;
+
+/**
+ * Dispatches cache events to several listeners, see {@link CoreInjector#addCacheListener(ComponentCacheListener)}.
+ */
+final class CacheListeners implements ComponentCacheListener {
+    private final ComponentCacheListener[] mListeners;
+
+    private CacheListeners(ComponentCacheListener[] listeners) {
+        mListeners = listeners;
+    }
+
+    /**
+     * @return null if there are no listeners, listener itself if there is only one, so single listener is called directly.
+     */
+    static ComponentCacheListener of(ComponentCacheListener[] listeners) {
+        if (listeners.length == 0) {
+            return null;
+        }
+        return listeners.length == 1 ? listeners[0] : new CacheListeners(listeners);
+    }
+
+    @Override
+    public void onHit(Class componentClass, Object key) {
+        for (ComponentCacheListener listener : mListeners) {
+            listener.onHit(componentClass, key);
+        }
+    }
+
+    @Override
+    public void onMiss(Class componentClass, Object key) {
+        for (ComponentCacheListener listener : mListeners) {
+            listener.onMiss(componentClass, key);
+        }
+    }
+
+    @Override
+    public void onCreated(Class componentClass, Object key, long durationNanos) {
+        for (ComponentCacheListener listener : mListeners) {
+            listener.onCreated(componentClass, key, durationNanos);
+        }
+    }
+
+    @Override
+    public void onRetained(Class componentClass, Object key) {
+        for (ComponentCacheListener listener : mListeners) {
+            listener.onRetained(componentClass, key);
+        }
+    }
+
+    @Override
+    public void onRevived(Class componentClass, Object key, long retainedNanos) {
+        for (ComponentCacheListener listener : mListeners) {
+            listener.onRevived(componentClass, key, retainedNanos);
+        }
+    }
+
+    @Override
+    public void onHeld(Class componentClass, Object key) {
+        for (ComponentCacheListener listener : mListeners) {
+            listener.onHeld(componentClass, key);
+        }
+    }
+
+    @Override
+    public void onReclaimed(Class componentClass, Object key, long heldNanos) {
+        for (ComponentCacheListener listener : mListeners) {
+            listener.onReclaimed(componentClass, key, heldNanos);
+        }
+    }
+
+    @Override
+    public void onReleased(Class componentClass, Object key, ReleaseReason reason, long retainedNanos) {
+        for (ComponentCacheListener listener : mListeners) {
+            listener.onReleased(componentClass, key, reason, retainedNanos);
+        }
+    }
+}
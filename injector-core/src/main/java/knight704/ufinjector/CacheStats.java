@@ -0,0 +1,146 @@
+package knight704.ufinjector;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects cache statistics per component class. Counters are allocated once per class, after that collecting allocates nothing,
+ * so it can be kept enabled in production:
+ * <pre>
+ * CacheStats stats = new CacheStats();
+ * Injector.getInstance().addCacheListener(stats);
+ * ...
+ * Map&lt;Class, ComponentStats&gt; snapshot = stats.snapshot();
+ * </pre>
+ * Statistics are aggregated per class, implement {@link ComponentCacheListener} directly if they are needed per key.
+ */
+public class CacheStats implements ComponentCacheListener {
+    private final ConcurrentMap<Class, Counters> mCounters = new ConcurrentHashMap<>();
+
+    @Override
+    public void onHit(Class componentClass, Object key) {
+        getCounters(componentClass).hits.incrementAndGet();
+    }
+
+    @Override
+    public void onMiss(Class componentClass, Object key) {
+        getCounters(componentClass).misses.incrementAndGet();
+    }
+
+    @Override
+    public void onCreated(Class componentClass, Object key, long durationNanos) {
+        Counters counters = getCounters(componentClass);
+        counters.created.incrementAndGet();
+        counters.live.incrementAndGet();
+        counters.creationNanos.addAndGet(durationNanos);
+        counters.creationHistogram.incrementAndGet(ComponentStats.histogramBucket(durationNanos));
+    }
+
+    @Override
+    public void onRetained(Class componentClass, Object key) {
+        getCounters(componentClass).retained.incrementAndGet();
+    }
+
+    @Override
+    public void onRevived(Class componentClass, Object key, long retainedNanos) {
+        Counters counters = getCounters(componentClass);
+        counters.hits.incrementAndGet();
+        counters.revived.incrementAndGet();
+        counters.retainedNanos.addAndGet(retainedNanos);
+    }
+
+    @Override
+    public void onHeld(Class componentClass, Object key) {
+        getCounters(componentClass).held.incrementAndGet();
+    }
+
+    @Override
+    public void onReclaimed(Class componentClass, Object key, long heldNanos) {
+        Counters counters = getCounters(componentClass);
+        counters.hits.incrementAndGet();
+        counters.reclaimed.incrementAndGet();
+    }
+
+    @Override
+    public void onReleased(Class componentClass, Object key, ReleaseReason reason, long retainedNanos) {
+        Counters counters = getCounters(componentClass);
+        decrementLive(counters.live);
+        counters.releases.incrementAndGet(reason.ordinal());
+        counters.retainedNanos.addAndGet(retainedNanos);
+    }
+
+    /**
+     * @return statistics of every component class seen so far.
+     */
+    public Map<Class, ComponentStats> snapshot() {
+        Map<Class, ComponentStats> snapshot = new HashMap<>();
+        for (Map.Entry<Class, Counters> entry : mCounters.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().snapshot(entry.getKey()));
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return statistics of component class, null if there were no events for it.
+     */
+    public ComponentStats snapshot(Class componentClass) {
+        Counters counters = mCounters.get(componentClass);
+        return counters != null ? counters.snapshot(componentClass) : null;
+    }
+
+    /**
+     * Components cached before stats were added are released without being counted as live, so count never goes below zero.
+     */
+    private static void decrementLive(AtomicLong live) {
+        while (true) {
+            long count = live.get();
+            if (count <= 0 || live.compareAndSet(count, count - 1)) {
+                return;
+            }
+        }
+    }
+
+    private Counters getCounters(Class componentClass) {
+        Counters counters = mCounters.get(componentClass);
+        if (counters == null) {
+            Counters newCounters = new Counters();
+            counters = mCounters.putIfAbsent(componentClass, newCounters);
+            if (counters == null) {
+                counters = newCounters;
+            }
+        }
+        return counters;
+    }
+
+    private static class Counters {
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong created = new AtomicLong();
+        final AtomicLong creationNanos = new AtomicLong();
+        final AtomicLongArray creationHistogram = new AtomicLongArray(ComponentStats.HISTOGRAM_BUCKETS);
+        final AtomicLong live = new AtomicLong();
+        final AtomicLong retained = new AtomicLong();
+        final AtomicLong revived = new AtomicLong();
+        final AtomicLong retainedNanos = new AtomicLong();
+        final AtomicLong held = new AtomicLong();
+        final AtomicLong reclaimed = new AtomicLong();
+        final AtomicLongArray releases = new AtomicLongArray(ReleaseReason.values().length);
+
+        ComponentStats snapshot(Class componentClass) {
+            return new ComponentStats(componentClass, hits.get(), misses.get(), created.get(), creationNanos.get(), toArray(creationHistogram),
+                    live.get(), retained.get(), revived.get(), retainedNanos.get(), held.get(), reclaimed.get(), toArray(releases));
+        }
+
+        private static long[] toArray(AtomicLongArray atomicArray) {
+            long[] array = new long[atomicArray.length()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = atomicArray.get(i);
+            }
+            return array;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package knight704.ufinjector;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Writes trace sections to file in Chrome trace event format, that is opened by chrome://tracing or ui.perfetto.dev:
+ * <pre>
+ * ChromeTraceWriter trace = new ChromeTraceWriter(new File("startup.json"));
+ * injector.setTracer(trace);
+ * ...
+ * injector.setTracer(null);
+ * trace.close();
+ * </pre>
+ * Every section is written as begin/end pair of events of its thread, time is measured from creation of writer. Writing is serialized,
+ * so tracing is meant for profiling sessions rather than production. First write error stops tracing, it is thrown by {@link #close()}.
+ */
+public class ChromeTraceWriter implements ComponentTracer, Closeable {
+    private static final String CATEGORY = "ufinjector";
+    private static final int PID = 1;
+
+    private final Writer mWriter;
+    private final long mOriginNanos = System.nanoTime();
+    private final Set<Long> mNamedThreads = new HashSet<>();
+    private final StringBuilder mEvent = new StringBuilder(256);
+    private boolean mHasEvents;
+    private boolean mClosed;
+    private IOException mError;
+
+    public ChromeTraceWriter(File file) throws IOException {
+        this(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+    }
+
+    public ChromeTraceWriter(Writer writer) {
+        mWriter = new BufferedWriter(writer);
+        write("[");
+    }
+
+    @Override
+    public void beginSection(String action, Class componentClass, Object key) {
+        long nanos = System.nanoTime() - mOriginNanos;
+        Thread thread = Thread.currentThread();
+        synchronized (this) {
+            if (mClosed) {
+                return;
+            }
+            if (mNamedThreads.add(thread.getId())) {
+                startEvent("M", thread.getId()).append(",\"name\":\"thread_name\",\"args\":{\"name\":");
+                appendString(thread.getName()).append("}}");
+                writeEvent();
+            }
+            startEvent("B", thread.getId()).append(",\"ts\":");
+            appendMicros(nanos).append(",\"cat\":\"" + CATEGORY + "\",\"name\":");
+            String name = componentClass.getSimpleName();
+            appendString(action + ' ' + (name.isEmpty() ? componentClass.getName() : name) + (key != null ? "[" + key + "]" : ""));
+            mEvent.append(",\"args\":{\"class\":");
+            appendString(componentClass.getName());
+            if (key != null) {
+                mEvent.append(",\"key\":");
+                appendString(String.valueOf(key));
+            }
+            mEvent.append("}}");
+            writeEvent();
+        }
+    }
+
+    @Override
+    public void endSection() {
+        long nanos = System.nanoTime() - mOriginNanos;
+        long tid = Thread.currentThread().getId();
+        synchronized (this) {
+            if (mClosed) {
+                return;
+            }
+            startEvent("E", tid).append(",\"ts\":");
+            appendMicros(nanos).append('}');
+            writeEvent();
+        }
+    }
+
+    /**
+     * Finish trace file, sections that end later are not written.
+     *
+     * @throws IOException first error of writing trace.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (mClosed) {
+            return;
+        }
+        write("]\n");
+        mClosed = true;
+        try {
+            mWriter.close();
+        } catch (IOException e) {
+            if (mError == null) {
+                mError = e;
+            }
+        }
+        if (mError != null) {
+            throw mError;
+        }
+    }
+
+    private StringBuilder startEvent(String phase, long tid) {
+        mEvent.setLength(0);
+        if (mHasEvents) {
+            mEvent.append(",\n");
+        }
+        mHasEvents = true;
+        return mEvent.append("{\"ph\":\"").append(phase).append("\",\"pid\":").append(PID).append(",\"tid\":").append(tid);
+    }
+
+    private StringBuilder appendMicros(long nanos) {
+        long fraction = nanos % 1000;
+        mEvent.append(nanos / 1000).append('.');
+        if (fraction < 100) {
+            mEvent.append(fraction < 10 ? "00" : "0");
+        }
+        return mEvent.append(fraction);
+    }
+
+    private StringBuilder appendString(String value) {
+        mEvent.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                mEvent.append('\\').append(c);
+            } else if (c < 0x20) {
+                mEvent.append(String.format("\\u%04x", (int) c));
+            } else {
+                mEvent.append(c);
+            }
+        }
+        return mEvent.append('"');
+    }
+
+    private void writeEvent() {
+        write(mEvent);
+    }
+
+    private void write(CharSequence text) {
+        if (mError != null) {
+            return;
+        }
+        try {
+            mWriter.append(text);
+        } catch (IOException e) {
+            mError = e;
+        }
+    }
+}
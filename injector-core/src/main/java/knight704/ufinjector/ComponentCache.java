@@ -0,0 +1,77 @@
+package knight704.ufinjector;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of components. Component is identified by its class and optional key (any object with proper equals and hashCode),
+ * methods without key address component with default key.
+ */
+public interface ComponentCache {
+    <T> T getOrCreate(Class<T> componentClass, Object key, ComponentFactory<T> componentFactory);
+
+    <T> T getOrCreate(Class<T> componentClass, ComponentFactory<T> componentFactory);
+
+    /**
+     * Same as {@link #getOrCreate(Class, Object, ComponentFactory)}, but component is created on provided executor. Creation is visible
+     * to other callers right away, so they get the same instance instead of creating another one.
+     */
+    <T> Future<T> getOrCreateAsync(Class<T> componentClass, Object key, ComponentFactory<T> componentFactory, Executor executor);
+
+    <T> Future<T> getOrCreateAsync(Class<T> componentClass, ComponentFactory<T> componentFactory, Executor executor);
+
+    /**
+     * Component is not used by its owner anymore, but should be kept for the next one (i.e on config change). Cache may evict it
+     * under memory pressure until it is requested again.
+     */
+    void retain(Class componentClass, Object key);
+
+    void retain(Class componentClass);
+
+    void release(Class componentClass, Object key);
+
+    void release(Class componentClass);
+
+    /**
+     * Same as {@link #release(Class, Object)}, but with the reason reported to {@link ComponentCacheListener}.
+     */
+    void release(Class componentClass, Object key, ReleaseReason reason);
+
+    void release(Class componentClass, ReleaseReason reason);
+
+    /**
+     * Same as {@link #release(Class, Object, ReleaseReason)}, but component is kept for grace period and handed out again if it is
+     * requested before period ends (i.e user quickly navigates back to screen).
+     */
+    void releaseAfter(Class componentClass, Object key, ReleaseReason reason, long delay, TimeUnit unit);
+
+    /**
+     * Make component a child of parent one, so releasing parent releases component as well. Null key stands for default one.
+     */
+    void attach(Class componentClass, Object key, Class parentClass, Object parentKey);
+
+    /**
+     * Tag cached component (null key stands for default one), so it can be released together with other components of the tag.
+     */
+    void tag(Class componentClass, Object key, Object tag);
+
+    /**
+     * Take reference to component slot for owner that shares it with others (null key stands for default one). Component is
+     * released only once every reference is dropped via {@link #release(ComponentReference, ReleaseReason, boolean)}, explicit
+     * release of component drops all its references.
+     */
+    ComponentReference acquire(Class componentClass, Object key);
+
+    /**
+     * Drop reference, component is released (or retained if requested) only if it was the last one. Does nothing if component
+     * was released explicitly after reference was taken.
+     */
+    void release(ComponentReference reference, ReleaseReason reason, boolean retain);
+
+    /**
+     * Same as {@link #release(ComponentReference, ReleaseReason, boolean)}, last owner releases component after grace period,
+     * see {@link #releaseAfter(Class, Object, ReleaseReason, long, TimeUnit)}.
+     */
+    void releaseAfter(ComponentReference reference, ReleaseReason reason, long delay, TimeUnit unit);
+}
@@ -0,0 +1,58 @@
+package knight704.ufinjector;
+
+/**
+ * Receives cache events, see {@link CacheStats} for default implementation collecting statistics.
+ * <p>
+ * Callbacks are invoked synchronously on the thread that accessed cache (hit is reported on every {@link InjectRequest#build(Class, ComponentFactory)}),
+ * so they should be cheap and must not allocate. Key passed to callbacks is null for component with default key.
+ */
+public interface ComponentCacheListener {
+    /**
+     * Component was found in cache (or was being created by another caller).
+     */
+    void onHit(Class componentClass, Object key);
+
+    /**
+     * Component is not cached and is going to be created.
+     */
+    void onMiss(Class componentClass, Object key);
+
+    /**
+     * Component was created by factory.
+     *
+     * @param durationNanos time spent in {@link ComponentFactory#create()}.
+     */
+    void onCreated(Class componentClass, Object key, long durationNanos);
+
+    /**
+     * Component is retained by its owner and is not used at the moment.
+     */
+    void onRetained(Class componentClass, Object key);
+
+    /**
+     * Retained component was requested again.
+     *
+     * @param retainedNanos how long component was retained.
+     */
+    void onRevived(Class componentClass, Object key, long retainedNanos);
+
+    /**
+     * Component is released by its owner, but is kept for grace period in case it is requested again, see {@link InjectRequest#retainFor(long, java.util.concurrent.TimeUnit)}.
+     * Once period ends, component is reported as released with owner's reason.
+     */
+    void onHeld(Class componentClass, Object key);
+
+    /**
+     * Held component was requested again before grace period ended.
+     *
+     * @param heldNanos how long component was held.
+     */
+    void onReclaimed(Class componentClass, Object key, long heldNanos);
+
+    /**
+     * Component was removed from cache.
+     *
+     * @param retainedNanos how long component was retained before being released, 0 if it was in use.
+     */
+    void onReleased(Class componentClass, Object key, ReleaseReason reason, long retainedNanos);
+}
@@ -0,0 +1,47 @@
+package knight704.ufinjector;
+
+/**
+ * Key of component in flat cache index. Component with default key is stored under its class itself, so default lookup is a single probe
+ * that doesn't allocate. Components with duplicate keys are stored under (class, key) pair.
+ */
+final class ComponentKey {
+    final Class componentClass;
+    final Object key;
+    private final int mHash;
+
+    private ComponentKey(Class componentClass, Object key) {
+        this.componentClass = componentClass;
+        this.key = key;
+        mHash = 31 * componentClass.hashCode() + key.hashCode();
+    }
+
+    /**
+     * @param key key of component, null for default one.
+     * @return key of component in cache index.
+     */
+    static Object of(Class componentClass, Object key) {
+        return key == null ? componentClass : new ComponentKey(componentClass, key);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ComponentKey)) {
+            return false;
+        }
+        ComponentKey other = (ComponentKey) o;
+        return mHash == other.mHash && componentClass == other.componentClass && key.equals(other.key);
+    }
+
+    @Override
+    public int hashCode() {
+        return mHash;
+    }
+
+    @Override
+    public String toString() {
+        return componentClass.getName() + "[" + key + "]";
+    }
+}
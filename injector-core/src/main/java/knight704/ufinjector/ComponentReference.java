@@ -0,0 +1,61 @@
+package knight704.ufinjector;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reference count of cached component shared by several owners (i.e two activities that build component with the same key).
+ * Component is released or retained by the owner that drops the last reference, see {@link ComponentCache#acquire(Class, Object)}.
+ * <p>
+ * Count is updated with CAS only. Zero count means reference is dead: either its last owner is releasing component right now
+ * or component was released explicitly, dead reference is never acquired again.
+ */
+public final class ComponentReference {
+    final Object cacheKey;
+    final Class componentClass;
+    final Object key;
+    private final AtomicInteger mCount = new AtomicInteger(1);
+
+    ComponentReference(Object cacheKey, Class componentClass, Object key) {
+        this.cacheKey = cacheKey;
+        this.componentClass = componentClass;
+        this.key = key;
+    }
+
+    /**
+     * @return false if reference is dead, new one should be taken.
+     */
+    boolean acquire() {
+        while (true) {
+            int count = mCount.get();
+            if (count <= 0) {
+                return false;
+            }
+            if (mCount.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return true if it was the last reference, caller is responsible for releasing component then.
+     */
+    boolean release() {
+        while (true) {
+            int count = mCount.get();
+            if (count <= 0) {
+                return false;
+            }
+            if (mCount.compareAndSet(count, count - 1)) {
+                return count == 1;
+            }
+        }
+    }
+
+    void kill() {
+        mCount.set(0);
+    }
+
+    int getCount() {
+        return mCount.get();
+    }
+}
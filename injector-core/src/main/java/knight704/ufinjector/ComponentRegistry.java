@@ -0,0 +1,108 @@
+package knight704.ufinjector;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import dagger.Component;
+import dagger.Subcomponent;
+
+/**
+ * Registry of known component classes and their factories.
+ * <p>
+ * Factories generated for {@link knight704.ufinjector.annotations.GenerateFactory} components register themselves here once loaded, since
+ * their components are already validated at compile time. Other classes are checked for Dagger annotations via reflection only once,
+ * result is remembered, so next checks are just a table lookup.
+ * <p>
+ * Component class may also get a stable slot, generated factories take it once loaded, see {@link SlottedComponentFactory}.
+ */
+public final class ComponentRegistry {
+    private static final String GENERATED_FACTORY_SUFFIX = "Factory";
+    private static final ConcurrentMap<Class, ComponentFactory> sFactories = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Class, Boolean> sValidatedClasses = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Class, Integer> sSlots = new ConcurrentHashMap<>();
+    private static final AtomicInteger sNextSlot = new AtomicInteger();
+
+    private ComponentRegistry() {
+    }
+
+    /**
+     * Register validated component class with factory that is able to create it.
+     */
+    public static <T> void register(Class<T> componentClass, ComponentFactory<T> componentFactory) {
+        if (componentClass == null || componentFactory == null) {
+            throw new IllegalArgumentException("Component class or factory is not provided");
+        }
+        sFactories.put(componentClass, componentFactory);
+        sValidatedClasses.put(componentClass, Boolean.TRUE);
+    }
+
+    /**
+     * @return factory registered for component class or null if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ComponentFactory<T> getFactory(Class<T> componentClass) {
+        return sFactories.get(componentClass);
+    }
+
+    /**
+     * Same as {@link #getFactory(Class)}, but factory generated for {@link knight704.ufinjector.annotations.GenerateFactory} component
+     * is loaded if it hasn't registered itself yet, i.e when component is known only by name.
+     *
+     * @return factory of component or null if there is none.
+     */
+    public static <T> ComponentFactory<T> findFactory(Class<T> componentClass) {
+        ComponentFactory<T> factory = getFactory(componentClass);
+        if (factory == null) {
+            String name = componentClass.getName();
+            int packageEnd = name.lastIndexOf('.');
+            String factoryName = name.substring(0, packageEnd + 1) + name.substring(packageEnd + 1).replace('$', '_') + GENERATED_FACTORY_SUFFIX;
+            try {
+                Class.forName(factoryName, true, componentClass.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                return null;
+            }
+            factory = getFactory(componentClass);
+        }
+        return factory;
+    }
+
+    /**
+     * @return slot of component class, it is assigned on first call and stays the same for lifetime of process.
+     */
+    public static int slotOf(Class componentClass) {
+        if (componentClass == null) {
+            throw new IllegalArgumentException("Component class is not provided");
+        }
+        Integer slot = sSlots.get(componentClass);
+        if (slot == null) {
+            Integer assigned = sNextSlot.getAndIncrement();
+            slot = sSlots.putIfAbsent(componentClass, assigned);
+            if (slot == null) {
+                slot = assigned;
+            }
+        }
+        return slot;
+    }
+
+    /**
+     * @return slot of component class or -1 if it wasn't assigned.
+     */
+    static int findSlot(Class componentClass) {
+        Integer slot = sSlots.get(componentClass);
+        return slot != null ? slot : -1;
+    }
+
+    /**
+     * @return true if class is registered or annotated with {@link Component} or {@link Subcomponent}.
+     */
+    public static boolean isDaggerComponent(Class componentClass) {
+        Boolean valid = sValidatedClasses.get(componentClass);
+        if (valid == null) {
+            valid = (componentClass.getAnnotation(Component.class) != null)
+                    || (componentClass.getAnnotation(Subcomponent.class) != null);
+            sValidatedClasses.putIfAbsent(componentClass, valid);
+        }
+        return valid;
+    }
+}
@@ -0,0 +1,133 @@
+package knight704.ufinjector;
+
+/**
+ * Snapshot of statistics collected by {@link CacheStats} for single component class.
+ */
+public class ComponentStats {
+    /**
+     * Number of buckets in creation latency histogram. Bucket 0 counts creations faster than 1us, bucket {@code i} counts creations
+     * that took [2^(i-1), 2^i) microseconds, the last bucket counts everything slower.
+     */
+    public static final int HISTOGRAM_BUCKETS = 20;
+
+    private final Class mComponentClass;
+    private final long mHitCount;
+    private final long mMissCount;
+    private final long mCreatedCount;
+    private final long mTotalCreationNanos;
+    private final long[] mCreationHistogram;
+    private final long mLiveCount;
+    private final long mRetainedCount;
+    private final long mRevivedCount;
+    private final long mTotalRetainedNanos;
+    private final long mHeldCount;
+    private final long mReclaimedCount;
+    private final long[] mReleaseCounts;
+
+    ComponentStats(Class componentClass, long hitCount, long missCount, long createdCount, long totalCreationNanos, long[] creationHistogram,
+                   long liveCount, long retainedCount, long revivedCount, long totalRetainedNanos, long heldCount, long reclaimedCount,
+                   long[] releaseCounts) {
+        mComponentClass = componentClass;
+        mHitCount = hitCount;
+        mMissCount = missCount;
+        mCreatedCount = createdCount;
+        mTotalCreationNanos = totalCreationNanos;
+        mCreationHistogram = creationHistogram;
+        mLiveCount = liveCount;
+        mRetainedCount = retainedCount;
+        mRevivedCount = revivedCount;
+        mTotalRetainedNanos = totalRetainedNanos;
+        mHeldCount = heldCount;
+        mReclaimedCount = reclaimedCount;
+        mReleaseCounts = releaseCounts;
+    }
+
+    static int histogramBucket(long durationNanos) {
+        int bucket = 64 - Long.numberOfLeadingZeros(durationNanos / 1000);
+        return Math.min(bucket, HISTOGRAM_BUCKETS - 1);
+    }
+
+    public Class getComponentClass() {
+        return mComponentClass;
+    }
+
+    /**
+     * @return number of requests served from cache, including revived retained components.
+     */
+    public long getHitCount() {
+        return mHitCount;
+    }
+
+    public long getMissCount() {
+        return mMissCount;
+    }
+
+    public long getCreatedCount() {
+        return mCreatedCount;
+    }
+
+    public long getTotalCreationNanos() {
+        return mTotalCreationNanos;
+    }
+
+    /**
+     * @return copy of creation latency histogram, see {@link #HISTOGRAM_BUCKETS}.
+     */
+    public long[] getCreationHistogram() {
+        return mCreationHistogram.clone();
+    }
+
+    /**
+     * @return number of components of this class in cache at the moment of snapshot.
+     */
+    public long getLiveCount() {
+        return mLiveCount;
+    }
+
+    public long getRetainedCount() {
+        return mRetainedCount;
+    }
+
+    public long getRevivedCount() {
+        return mRevivedCount;
+    }
+
+    /**
+     * @return total time components were retained before being revived or released.
+     */
+    public long getTotalRetainedNanos() {
+        return mTotalRetainedNanos;
+    }
+
+    /**
+     * @return number of components kept for grace period after their owner released them, see {@link InjectRequest#retainFor(long, java.util.concurrent.TimeUnit)}.
+     */
+    public long getHeldCount() {
+        return mHeldCount;
+    }
+
+    /**
+     * @return number of held components that were requested again before grace period ended (also counted as hits).
+     */
+    public long getReclaimedCount() {
+        return mReclaimedCount;
+    }
+
+    /**
+     * @return share of held components that were reclaimed, 0 if nothing was held.
+     */
+    public double getGraceHitRate() {
+        return mHeldCount > 0 ? (double) mReclaimedCount / mHeldCount : 0;
+    }
+
+    public long getReleaseCount(ReleaseReason reason) {
+        return mReleaseCounts[reason.ordinal()];
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s{hits=%d, misses=%d, created=%d, live=%d, retained=%d, revived=%d, held=%d, reclaimed=%d}",
+                mComponentClass.getSimpleName(), mHitCount, mMissCount, mCreatedCount, mLiveCount, mRetainedCount, mRevivedCount, mHeldCount,
+                mReclaimedCount);
+    }
+}
@@ -0,0 +1,31 @@
+package knight704.ufinjector;
+
+/**
+ * Receives trace sections around cache lookups, component creation and releases, so time spent in injector is attributed to specific
+ * components in traces, see {@link CoreInjector#setTracer(ComponentTracer)}. {@link ChromeTraceWriter} writes sections to JSON trace file
+ * on JVM, SystraceTracer of injector module emits them to systrace/Perfetto on device.
+ * <p>
+ * Sections are strictly nested per thread, every {@link #beginSection(String, Class, Object)} is followed by {@link #endSection()} on the same thread.
+ */
+public interface ComponentTracer {
+    /**
+     * Component is got from cache (includes its creation when it is not cached).
+     */
+    String LOOKUP = "get";
+    /**
+     * {@link ComponentFactory#create()} is running.
+     */
+    String CREATE = "create";
+    /**
+     * Component is removed from cache.
+     */
+    String RELEASE = "release";
+
+    /**
+     * @param action one of {@link #LOOKUP}, {@link #CREATE} or {@link #RELEASE}.
+     * @param key    key of component, null for default one.
+     */
+    void beginSection(String action, Class componentClass, Object key);
+
+    void endSection();
+}
@@ -0,0 +1,8 @@
+package knight704.ufinjector;
+
+/**
+ * Calculates weight of retained component, which is used to limit amount of components kept in cache while nobody uses them.
+ */
+public interface ComponentWeigher {
+    int weigh(Class componentClass, Object component);
+}
@@ -0,0 +1,764 @@
+package knight704.ufinjector;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import knight704.ufinjector.releasers.ComponentReleaser;
+
+/**
+ * Cache of dagger components that doesn't depend on Android, so it can be used on plain JVM (i.e per-request graphs of backend service)
+ * with releasers from {@link knight704.ufinjector.releasers}. Android applications use Injector singleton built on top of it.
+ * <p>
+ * Cache is thread-safe: cached components are read without locking and only one {@link ComponentFactory#create()} call is in flight
+ * for the same class and key, other callers wait for its result. All components are kept in single flat index, see {@link ComponentKey}.
+ * <p>
+ * Components retained on config change stay in cache until requested again. Amount of them can be limited with
+ * {@link #setRetainedLimit(int, ComponentWeigher)} and they are dropped under memory pressure, see {@link #trim(float)}.
+ * Components released with grace period are held in cache in the same way until the period ends, see {@link GraceComponents}.
+ * <p>
+ * Component may be attached to parent one (i.e subcomponent to component it is created from), then it is released together with parent.
+ * <p>
+ * Component shared by several owners is reference counted, it is released once the last owner lets it go, see {@link #acquire(Class, Object)}.
+ * <p>
+ * Components may be released in bulk by tag of their requests or by prefix of their String keys (i.e all graphs of user session), matches
+ * are found in {@link TagIndex} without scanning the cache.
+ * <p>
+ * Components with default key created by {@link SlottedComponentFactory} (i.e generated one) are also mirrored in {@link SlotTable},
+ * so their hits are a single array read without hashing.
+ */
+public class CoreInjector implements ComponentCache {
+    private ConcurrentMap<Object, Object> mComponents = new ConcurrentHashMap<>();
+    private RetainedComponents mRetainedComponents = new RetainedComponents();
+    private ScopeTree mScopeTree = new ScopeTree();
+    private TagIndex mTagIndex = new TagIndex();
+    private ConcurrentMap<Object, ComponentReference> mReferences = new ConcurrentHashMap<>();
+    private GraceComponents mGraceComponents = new GraceComponents(new GraceComponents.Callback() {
+        @Override
+        public void onExpired(List<RetainedComponent> expired) {
+            expire(expired);
+        }
+    });
+    private TeardownQueue mTeardownQueue = new TeardownQueue();
+    private final SlotTable mSlotTable = new SlotTable();
+    private final List<ComponentCacheListener> mListeners = new ArrayList<>();
+    private volatile ComponentCacheListener mListener;
+    private volatile ComponentTracer mTracer;
+    private volatile CreationBudget mCreationBudget;
+
+    /**
+     * Declare components that should be created eagerly on background threads, i.e in Application.onCreate() or on service start.
+     */
+    public PrewarmPlan prewarm() {
+        return new PrewarmPlan(this);
+    }
+
+    /**
+     * @return component mirrored in slot, see {@link SlotTable}.
+     */
+    Object getSlotted(int slot) {
+        return mSlotTable.get(slot);
+    }
+
+    /**
+     * @return number of cache entries of component class, including components being created and retained ones.
+     */
+    int getCachedCount(Class componentClass) {
+        int count = 0;
+        for (Object cacheKey : mComponents.keySet()) {
+            if (cacheKey == componentClass || cacheKey instanceof ComponentKey && ((ComponentKey) cacheKey).componentClass == componentClass) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    boolean isCached(Class componentClass, Object key) {
+        return mComponents.containsKey(ComponentKey.of(componentClass, key));
+    }
+
+    int getReferenceCount(Class componentClass, Object key) {
+        ComponentReference reference = mReferences.get(ComponentKey.of(componentClass, key));
+        return reference != null ? reference.getCount() : 0;
+    }
+
+    int getIndexedCount() {
+        return mTagIndex.size();
+    }
+
+    int getHeldCount() {
+        return mGraceComponents.size();
+    }
+
+    void expireHeld(long nowNanos) {
+        expire(mGraceComponents.expire(nowNanos));
+    }
+
+    ConcurrentMap<Object, Object> getComponents() {
+        return mComponents;
+    }
+
+    int getRetainedWeight() {
+        return mRetainedComponents.getWeight();
+    }
+
+    /**
+     * Limit number of retained components, which are not used by anyone at the moment. Least recently retained ones are evicted first.
+     */
+    public void setRetainedLimit(int maxCount) {
+        setRetainedLimit(maxCount, null);
+    }
+
+    /**
+     * Limit total weight of retained components, which are not used by anyone at the moment. Least recently retained ones are evicted first.
+     *
+     * @param maxWeight max total weight of retained components.
+     * @param weigher   calculates weight of each component, if null every component weighs 1.
+     */
+    public void setRetainedLimit(int maxWeight, ComponentWeigher weigher) {
+        mRetainedComponents.setLimit(maxWeight, weigher);
+        evict(mRetainedComponents.trim());
+    }
+
+    /**
+     * Drop components held for grace period and evict eldest retained components until their total weight is within provided
+     * fraction of current one (i.e 0 drops all of them) under memory pressure. Components that are in use are never dropped.
+     */
+    public void trim(float retainedFraction) {
+        evict(mGraceComponents.clear());
+        evict(mRetainedComponents.trimTo((int) (mRetainedComponents.getWeight() * retainedFraction)));
+    }
+
+    /**
+     * Run {@link Disposable#dispose()} of released components on executor in batches instead of releasing thread, i.e IdleExecutor on Android
+     * to keep teardown off lifecycle callbacks. Components are removed from cache right away anyway. Pass null to dispose immediately (default).
+     */
+    public void setTeardownExecutor(Executor executor) {
+        mTeardownQueue.setExecutor(executor);
+    }
+
+    /**
+     * Add listener of cache events, i.e {@link CacheStats}.
+     */
+    public synchronized void addCacheListener(ComponentCacheListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener is not provided");
+        }
+        mListeners.add(listener);
+        mListener = CacheListeners.of(mListeners.toArray(new ComponentCacheListener[mListeners.size()]));
+    }
+
+    public synchronized void removeCacheListener(ComponentCacheListener listener) {
+        if (mListeners.remove(listener)) {
+            mListener = CacheListeners.of(mListeners.toArray(new ComponentCacheListener[mListeners.size()]));
+        }
+    }
+
+    /**
+     * Emit trace sections around lookups, creation and releases of components, i.e {@link ChromeTraceWriter}. Pass null to stop tracing (default),
+     * nothing is traced or allocated then.
+     */
+    public void setTracer(ComponentTracer tracer) {
+        mTracer = tracer;
+    }
+
+    /**
+     * Time creation of components on thread of budget and penalize ones that are over it, see {@link CreationBudget}. Pass null to stop
+     * timing (default), requests cost the same as without budget then.
+     */
+    public void setCreationBudget(CreationBudget budget) {
+        mCreationBudget = budget;
+    }
+
+    @Override
+    public <T> T getOrCreate(Class<T> componentClass, Object key, ComponentFactory<T> componentFactory) {
+        return get(componentClass, key, ComponentKey.of(componentClass, key), componentFactory);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getOrCreate(Class<T> componentClass, ComponentFactory<T> componentFactory) {
+        if (!(componentFactory instanceof SlottedComponentFactory) || mTracer != null) {
+            return get(componentClass, null, componentClass, componentFactory);
+        }
+        int slot = ((SlottedComponentFactory) componentFactory).getSlot();
+        Object component = mSlotTable.get(slot);
+        if (component != null) {
+            ComponentCacheListener listener = mListener;
+            if (listener != null) {
+                listener.onHit(componentClass, null);
+            }
+            return (T) component;
+        }
+        T created = get(componentClass, null, componentClass, componentFactory);
+        mSlotTable.fill(slot, mComponents, componentClass, created);
+        return created;
+    }
+
+    private <T> T get(Class<T> componentClass, Object key, Object cacheKey, ComponentFactory<T> componentFactory) {
+        ComponentTracer tracer = mTracer;
+        if (tracer == null) {
+            return lookup(componentClass, key, cacheKey, componentFactory);
+        }
+        tracer.beginSection(ComponentTracer.LOOKUP, componentClass, key);
+        try {
+            return lookup(componentClass, key, cacheKey, componentFactory);
+        } finally {
+            tracer.endSection();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T lookup(Class<T> componentClass, Object key, Object cacheKey, ComponentFactory<T> componentFactory) {
+        Object cached = mComponents.get(cacheKey);
+        if (cached != null && !(cached instanceof PendingComponent) && !(cached instanceof RetainedComponent)) {
+            ComponentCacheListener listener = mListener;
+            if (listener != null) {
+                listener.onHit(componentClass, key);
+            }
+            return (T) cached;
+        }
+        return resolve(componentClass, key, cacheKey, componentFactory);
+    }
+
+    @Override
+    public <T> Future<T> getOrCreateAsync(Class<T> componentClass, Object key, ComponentFactory<T> componentFactory, Executor executor) {
+        return getAsync(componentClass, key, ComponentKey.of(componentClass, key), componentFactory, executor);
+    }
+
+    @Override
+    public <T> Future<T> getOrCreateAsync(Class<T> componentClass, ComponentFactory<T> componentFactory, Executor executor) {
+        return getAsync(componentClass, null, componentClass, componentFactory, executor);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Future<T> getAsync(Class<T> componentClass, Object key, Object cacheKey, ComponentFactory<T> componentFactory, Executor executor) {
+        PendingComponent<T> pending = null;
+        while (true) {
+            Object cached = mComponents.get(cacheKey);
+            if (cached == null) {
+                if (pending == null) {
+                    pending = new PendingComponent<>(mComponents, cacheKey, componentClass, key, componentFactory, mListener, mTracer, mCreationBudget, mTeardownQueue,
+                            mTagIndex);
+                }
+                if (mComponents.putIfAbsent(cacheKey, pending) == null) {
+                    indexKey(cacheKey);
+                    notifyMiss(componentClass, key);
+                    try {
+                        executor.execute(pending);
+                    } catch (RuntimeException e) {
+                        pending.cancel(false);
+                        throw e;
+                    }
+                    return pending;
+                }
+            } else if (cached instanceof PendingComponent) {
+                PendingComponent<T> inFlight = (PendingComponent<T>) cached;
+                notifyHit(componentClass, key);
+                if (inFlight.claimDeferred()) {
+                    // Placeholder of lazy component waits for its first get(), create it on executor of this request instead.
+                    try {
+                        executor.execute(inFlight);
+                    } catch (RuntimeException e) {
+                        inFlight.defer();
+                        throw e;
+                    }
+                }
+                return inFlight;
+            } else {
+                return PendingComponent.completed(resolve(componentClass, key, cacheKey, componentFactory));
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T resolve(Class<T> componentClass, Object key, Object cacheKey, ComponentFactory<T> componentFactory) {
+        PendingComponent<T> pending = null;
+        while (true) {
+            Object cached = mComponents.get(cacheKey);
+            if (cached == null) {
+                if (pending == null) {
+                    pending = new PendingComponent<>(mComponents, cacheKey, componentClass, key, componentFactory, mListener, mTracer, mCreationBudget, mTeardownQueue,
+                            mTagIndex);
+                }
+                if (mComponents.putIfAbsent(cacheKey, pending) == null) {
+                    cached = pending;
+                    indexKey(cacheKey);
+                    notifyMiss(componentClass, key);
+                } else {
+                    continue;
+                }
+            }
+            if (cached instanceof RetainedComponent) {
+                RetainedComponent retained = (RetainedComponent) cached;
+                if (mComponents.replace(cacheKey, retained, retained.component)) {
+                    ComponentCacheListener listener = mListener;
+                    if (retained.isHeld()) {
+                        mGraceComponents.remove(retained);
+                        if (listener != null) {
+                            listener.onReclaimed(componentClass, key, System.nanoTime() - retained.retainedAtNanos);
+                        }
+                    } else {
+                        mRetainedComponents.remove(retained);
+                        if (listener != null) {
+                            listener.onRevived(componentClass, key, System.nanoTime() - retained.retainedAtNanos);
+                        }
+                    }
+                    return (T) retained.component;
+                }
+            } else if (cached instanceof PendingComponent) {
+                PendingComponent<T> inFlight = (PendingComponent<T>) cached;
+                if (inFlight != pending) {
+                    notifyHit(componentClass, key);
+                }
+                if (inFlight.isCreatedBy(Thread.currentThread())) {
+                    throw new IllegalStateException(String.format("Recursive creation of component %s with key %s", componentClass.getName(), key));
+                }
+                // Component may be still waiting for executor of async request, create it right here in that case.
+                inFlight.run();
+                T component;
+                try {
+                    component = inFlight.await();
+                } catch (CancellationException e) {
+                    continue;
+                }
+                if (component == null) {
+                    throw new IllegalStateException(String.format("Factory of component %s returned null", componentClass.getName()));
+                }
+                return component;
+            } else {
+                notifyHit(componentClass, key);
+                return (T) cached;
+            }
+        }
+    }
+
+    /**
+     * Components with String key are indexed for {@link #releaseKeyPrefix(String)}.
+     */
+    private void indexKey(Object cacheKey) {
+        if (cacheKey instanceof ComponentKey && ((ComponentKey) cacheKey).key instanceof String) {
+            mTagIndex.addKey((ComponentKey) cacheKey);
+            // Component may be released before it was indexed, forget it then.
+            if (!mComponents.containsKey(cacheKey)) {
+                mTagIndex.remove(cacheKey);
+            }
+        }
+    }
+
+    private void notifyHit(Class componentClass, Object key) {
+        ComponentCacheListener listener = mListener;
+        if (listener != null) {
+            listener.onHit(componentClass, key);
+        }
+    }
+
+    private void notifyMiss(Class componentClass, Object key) {
+        ComponentCacheListener listener = mListener;
+        if (listener != null) {
+            listener.onMiss(componentClass, key);
+        }
+    }
+
+    @Override
+    public void retain(Class componentClass, Object key) {
+        retain(componentClass, key, ComponentKey.of(componentClass, key));
+    }
+
+    @Override
+    public void retain(Class componentClass) {
+        retain(componentClass, null, componentClass);
+    }
+
+    private void retain(Class componentClass, Object key, Object cacheKey) {
+        Object component = mComponents.get(cacheKey);
+        if (component instanceof PendingComponent) {
+            // Lazy component that was never requested has nothing to retain, its slot is released instead of staying without owner.
+            if (((PendingComponent) component).cancelDeferred()) {
+                mTagIndex.remove(cacheKey);
+                releaseChildren(cacheKey, ReleaseReason.CONFIG_CHANGE);
+            }
+            return;
+        }
+        if (component == null || component instanceof RetainedComponent) {
+            return;
+        }
+        int weight = mRetainedComponents.getWeigher().weigh(componentClass, component);
+        RetainedComponent entry = new RetainedComponent(mComponents, cacheKey, componentClass, key, component, weight);
+        boolean added;
+        int slot = slotOf(cacheKey);
+        if (slot < 0) {
+            added = mRetainedComponents.add(entry);
+        } else {
+            synchronized (mSlotTable) {
+                mSlotTable.clear(slot);
+                added = mRetainedComponents.add(entry);
+            }
+        }
+        if (added) {
+            ComponentCacheListener listener = mListener;
+            if (listener != null) {
+                listener.onRetained(componentClass, key);
+            }
+            evict(mRetainedComponents.trim());
+        }
+    }
+
+    private void evict(List<RetainedComponent> evicted) {
+        for (int i = 0; i < evicted.size(); i++) {
+            drop(evicted.get(i), ReleaseReason.EVICTED);
+        }
+    }
+
+    /**
+     * Held components whose grace period ended are released with the reason their owner released them.
+     */
+    private void expire(List<RetainedComponent> expired) {
+        for (int i = 0; i < expired.size(); i++) {
+            RetainedComponent entry = expired.get(i);
+            drop(entry, entry.releaseReason);
+        }
+    }
+
+    private void drop(RetainedComponent entry, ReleaseReason reason) {
+        ComponentTracer tracer = mTracer;
+        if (tracer != null) {
+            tracer.beginSection(ComponentTracer.RELEASE, entry.componentClass, entry.key);
+        }
+        try {
+            mTagIndex.remove(entry.cacheKey);
+            dropReferences(entry.cacheKey);
+            ComponentCacheListener listener = mListener;
+            if (listener != null) {
+                listener.onReleased(entry.componentClass, entry.key, reason, System.nanoTime() - entry.retainedAtNanos);
+            }
+            mTeardownQueue.enqueue(entry.component);
+            releaseChildren(entry.cacheKey, reason);
+        } finally {
+            if (tracer != null) {
+                tracer.endSection();
+            }
+        }
+    }
+
+    /**
+     * Make component a child of parent one, so it is released (or evicted) together with parent. Components should be cached already.
+     *
+     * @param key       key of component, null for default one.
+     * @param parentKey key of parent component, null for default one.
+     * @throws IllegalStateException if parent component isn't cached.
+     */
+    @Override
+    public void attach(Class componentClass, Object key, Class parentClass, Object parentKey) {
+        Object cacheKey = ComponentKey.of(componentClass, key);
+        Object parentCacheKey = ComponentKey.of(parentClass, parentKey);
+        if (!mComponents.containsKey(parentCacheKey)) {
+            throw new IllegalStateException(String.format("Parent component %s with key %s isn't cached", parentClass.getName(), parentKey));
+        }
+        mScopeTree.attach(cacheKey, componentClass, key, parentCacheKey, parentClass, parentKey);
+        // Either component was released meanwhile or release may have missed the new relation, forget it in both cases.
+        if (!mComponents.containsKey(cacheKey)) {
+            releaseChildren(cacheKey, ReleaseReason.EXPLICIT);
+        }
+        if (!mComponents.containsKey(parentCacheKey)) {
+            releaseChildren(parentCacheKey, ReleaseReason.EXPLICIT);
+        }
+    }
+
+    /**
+     * Tag cached component, so it is released by {@link #releaseTag(Object)} together with other components of the tag.
+     *
+     * @param key key of component, null for default one.
+     * @param tag any object with proper equals and hashCode, i.e id of user session.
+     */
+    @Override
+    public void tag(Class componentClass, Object key, Object tag) {
+        if (tag == null) {
+            throw new IllegalArgumentException("Tag is not provided");
+        }
+        Object cacheKey = ComponentKey.of(componentClass, key);
+        mTagIndex.tag(cacheKey, tag);
+        // Component may be released meanwhile and release may have missed the new tag, forget it then.
+        if (!mComponents.containsKey(cacheKey)) {
+            mTagIndex.remove(cacheKey);
+        }
+    }
+
+    /**
+     * Release every component tagged with provided tag, see {@link InjectRequest#tag(Object)}. Takes time proportional to number of them.
+     */
+    public void releaseTag(Object tag) {
+        releaseTag(tag, ReleaseReason.EXPLICIT);
+    }
+
+    public void releaseTag(Object tag, ReleaseReason reason) {
+        releaseAll(mTagIndex.removeTag(tag), reason);
+    }
+
+    /**
+     * Release every component whose String key starts with provided prefix (i.e "session42/"), keys are kept sorted, so it takes time
+     * proportional to number of matches rather than number of cached components.
+     */
+    public void releaseKeyPrefix(String prefix) {
+        releaseKeyPrefix(prefix, ReleaseReason.EXPLICIT);
+    }
+
+    public void releaseKeyPrefix(String prefix, ReleaseReason reason) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("Prefix is not provided");
+        }
+        releaseAll(mTagIndex.removeKeyPrefix(prefix), reason);
+    }
+
+    private void releaseAll(Collection<Object> cacheKeys, ReleaseReason reason) {
+        for (Object cacheKey : cacheKeys) {
+            if (cacheKey instanceof ComponentKey) {
+                ComponentKey componentKey = (ComponentKey) cacheKey;
+                release(componentKey.componentClass, componentKey.key, cacheKey, reason);
+            } else {
+                release((Class) cacheKey, null, cacheKey, reason);
+            }
+        }
+    }
+
+    @Override
+    public ComponentReference acquire(Class componentClass, Object key) {
+        Object cacheKey = ComponentKey.of(componentClass, key);
+        ComponentReference created = null;
+        while (true) {
+            ComponentReference reference = mReferences.get(cacheKey);
+            if (reference == null) {
+                if (created == null) {
+                    created = new ComponentReference(cacheKey, componentClass, key);
+                }
+                if (mReferences.putIfAbsent(cacheKey, created) == null) {
+                    return created;
+                }
+            } else if (reference.acquire()) {
+                return reference;
+            } else {
+                // Last owner is releasing component right now, wait until it is gone (or retained) to take a new reference.
+                Thread.yield();
+            }
+        }
+    }
+
+    @Override
+    public void release(ComponentReference reference, ReleaseReason reason, boolean retain) {
+        if (!reference.release()) {
+            return;
+        }
+        try {
+            if (retain) {
+                retain(reference.componentClass, reference.key, reference.cacheKey);
+            } else {
+                release(reference.componentClass, reference.key, reference.cacheKey, reason);
+            }
+        } finally {
+            mReferences.remove(reference.cacheKey, reference);
+        }
+    }
+
+    /**
+     * Release component once grace period ends, it is handed out again if requested before that. Component is held in cache and can be
+     * dropped under memory pressure, see {@link #trim(float)}.
+     *
+     * @param reason reported once component is actually released.
+     */
+    @Override
+    public void releaseAfter(Class componentClass, Object key, ReleaseReason reason, long delay, TimeUnit unit) {
+        hold(componentClass, key, ComponentKey.of(componentClass, key), reason, unit.toNanos(delay));
+    }
+
+    @Override
+    public void releaseAfter(ComponentReference reference, ReleaseReason reason, long delay, TimeUnit unit) {
+        if (!reference.release()) {
+            return;
+        }
+        try {
+            hold(reference.componentClass, reference.key, reference.cacheKey, reason, unit.toNanos(delay));
+        } finally {
+            mReferences.remove(reference.cacheKey, reference);
+        }
+    }
+
+    private void hold(Class componentClass, Object key, Object cacheKey, ReleaseReason reason, long graceNanos) {
+        Object component = mComponents.get(cacheKey);
+        if (component == null || component instanceof RetainedComponent) {
+            return;
+        }
+        if (component instanceof PendingComponent || graceNanos <= 0) {
+            release(componentClass, key, cacheKey, reason);
+            return;
+        }
+        RetainedComponent entry = new RetainedComponent(mComponents, cacheKey, componentClass, key, component, reason, graceNanos);
+        boolean added;
+        int slot = slotOf(cacheKey);
+        if (slot < 0) {
+            added = mGraceComponents.add(entry);
+        } else {
+            synchronized (mSlotTable) {
+                mSlotTable.clear(slot);
+                added = mGraceComponents.add(entry);
+            }
+        }
+        if (added) {
+            ComponentCacheListener listener = mListener;
+            if (listener != null) {
+                listener.onHeld(componentClass, key);
+            }
+        }
+    }
+
+    @Override
+    public void release(Class componentClass, Object key) {
+        release(componentClass, key, ComponentKey.of(componentClass, key), ReleaseReason.EXPLICIT);
+    }
+
+    @Override
+    public void release(Class componentClass) {
+        release(componentClass, null, componentClass, ReleaseReason.EXPLICIT);
+    }
+
+    @Override
+    public void release(Class componentClass, Object key, ReleaseReason reason) {
+        release(componentClass, key, ComponentKey.of(componentClass, key), reason);
+    }
+
+    @Override
+    public void release(Class componentClass, ReleaseReason reason) {
+        release(componentClass, null, componentClass, reason);
+    }
+
+    private void release(Class componentClass, Object key, Object cacheKey, ReleaseReason reason) {
+        ComponentTracer tracer = mTracer;
+        if (tracer == null) {
+            remove(componentClass, key, cacheKey, reason);
+            return;
+        }
+        tracer.beginSection(ComponentTracer.RELEASE, componentClass, key);
+        try {
+            remove(componentClass, key, cacheKey, reason);
+        } finally {
+            tracer.endSection();
+        }
+    }
+
+    private void remove(Class componentClass, Object key, Object cacheKey, ReleaseReason reason) {
+        // Dead reference stays until component is gone, so new owners wait instead of getting component that is being released.
+        ComponentReference reference = killReferences(cacheKey);
+        Object removed = null;
+        try {
+            while (true) {
+                Object cached = mComponents.get(cacheKey);
+                if (cached == null) {
+                    break;
+                }
+                if (cached instanceof PendingComponent) {
+                    ((PendingComponent) cached).markReleased(reason);
+                }
+                if (removeCached(cacheKey, cached)) {
+                    removed = cached;
+                    break;
+                }
+            }
+        } finally {
+            mTagIndex.remove(cacheKey);
+            if (reference != null) {
+                mReferences.remove(cacheKey, reference);
+            }
+        }
+        // Acquirers wait only until component leaves cache, not through teardown and listeners that may request it again.
+        if (removed != null) {
+            notifyReleased(componentClass, key, reason, removed);
+            releaseChildren(cacheKey, reason);
+        }
+    }
+
+    private boolean removeCached(Object cacheKey, Object cached) {
+        int slot = slotOf(cacheKey);
+        if (slot < 0) {
+            return mComponents.remove(cacheKey, cached);
+        }
+        synchronized (mSlotTable) {
+            mSlotTable.clear(slot);
+            return mComponents.remove(cacheKey, cached);
+        }
+    }
+
+    /**
+     * @return slot of component cached under default key, -1 if component has no slot, see {@link SlotTable}.
+     */
+    private static int slotOf(Object cacheKey) {
+        return cacheKey instanceof Class ? ComponentRegistry.findSlot((Class) cacheKey) : -1;
+    }
+
+    /**
+     * Component is released regardless of its owners, so references they hold are dead.
+     */
+    private void dropReferences(Object cacheKey) {
+        ComponentReference reference = killReferences(cacheKey);
+        if (reference != null) {
+            mReferences.remove(cacheKey, reference);
+        }
+    }
+
+    private ComponentReference killReferences(Object cacheKey) {
+        ComponentReference reference = mReferences.get(cacheKey);
+        if (reference != null) {
+            // Killed before removal, so nobody acquires it in between.
+            reference.kill();
+        }
+        return reference;
+    }
+
+    private void releaseChildren(Object cacheKey, ReleaseReason reason) {
+        for (ScopeTree.Node child : mScopeTree.remove(cacheKey)) {
+            release(child.componentClass, child.key, child.cacheKey, reason);
+        }
+    }
+
+    private void notifyReleased(Class componentClass, Object key, ReleaseReason reason, Object removed) {
+        long retainedNanos = 0;
+        Object component = removed;
+        if (removed instanceof RetainedComponent) {
+            RetainedComponent retained = (RetainedComponent) removed;
+            if (retained.isHeld()) {
+                mGraceComponents.remove(retained);
+            } else {
+                mRetainedComponents.remove(retained);
+            }
+            retainedNanos = System.nanoTime() - retained.retainedAtNanos;
+            component = retained.component;
+        } else if (removed instanceof PendingComponent) {
+            // Reported and disposed by component itself once it is created.
+            return;
+        }
+        ComponentCacheListener listener = mListener;
+        if (listener != null) {
+            listener.onReleased(componentClass, key, reason, retainedNanos);
+        }
+        mTeardownQueue.enqueue(component);
+    }
+
+    /**
+     * Start request of component that is released according to provided releaser, i.e
+     * {@link knight704.ufinjector.releasers.ScopeComponentReleaser} of served request.
+     */
+    public InjectRequest request(ComponentReleaser releaser) {
+        return new InjectRequest(this, releaser);
+    }
+
+    /**
+     * Start request of several components that are created in parallel and released together according to provided releaser.
+     */
+    public BatchRequest requestBatch(ComponentReleaser releaser) {
+        return new BatchRequest(this, releaser);
+    }
+}
@@ -0,0 +1,217 @@
+package knight704.ufinjector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Policy that times {@link ComponentFactory#create()} calls made on watched thread (i.e main one) and penalizes ones that take longer
+ * than budget, in the spirit of StrictMode, see {@link CoreInjector#setCreationBudget(CreationBudget)}:
+ * <pre>
+ * injector.setCreationBudget(new CreationBudget(Looper.getMainLooper().getThread(), 16, TimeUnit.MILLISECONDS)
+ *         .penaltyLog()
+ *         .penaltyThrow()); // i.e in CI or debug builds
+ * </pre>
+ * While creation is over budget, stack of creating thread is sampled by single daemon thread, so violation points at the slow part of graph.
+ * Creations on other threads (i.e async and prewarm ones) are not timed. Nothing is timed or sampled while no budget is set.
+ */
+public class CreationBudget {
+    private static final Logger LOGGER = Logger.getLogger("ufinjector");
+    private static final long MIN_SAMPLE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long KEEP_ALIVE_SECONDS = 10;
+    private static final int MAX_SAMPLES = 256;
+
+    /**
+     * Called on creating thread right after budget is exceeded.
+     */
+    public interface Listener {
+        void onViolation(CreationBudgetViolation violation);
+    }
+
+    private final Thread mThread;
+    private final long mBudgetNanos;
+    private final AtomicInteger mSamplingCount = new AtomicInteger();
+    private long mSampleIntervalNanos;
+    private boolean mPenaltyLog;
+    private boolean mPenaltyThrow;
+    private Listener mListener;
+    private ScheduledThreadPoolExecutor mSampler;
+
+    /**
+     * @param thread thread whose creations are timed, i.e main one.
+     */
+    public CreationBudget(Thread thread, long budget, TimeUnit unit) {
+        if (thread == null || budget <= 0 || unit == null) {
+            throw new IllegalArgumentException("Thread and positive budget should be provided");
+        }
+        mThread = thread;
+        mBudgetNanos = unit.toNanos(budget);
+        mSampleIntervalNanos = Math.max(mBudgetNanos / 4, MIN_SAMPLE_INTERVAL_NANOS);
+    }
+
+    /**
+     * Log violation as warning of "ufinjector" logger.
+     */
+    public CreationBudget penaltyLog() {
+        mPenaltyLog = true;
+        return this;
+    }
+
+    /**
+     * Throw violation from creation, so component is not created and build fails. Meant for CI and debug builds.
+     */
+    public CreationBudget penaltyThrow() {
+        mPenaltyThrow = true;
+        return this;
+    }
+
+    /**
+     * Report violation to listener, i.e to crash reporting of dogfood builds.
+     */
+    public CreationBudget penaltyListener(Listener listener) {
+        mListener = listener;
+        return this;
+    }
+
+    /**
+     * How often stack of creating thread is sampled once half of budget is spent, quarter of budget by default.
+     */
+    public CreationBudget sampleEvery(long interval, TimeUnit unit) {
+        mSampleIntervalNanos = Math.max(unit.toNanos(interval), MIN_SAMPLE_INTERVAL_NANOS);
+        return this;
+    }
+
+    public long getBudgetNanos() {
+        return mBudgetNanos;
+    }
+
+    /**
+     * Start timing creation of component.
+     *
+     * @return running timer or null if creation is made on thread that is not watched.
+     */
+    Timer start(Class componentClass, Object key) {
+        Thread thread = Thread.currentThread();
+        if (thread != mThread) {
+            return null;
+        }
+        Timer timer = new Timer(componentClass, key, thread);
+        timer.mSampling = sampler().scheduleAtFixedRate(timer, mBudgetNanos / 2, mSampleIntervalNanos, TimeUnit.NANOSECONDS);
+        mSamplingCount.incrementAndGet();
+        return timer;
+    }
+
+    int getSamplingCount() {
+        return mSamplingCount.get();
+    }
+
+    private synchronized ScheduledThreadPoolExecutor sampler() {
+        if (mSampler == null) {
+            mSampler = new ScheduledThreadPoolExecutor(1, new SamplerThreadFactory());
+            mSampler.setKeepAliveTime(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+            mSampler.allowCoreThreadTimeOut(true);
+        }
+        return mSampler;
+    }
+
+    private void penalize(CreationBudgetViolation violation) {
+        if (mPenaltyLog) {
+            LOGGER.log(Level.WARNING, violation.getMessage(), violation);
+        }
+        Listener listener = mListener;
+        if (listener != null) {
+            listener.onViolation(violation);
+        }
+        if (mPenaltyThrow) {
+            throw violation;
+        }
+    }
+
+    /**
+     * Samples stack of creating thread until creation is finished.
+     */
+    class Timer implements Runnable {
+        private final Class mComponentClass;
+        private final Object mKey;
+        private final Thread mCreatingThread;
+        private final List<StackTraceElement[]> mSamples = new ArrayList<>();
+        private ScheduledFuture<?> mSampling;
+
+        Timer(Class componentClass, Object key, Thread creatingThread) {
+            mComponentClass = componentClass;
+            mKey = key;
+            mCreatingThread = creatingThread;
+        }
+
+        @Override
+        public void run() {
+            StackTraceElement[] stack = mCreatingThread.getStackTrace();
+            synchronized (this) {
+                if (mSamples.size() < MAX_SAMPLES) {
+                    mSamples.add(stack);
+                }
+            }
+        }
+
+        /**
+         * Stop sampling once creation is over, whether factory returned or threw.
+         */
+        void cancel() {
+            mSampling.cancel(false);
+            mSamplingCount.decrementAndGet();
+        }
+
+        /**
+         * Should be called after {@link #cancel()} if component is created.
+         *
+         * @throws CreationBudgetViolation if creation is over budget and budget should throw.
+         */
+        void finish(long durationNanos) {
+            if (durationNanos <= mBudgetNanos) {
+                return;
+            }
+            StackTraceElement[] stack;
+            synchronized (this) {
+                stack = mostFrequent(mSamples);
+            }
+            penalize(new CreationBudgetViolation(mComponentClass, mKey, durationNanos, mBudgetNanos, stack));
+        }
+    }
+
+    /**
+     * @return stack that was sampled most often (the latest one of equally frequent), null if there are no samples.
+     */
+    static StackTraceElement[] mostFrequent(List<StackTraceElement[]> samples) {
+        StackTraceElement[] result = null;
+        int resultCount = 0;
+        for (int i = samples.size() - 1; i >= 0; i--) {
+            int count = 0;
+            for (int j = 0; j < samples.size(); j++) {
+                if (Arrays.equals(samples.get(i), samples.get(j))) {
+                    count++;
+                }
+            }
+            if (count > resultCount) {
+                result = samples.get(i);
+                resultCount = count;
+            }
+        }
+        return result;
+    }
+
+    private static class SamplerThreadFactory implements ThreadFactory {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "ufinjector-budget-sampler");
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
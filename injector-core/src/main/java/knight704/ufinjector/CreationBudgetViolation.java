@@ -0,0 +1,47 @@
+package knight704.ufinjector;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ComponentFactory#create()} call took longer than {@link CreationBudget} allows. Stack trace of violation is the stack creating thread
+ * was seen in most often while budget was exceeded (i.e module that is slow to construct), or stack at the end of creation if it wasn't sampled.
+ */
+public class CreationBudgetViolation extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final Class mComponentClass;
+    private final Object mKey;
+    private final long mDurationNanos;
+    private final long mBudgetNanos;
+
+    CreationBudgetViolation(Class componentClass, Object key, long durationNanos, long budgetNanos, StackTraceElement[] sampledStack) {
+        super(String.format("Creation of component %s with key %s took %d ms, budget is %d ms", componentClass.getName(), key,
+                TimeUnit.NANOSECONDS.toMillis(durationNanos), TimeUnit.NANOSECONDS.toMillis(budgetNanos)));
+        mComponentClass = componentClass;
+        mKey = key;
+        mDurationNanos = durationNanos;
+        mBudgetNanos = budgetNanos;
+        if (sampledStack != null) {
+            setStackTrace(sampledStack);
+        }
+    }
+
+    public Class getComponentClass() {
+        return mComponentClass;
+    }
+
+    /**
+     * @return key of component, null for default one.
+     */
+    public Object getKey() {
+        return mKey;
+    }
+
+    public long getDurationNanos() {
+        return mDurationNanos;
+    }
+
+    public long getBudgetNanos() {
+        return mBudgetNanos;
+    }
+}
@@ -0,0 +1,10 @@
+package knight704.ufinjector;
+
+/**
+ * Optional teardown hook of component. It is called once component is removed from cache for good (released or evicted, but not retained),
+ * on executor set with {@link CoreInjector#setTeardownExecutor(java.util.concurrent.Executor)}, so heavy cleanup (i.e closing database)
+ * doesn't run inside lifecycle callback.
+ */
+public interface Disposable {
+    void dispose();
+}
@@ -0,0 +1,185 @@
+package knight704.ufinjector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds components released with grace period (see {@link InjectRequest#retainFor(long, TimeUnit)}) and expires them with hashed timer wheel.
+ * Entry is put into bucket of the tick its period ends on, so only that bucket is scanned when tick comes instead of every held entry.
+ * Entry held longer than full wheel rotation is kept in its bucket until tick comes again.
+ * <p>
+ * Wheel is ticked by single daemon thread only while there are held entries, the thread is stopped once it is idle for a while.
+ * Expired entries are removed from cache and passed to {@link Callback} on that thread.
+ */
+class GraceComponents {
+    static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    interface Callback {
+        void onExpired(List<RetainedComponent> expired);
+    }
+
+    private final Callback mCallback;
+    private final List<List<RetainedComponent>> mBuckets = new ArrayList<>(WHEEL_SIZE);
+    private final long mOriginNanos = System.nanoTime();
+    private ScheduledExecutorService mTimer;
+    private ScheduledFuture<?> mNextTick;
+    private long mNextTickNanos;
+    private long mTick = -1;
+    private int mSize;
+
+    GraceComponents(Callback callback) {
+        mCallback = callback;
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            mBuckets.add(new ArrayList<RetainedComponent>(0));
+        }
+    }
+
+    /**
+     * Put held entry into cache instead of component, unless component was changed meanwhile.
+     */
+    synchronized boolean add(RetainedComponent entry) {
+        if (!entry.components.replace(entry.cacheKey, entry.component, entry)) {
+            return false;
+        }
+        // Bucket after the one deadline falls into, so entry is never expired early.
+        long tick = Math.max(tickOf(entry.expiresAtNanos) + 1, mTick + 1);
+        bucket(tick).add(entry);
+        mSize++;
+        scheduleTick(mOriginNanos + tick * TICK_NANOS);
+        return true;
+    }
+
+    synchronized void remove(RetainedComponent entry) {
+        if (bucket(tickOf(entry.expiresAtNanos) + 1).remove(entry)) {
+            mSize--;
+            return;
+        }
+        // Entry added after its deadline tick had passed is in one of later buckets.
+        for (List<RetainedComponent> bucket : mBuckets) {
+            if (bucket.remove(entry)) {
+                mSize--;
+                return;
+            }
+        }
+    }
+
+    synchronized int size() {
+        return mSize;
+    }
+
+    /**
+     * Remove entries whose grace period has ended from cache.
+     *
+     * @return entries removed from cache.
+     */
+    synchronized List<RetainedComponent> expire(long nowNanos) {
+        long nowTick = tickOf(nowNanos);
+        List<RetainedComponent> expired = Collections.emptyList();
+        if (mSize > 0) {
+            for (long tick = Math.max(mTick + 1, nowTick - WHEEL_MASK); tick <= nowTick; tick++) {
+                List<RetainedComponent> bucket = bucket(tick);
+                for (int i = bucket.size() - 1; i >= 0; i--) {
+                    RetainedComponent entry = bucket.get(i);
+                    if (entry.expiresAtNanos - nowNanos <= 0) {
+                        bucket.remove(i);
+                        mSize--;
+                        if (entry.components.remove(entry.cacheKey, entry)) {
+                            if (expired.isEmpty()) {
+                                expired = new ArrayList<>();
+                            }
+                            expired.add(entry);
+                        }
+                    }
+                }
+            }
+        }
+        mTick = Math.max(mTick, nowTick);
+        return expired;
+    }
+
+    /**
+     * Remove every held entry from cache regardless of its grace period (i.e under memory pressure).
+     *
+     * @return entries removed from cache.
+     */
+    synchronized List<RetainedComponent> clear() {
+        if (mSize == 0) {
+            return Collections.emptyList();
+        }
+        List<RetainedComponent> cleared = new ArrayList<>();
+        for (List<RetainedComponent> bucket : mBuckets) {
+            for (RetainedComponent entry : bucket) {
+                if (entry.components.remove(entry.cacheKey, entry)) {
+                    cleared.add(entry);
+                }
+            }
+            bucket.clear();
+        }
+        mSize = 0;
+        return cleared;
+    }
+
+    private void tick() {
+        List<RetainedComponent> expired;
+        synchronized (this) {
+            mNextTick = null;
+            expired = expire(System.nanoTime());
+            for (long tick = mTick + 1; mSize > 0 && tick <= mTick + WHEEL_SIZE; tick++) {
+                if (!bucket(tick).isEmpty()) {
+                    scheduleTick(mOriginNanos + tick * TICK_NANOS);
+                    break;
+                }
+            }
+        }
+        if (!expired.isEmpty()) {
+            mCallback.onExpired(expired);
+        }
+    }
+
+    private void scheduleTick(long atNanos) {
+        if (mNextTick != null) {
+            if (atNanos - mNextTickNanos >= 0) {
+                return;
+            }
+            mNextTick.cancel(false);
+        }
+        if (mTimer == null) {
+            ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, new GraceThreadFactory());
+            timer.setKeepAliveTime(1, TimeUnit.SECONDS);
+            timer.allowCoreThreadTimeOut(true);
+            mTimer = timer;
+        }
+        mNextTickNanos = atNanos;
+        mNextTick = mTimer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                tick();
+            }
+        }, Math.max(0, atNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    private List<RetainedComponent> bucket(long tick) {
+        return mBuckets.get((int) (tick & WHEEL_MASK));
+    }
+
+    private long tickOf(long nanos) {
+        return (nanos - mOriginNanos) / TICK_NANOS;
+    }
+
+    private static class GraceThreadFactory implements ThreadFactory {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "ufinjector-grace");
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package knight704.ufinjector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import dagger.Component;
+import dagger.Lazy;
+import dagger.Subcomponent;
+import knight704.ufinjector.releasers.ComponentReleaser;
+
+/**
+ * This class represents client-code intention to create or reuse existing Dagger component with support of auto-release according to lifecycle.
+ * Component is released according to lifecycle of releaser, i.e Activity, Fragment or View one on Android.
+ */
+public class InjectRequest implements ComponentReleaser.OnReleaseReasonListener {
+    private static final Executor DEFERRED = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            // Reserved component is created by the first caller that needs it.
+            if (command instanceof PendingComponent) {
+                ((PendingComponent) command).defer();
+            }
+        }
+    };
+    private ComponentCache mComponentCache;
+    private ComponentReleaser mReleaser;
+    private Class mComponentClass;
+    private boolean mRetainOnConfigChange;
+    private long mGraceNanos;
+    private boolean mAllowComponentDuplicates;
+    private Object mDuplicateKey;
+    private Class mParentClass;
+    private Object mParentKey;
+    private List<Object> mTags;
+    private LazyComponent mLazyComponent;
+    private ComponentReference mReference;
+
+    public InjectRequest(ComponentCache componentCache, ComponentReleaser releaser) {
+        mComponentCache = componentCache;
+        bindToLifecycle(releaser);
+    }
+
+    /**
+     * Request that is released by its owner instead of releaser, see {@link BatchRequest}.
+     */
+    InjectRequest(ComponentCache componentCache) {
+        mComponentCache = componentCache;
+    }
+
+    /**
+     * Keep track of component lifecycle according to releaser callback. Request itself is the release listener, so no extra objects are allocated.
+     * <p>
+     * Note, when you retain component across config changes, keep in mind that component instance will be stored in singleton cache, so be careful
+     * with items that you consider scope-singleton in that component, because they stay intact. It may produce undesired behavior
+     * (i.e component that has module with activity link inside may lead to memory leak of this activity).
+     */
+    private void bindToLifecycle(ComponentReleaser releaser) {
+        mReleaser = releaser;
+        releaser.onRegisterReleaser(this);
+    }
+
+    /**
+     * Called by releaser when component is no longer needed by its owner.
+     */
+    @Override
+    public void onRelease(boolean canRetain) {
+        onRelease(canRetain ? ReleaseReason.CONFIG_CHANGE : ReleaseReason.STOP);
+    }
+
+    /**
+     * Called by releaser when component is no longer needed by its owner, component is retained only on config change.
+     * Component shared with other owners is kept until the last of them releases it.
+     */
+    @Override
+    public void onRelease(ReleaseReason reason) {
+        boolean shouldRetain = reason == ReleaseReason.CONFIG_CHANGE && mRetainOnConfigChange;
+        if (mReference != null) {
+            ComponentReference reference = mReference;
+            mReference = null;
+            // Marked first, so lazy handle doesn't create component once its slot is released.
+            if (!shouldRetain && mLazyComponent != null) {
+                mLazyComponent.markReleased();
+            }
+            if (!shouldRetain && mGraceNanos > 0) {
+                mComponentCache.releaseAfter(reference, reason, mGraceNanos, TimeUnit.NANOSECONDS);
+            } else {
+                mComponentCache.release(reference, reason, shouldRetain);
+            }
+        }
+        if (mReleaser != null) {
+            mReleaser.onUnregisterReleaser();
+        }
+    }
+
+    /**
+     * Mark that component should be retained across config changes.
+     */
+    public InjectRequest retainOnConfigChange(boolean retainOnConfigChange) {
+        mRetainOnConfigChange = retainOnConfigChange;
+        return this;
+    }
+
+    /**
+     * Keep component for grace period after its owner is released (i.e activity is stopped or finished), so it is reused if the same
+     * component is requested again shortly (i.e user quickly navigates back) instead of being rebuilt. Component is released once period ends.
+     */
+    public InjectRequest retainFor(long duration, TimeUnit unit) {
+        if (duration < 0 || unit == null) {
+            throw new IllegalArgumentException("Grace period should be non-negative duration");
+        }
+        mGraceNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * Mark that while injecting we should find existing component by specific key. This allow to have different component graphs instances of the same type.
+     *
+     * @param key to identify component, any object with proper equals and hashCode (i.e id or enum), so there is no need to build strings.
+     */
+    public InjectRequest allowComponentDuplicates(Object key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key of component is not provided");
+        }
+        mAllowComponentDuplicates = true;
+        mDuplicateKey = key;
+        return this;
+    }
+
+    /**
+     * Declare parent component (with default key) of the one being built, i.e component subcomponent is created from.
+     * Releasing parent releases built component as well, so subgraph doesn't outlive its parent. Parent should be already built.
+     */
+    public InjectRequest parent(Class parentClass) {
+        return parent(parentClass, null);
+    }
+
+    /**
+     * Same as {@link #parent(Class)} for parent built with {@link #allowComponentDuplicates(Object)}.
+     */
+    public InjectRequest parent(Class parentClass, Object parentKey) {
+        if (parentClass == null) {
+            throw new IllegalArgumentException("Parent class is not provided");
+        }
+        mParentClass = parentClass;
+        mParentKey = parentKey;
+        return this;
+    }
+
+    /**
+     * Tag component being built (may be called several times for several tags), so it can be released together with other components
+     * of the tag, i.e {@link CoreInjector#releaseTag(Object)} on user logout.
+     *
+     * @param tag any object with proper equals and hashCode, i.e id of user session.
+     */
+    public InjectRequest tag(Object tag) {
+        if (tag == null) {
+            throw new IllegalArgumentException("Tag is not provided");
+        }
+        if (mTags == null) {
+            mTags = new ArrayList<>(2);
+        }
+        mTags.add(tag);
+        return this;
+    }
+
+    /**
+     * Provide component class and related factory. Class should be annotated with {@link Component} or {@link Subcomponent}, thus be valid component
+     * compatible with dagger2. Factory here is used for creating component from scratch if it wasn't stored in cache before.
+     * Annotations are checked only once per class, see {@link ComponentRegistry}.
+     *
+     * @param componentClass   component class.
+     * @param componentFactory factory instance that would be used to create new component in case it is not present in cache.
+     * @param <T>              component type.
+     * @return component (existing one if cached otherwise will be created via provided factory).
+     */
+    public <T> T build(Class<T> componentClass, ComponentFactory<T> componentFactory) {
+        checkComponent(componentClass, componentFactory);
+        acquire(componentClass);
+        T component;
+        try {
+            if (mAllowComponentDuplicates) {
+                component = mComponentCache.getOrCreate(componentClass, mDuplicateKey, componentFactory);
+            } else {
+                component = mComponentCache.getOrCreate(componentClass, componentFactory);
+            }
+        } catch (RuntimeException | Error e) {
+            releaseFailed();
+            throw e;
+        }
+        attachToParent();
+        applyTags();
+        return component;
+    }
+
+    /**
+     * Same as {@link #build(Class, ComponentFactory)}, but component is created on provided executor, so caller thread is not blocked
+     * by graph construction. Component that is being created is already in cache, thus next {@link #build(Class, ComponentFactory)} for the same
+     * component waits for it (or creates it on its own thread if executor hasn't started yet) instead of creating another instance.
+     *
+     * @param executor executor to create component on.
+     * @return future of component, it is already completed if component was cached.
+     */
+    public <T> Future<T> buildAsync(Class<T> componentClass, ComponentFactory<T> componentFactory, Executor executor) {
+        checkComponent(componentClass, componentFactory);
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor is not provided");
+        }
+        acquire(componentClass);
+        Future<T> component;
+        try {
+            if (mAllowComponentDuplicates) {
+                component = mComponentCache.getOrCreateAsync(componentClass, mDuplicateKey, componentFactory, executor);
+            } else {
+                component = mComponentCache.getOrCreateAsync(componentClass, componentFactory, executor);
+            }
+        } catch (RuntimeException | Error e) {
+            releaseFailed();
+            throw e;
+        }
+        attachToParent();
+        applyTags();
+        return component;
+    }
+
+    /**
+     * Same as {@link #build(Class, ComponentFactory)}, but component is created only once {@link Lazy#get()} is called (i.e on path that
+     * is rarely used). Cache slot and lifecycle binding are registered right away, so releasing owner before {@link Lazy#get()} releases
+     * the slot without creating component, and so does retaining it on config change. {@link #buildAsync(Class, ComponentFactory, Executor)}
+     * of the same component creates it on its executor. {@link Lazy#get()} is thread-safe and lock-free once component is created.
+     *
+     * @return handle of component, its get() throws {@link IllegalStateException} if it is called after owner released component.
+     */
+    public <T> Lazy<T> buildLazy(Class<T> componentClass, ComponentFactory<T> componentFactory) {
+        checkComponent(componentClass, componentFactory);
+        acquire(componentClass);
+        Object key = mAllowComponentDuplicates ? mDuplicateKey : null;
+        if (mAllowComponentDuplicates) {
+            mComponentCache.getOrCreateAsync(componentClass, mDuplicateKey, componentFactory, DEFERRED);
+        } else {
+            mComponentCache.getOrCreateAsync(componentClass, componentFactory, DEFERRED);
+        }
+        attachToParent();
+        applyTags();
+        LazyComponent<T> lazyComponent = new LazyComponent<>(mComponentCache, componentClass, key, componentFactory);
+        mLazyComponent = lazyComponent;
+        return lazyComponent;
+    }
+
+    /**
+     * Take reference to component before it is requested, so it can't be released by another owner in between.
+     */
+    private void acquire(Class componentClass) {
+        mComponentClass = componentClass;
+        mReference = mComponentCache.acquire(componentClass, mAllowComponentDuplicates ? mDuplicateKey : null);
+    }
+
+    void releaseFailed() {
+        mComponentClass = null;
+        if (mReference != null) {
+            ComponentReference reference = mReference;
+            mReference = null;
+            mComponentCache.release(reference, ReleaseReason.EXPLICIT, false);
+        }
+    }
+
+    private void attachToParent() {
+        if (mParentClass != null) {
+            mComponentCache.attach(mComponentClass, mAllowComponentDuplicates ? mDuplicateKey : null, mParentClass, mParentKey);
+        }
+    }
+
+    private void applyTags() {
+        if (mTags != null) {
+            for (int i = 0; i < mTags.size(); i++) {
+                mComponentCache.tag(mComponentClass, mAllowComponentDuplicates ? mDuplicateKey : null, mTags.get(i));
+            }
+        }
+    }
+
+    private void checkComponent(Class componentClass, ComponentFactory componentFactory) {
+        if (componentClass == null || componentFactory == null) {
+            throw new IllegalArgumentException("Component class or factory is not provided");
+        }
+        // Generated factories are validated at compile time.
+        if (!(componentFactory instanceof SlottedComponentFactory) && !ComponentRegistry.isDaggerComponent(componentClass)) {
+            throw new IllegalArgumentException(String.format("Class %s isn't a Dagger2 compatible component/subcomponent", componentClass.getName()));
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package knight704.ufinjector;
+
+import dagger.Lazy;
+
+/**
+ * Handle of component that is created on first {@link #get()}, see {@link InjectRequest#buildLazy(Class, ComponentFactory)}.
+ * Cache slot is reserved by request, so component built by anyone else in the meantime is the one returned here. Handle holds its own
+ * reference while component is created, so owner released meanwhile doesn't leave component without owner in cache.
+ * <p>
+ * Once component is published, {@link #get()} is a single volatile read.
+ */
+class LazyComponent<T> implements Lazy<T> {
+    private final ComponentCache mComponentCache;
+    private final Class<T> mComponentClass;
+    private final Object mKey;
+    private final ComponentFactory<T> mComponentFactory;
+    private volatile T mComponent;
+    private volatile boolean mReleased;
+
+    /**
+     * @param key key of component, null for default one.
+     */
+    LazyComponent(ComponentCache componentCache, Class<T> componentClass, Object key, ComponentFactory<T> componentFactory) {
+        mComponentCache = componentCache;
+        mComponentClass = componentClass;
+        mKey = key;
+        mComponentFactory = componentFactory;
+    }
+
+    @Override
+    public T get() {
+        T component = mComponent;
+        if (component == null) {
+            if (mReleased) {
+                throw new IllegalStateException(String.format("Component %s is already released by its owner", mComponentClass.getName()));
+            }
+            ComponentReference reference = mComponentCache.acquire(mComponentClass, mKey);
+            try {
+                // Cache guarantees single instance, so threads racing here publish the same component.
+                if (mKey != null) {
+                    component = mComponentCache.getOrCreate(mComponentClass, mKey, mComponentFactory);
+                } else {
+                    component = mComponentCache.getOrCreate(mComponentClass, mComponentFactory);
+                }
+            } finally {
+                // Reference is the last one only if owner let component go meanwhile, it is released then (or retained with owner).
+                mComponentCache.release(reference, ReleaseReason.EXPLICIT, !mReleased);
+            }
+            if (mReleased) {
+                throw new IllegalStateException(String.format("Component %s was released by its owner while it was created", mComponentClass.getName()));
+            }
+            mComponent = component;
+        }
+        return component;
+    }
+
+    /**
+     * Owner released component before it was ever requested, so it shouldn't be created anymore.
+     */
+    void markReleased() {
+        mReleased = true;
+    }
+}
@@ -0,0 +1,210 @@
+package knight704.ufinjector;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Placeholder that is put into cache while component is being created, so concurrent callers for the same class and key
+ * wait for a single {@link ComponentFactory#create()} call instead of creating their own copies.
+ * <p>
+ * Creation may be started by any thread (i.e executor of async request or caller that needs component right now), it is run only once.
+ * Once done, placeholder replaces itself in cache with created component or removes itself if creation failed or was cancelled.
+ */
+class PendingComponent<T> extends FutureTask<T> {
+    private final ConcurrentMap<Object, Object> mComponents;
+    private final Object mCacheKey;
+    private final Class<T> mComponentClass;
+    private final Object mKey;
+    private final ComponentCacheListener mListener;
+    private final TeardownQueue mTeardownQueue;
+    private final TagIndex mTagIndex;
+    private final TimedCreation<T> mCreation;
+    private final AtomicReference<Thread> mCreatorThread = new AtomicReference<>();
+    private final AtomicBoolean mDeferred = new AtomicBoolean();
+    private volatile ReleaseReason mReleaseReason;
+
+    PendingComponent(ConcurrentMap<Object, Object> components, Object cacheKey, Class<T> componentClass, Object key,
+                     ComponentFactory<T> componentFactory, ComponentCacheListener listener, ComponentTracer tracer, CreationBudget budget, TeardownQueue teardownQueue, TagIndex tagIndex) {
+        this(components, cacheKey, componentClass, key, new TimedCreation<>(componentClass, key, componentFactory, tracer, budget), listener, teardownQueue,
+                tagIndex);
+    }
+
+    private PendingComponent(ConcurrentMap<Object, Object> components, Object cacheKey, Class<T> componentClass, Object key,
+                             TimedCreation<T> creation, ComponentCacheListener listener, TeardownQueue teardownQueue, TagIndex tagIndex) {
+        super(creation);
+        mCreation = creation;
+        mComponents = components;
+        mCacheKey = cacheKey;
+        mComponentClass = componentClass;
+        mKey = key;
+        mListener = listener;
+        mTeardownQueue = teardownQueue;
+        mTagIndex = tagIndex;
+    }
+
+    /**
+     * @return placeholder that is already completed with component, it is never put into cache.
+     */
+    static <T> PendingComponent<T> completed(final T component) {
+        PendingComponent<T> completed = new PendingComponent<>(null, null, null, null, new ComponentFactory<T>() {
+            @Override
+            public T create() {
+                return component;
+            }
+        }, null, null, null, null, null);
+        completed.run();
+        return completed;
+    }
+
+    @Override
+    public void run() {
+        if (mCreatorThread.compareAndSet(null, Thread.currentThread())) {
+            super.run();
+        }
+    }
+
+    /**
+     * Creation isn't scheduled anywhere, it waits for the first caller that needs component (i.e lazy one).
+     */
+    void defer() {
+        mDeferred.set(true);
+    }
+
+    /**
+     * @return true if creation was deferred and caller should schedule it now, only one caller gets true.
+     */
+    boolean claimDeferred() {
+        return mDeferred.compareAndSet(true, false);
+    }
+
+    /**
+     * Cancel deferred creation unless somebody already started it, placeholder removes itself from cache then.
+     *
+     * @return true if creation was cancelled.
+     */
+    boolean cancelDeferred() {
+        return claimDeferred() && mCreatorThread.compareAndSet(null, Thread.currentThread()) && cancel(false);
+    }
+
+    /**
+     * Component is released while being created, so it shouldn't be cached.
+     */
+    void markReleased(ReleaseReason reason) {
+        mReleaseReason = reason;
+    }
+
+    @Override
+    protected void done() {
+        if (mComponents == null) {
+            return;
+        }
+        T component = null;
+        if (!isCancelled()) {
+            try {
+                component = get();
+            } catch (InterruptedException | ExecutionException ignored) {
+                // Creation failed, error is delivered to callers via get().
+            }
+        }
+        if (component != null && mListener != null) {
+            mListener.onCreated(mComponentClass, mKey, mCreation.mDurationNanos);
+        }
+        // If component was released while being created, it is handed out to waiting callers but not cached.
+        if (component == null || !mComponents.replace(mCacheKey, this, component)) {
+            // Failed creation is forgotten by index as well, so keys that are never created again (i.e unique ids) don't pile up there.
+            if (mComponents.remove(mCacheKey, this) && component == null) {
+                mTagIndex.remove(mCacheKey);
+            }
+            ReleaseReason releaseReason = mReleaseReason;
+            if (component != null && releaseReason != null) {
+                if (mListener != null) {
+                    mListener.onReleased(mComponentClass, mKey, releaseReason, 0);
+                }
+                mTeardownQueue.enqueue(component);
+            }
+        }
+    }
+
+    boolean isCreatedBy(Thread thread) {
+        return mCreatorThread.get() == thread && !isDone();
+    }
+
+    /**
+     * Wait for component to be created ignoring interrupts (interrupted status is restored afterwards).
+     * Exception thrown by factory is rethrown as is.
+     */
+    T await() {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IllegalStateException("Component creation failed", cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class TimedCreation<T> implements Callable<T> {
+        private final Class<T> mComponentClass;
+        private final Object mKey;
+        private final ComponentFactory<T> mComponentFactory;
+        private final ComponentTracer mTracer;
+        private final CreationBudget mBudget;
+        private long mDurationNanos;
+
+        TimedCreation(Class<T> componentClass, Object key, ComponentFactory<T> componentFactory, ComponentTracer tracer, CreationBudget budget) {
+            mComponentClass = componentClass;
+            mKey = key;
+            mComponentFactory = componentFactory;
+            mTracer = tracer;
+            mBudget = budget;
+        }
+
+        @Override
+        public T call() throws Exception {
+            if (mTracer != null) {
+                mTracer.beginSection(ComponentTracer.CREATE, mComponentClass, mKey);
+            }
+            try {
+                CreationBudget.Timer timer = mBudget != null ? mBudget.start(mComponentClass, mKey) : null;
+                long start = System.nanoTime();
+                T component;
+                try {
+                    component = mComponentFactory.create();
+                } finally {
+                    mDurationNanos = System.nanoTime() - start;
+                    if (timer != null) {
+                        timer.cancel();
+                    }
+                }
+                if (timer != null) {
+                    timer.finish(mDurationNanos);
+                }
+                return component;
+            } finally {
+                if (mTracer != null) {
+                    mTracer.endSection();
+                }
+            }
+        }
+    }
+}
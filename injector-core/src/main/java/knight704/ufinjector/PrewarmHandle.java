@@ -0,0 +1,233 @@
+package knight704.ufinjector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Running {@link PrewarmPlan}. Allows to cancel components that are not started yet and to wait for plan to finish.
+ * <p>
+ * Component is skipped if plan is cancelled or timed out before it is started, or if any of its dependencies wasn't created.
+ * Skipped components are simply created on demand later.
+ * <p>
+ * Plan that holds components (see {@link PrewarmPlan#holdFor(long, TimeUnit)}) takes reference to every component while it is created
+ * and drops it with grace period that ends at hold deadline, so component nobody requested by then is released.
+ */
+public class PrewarmHandle {
+    private final ComponentCache mComponentCache;
+    private final Executor mExecutor;
+    private final ExecutorService mOwnExecutor;
+    private final long mDeadlineNanos;
+    private final long mHoldDeadlineNanos;
+    private final boolean mHolding;
+    private final CountDownLatch mFinished;
+    private final AtomicInteger mCreatedCount = new AtomicInteger();
+    private final AtomicInteger mSkippedCount = new AtomicInteger();
+    private volatile boolean mCancelled;
+
+    /**
+     * @param holdNanos grace period of created components counted from now, negative to keep them cached.
+     */
+    PrewarmHandle(ComponentCache componentCache, List<Task<?>> tasks, Executor executor, ExecutorService ownExecutor, long timeoutNanos,
+                  long holdNanos) {
+        mComponentCache = componentCache;
+        mExecutor = executor;
+        mOwnExecutor = ownExecutor;
+        long nowNanos = System.nanoTime();
+        mDeadlineNanos = nowNanos + timeoutNanos;
+        mHolding = holdNanos >= 0;
+        mHoldDeadlineNanos = nowNanos + holdNanos;
+        mFinished = new CountDownLatch(tasks.size());
+        List<Task<?>> roots = link(tasks);
+        if (tasks.isEmpty()) {
+            shutdown();
+        }
+        for (Task<?> root : roots) {
+            schedule(root);
+        }
+    }
+
+    /**
+     * Connect tasks with their dependencies and check there is no cycles.
+     *
+     * @return tasks without dependencies.
+     */
+    private List<Task<?>> link(List<Task<?>> tasks) {
+        List<Task<?>> roots = new ArrayList<>();
+        for (Task<?> task : tasks) {
+            task.mHandle = this;
+            for (Class dependency : task.mDependencies) {
+                boolean found = false;
+                for (Task<?> candidate : tasks) {
+                    if (candidate.mComponentClass == dependency && candidate != task) {
+                        candidate.mDependents.add(task);
+                        task.mPendingDependencies.incrementAndGet();
+                        found = true;
+                    }
+                }
+                if (!found) {
+                    throw new IllegalArgumentException(String.format("Dependency %s of component %s is not in prewarm plan",
+                            dependency.getName(), task.mComponentClass.getName()));
+                }
+            }
+        }
+        for (Task<?> task : tasks) {
+            if (task.mPendingDependencies.get() == 0) {
+                roots.add(task);
+            }
+        }
+        checkNoCycles(tasks, roots);
+        return roots;
+    }
+
+    private static void checkNoCycles(List<Task<?>> tasks, List<Task<?>> roots) {
+        List<Task<?>> visited = new ArrayList<>(roots);
+        int[] pending = new int[tasks.size()];
+        for (int i = 0; i < pending.length; i++) {
+            pending[i] = tasks.get(i).mPendingDependencies.get();
+        }
+        for (int i = 0; i < visited.size(); i++) {
+            for (Task<?> dependent : visited.get(i).mDependents) {
+                if (--pending[tasks.indexOf(dependent)] == 0) {
+                    visited.add(dependent);
+                }
+            }
+        }
+        if (visited.size() != tasks.size()) {
+            throw new IllegalArgumentException("Prewarm plan has cyclic dependencies");
+        }
+    }
+
+    /**
+     * Skip components that are not started yet.
+     */
+    public void cancel() {
+        mCancelled = true;
+    }
+
+    /**
+     * Wait for all components to be created or skipped.
+     *
+     * @return true if plan is finished, false if wait timed out.
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return mFinished.await(timeout, unit);
+    }
+
+    public boolean isFinished() {
+        return mFinished.getCount() == 0;
+    }
+
+    public int getCreatedCount() {
+        return mCreatedCount.get();
+    }
+
+    public int getSkippedCount() {
+        return mSkippedCount.get();
+    }
+
+    private void schedule(Task<?> task) {
+        try {
+            mExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            finish(task, false);
+        }
+    }
+
+    private boolean shouldSkip() {
+        return mCancelled || System.nanoTime() - mDeadlineNanos > 0;
+    }
+
+    private void finish(Task<?> task, boolean created) {
+        if (!task.mFinished.compareAndSet(false, true)) {
+            return;
+        }
+        if (created) {
+            mCreatedCount.incrementAndGet();
+        } else {
+            mSkippedCount.incrementAndGet();
+        }
+        for (Task<?> dependent : task.mDependents) {
+            if (!created) {
+                // Dependency wasn't created, so dependent is skipped as well, it will be created on demand.
+                finish(dependent, false);
+            } else if (dependent.mPendingDependencies.decrementAndGet() == 0) {
+                schedule(dependent);
+            }
+        }
+        mFinished.countDown();
+        if (mFinished.getCount() == 0) {
+            shutdown();
+        }
+    }
+
+    private ComponentReference acquire(Class componentClass, Object key) {
+        return mHolding ? mComponentCache.acquire(componentClass, key) : null;
+    }
+
+    /**
+     * Drop reference of plan, component is held until hold deadline unless someone else requested it meanwhile.
+     */
+    private void hold(ComponentReference reference) {
+        long graceNanos = Math.max(mHoldDeadlineNanos - System.nanoTime(), 0);
+        mComponentCache.releaseAfter(reference, ReleaseReason.EVICTED, graceNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void shutdown() {
+        if (mOwnExecutor != null) {
+            mOwnExecutor.shutdown();
+        }
+    }
+
+    static class Task<T> implements Runnable {
+        private final Class<T> mComponentClass;
+        private final Object mKey;
+        private final ComponentFactory<T> mComponentFactory;
+        private final Class[] mDependencies;
+        private final List<Task<?>> mDependents = new ArrayList<>();
+        private final AtomicInteger mPendingDependencies = new AtomicInteger();
+        private final AtomicBoolean mFinished = new AtomicBoolean();
+        private PrewarmHandle mHandle;
+
+        Task(Class<T> componentClass, Object key, ComponentFactory<T> componentFactory, Class[] dependencies) {
+            mComponentClass = componentClass;
+            mKey = key;
+            mComponentFactory = componentFactory;
+            mDependencies = dependencies != null ? dependencies : new Class[0];
+        }
+
+        @Override
+        public void run() {
+            if (mFinished.get()) {
+                return;
+            }
+            if (mHandle.shouldSkip()) {
+                mHandle.finish(this, false);
+                return;
+            }
+            boolean created = false;
+            ComponentReference reference = mHandle.acquire(mComponentClass, mKey);
+            try {
+                if (mKey != null) {
+                    mHandle.mComponentCache.getOrCreate(mComponentClass, mKey, mComponentFactory);
+                } else {
+                    mHandle.mComponentCache.getOrCreate(mComponentClass, mComponentFactory);
+                }
+                created = true;
+            } catch (RuntimeException ignored) {
+                // Component is skipped, error will be thrown to caller once it is requested on demand.
+            } finally {
+                if (reference != null) {
+                    mHandle.hold(reference);
+                }
+                mHandle.finish(this, created);
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package knight704.ufinjector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Set of components that should be created eagerly (i.e in Application.onCreate()), so they are already cached
+ * when activity requests them. Components are created in parallel, component is created only after all its dependencies are created.
+ * <pre>
+ * Injector.getInstance().prewarm()
+ *   .add(AppComponent.class, AppComponentFactory.INSTANCE)
+ *   .add(MainComponent.class, MainComponentFactory.INSTANCE, AppComponent.class)
+ *   .start(2, TimeUnit.SECONDS);
+ * </pre>
+ */
+public class PrewarmPlan {
+    private static final int MAX_PARALLELISM = 4;
+
+    private final ComponentCache mComponentCache;
+    private final List<PrewarmHandle.Task<?>> mTasks = new ArrayList<>();
+    private long mHoldNanos = -1;
+    private boolean mStarted;
+
+    PrewarmPlan(ComponentCache componentCache) {
+        mComponentCache = componentCache;
+    }
+
+    /**
+     * Add component with default key.
+     *
+     * @param dependencies classes of components in this plan which should be created before this one.
+     */
+    public <T> PrewarmPlan add(Class<T> componentClass, ComponentFactory<T> componentFactory, Class... dependencies) {
+        return add(componentClass, null, componentFactory, dependencies);
+    }
+
+    /**
+     * Add component with specific key, see {@link InjectRequest#allowComponentDuplicates(Object)}.
+     *
+     * @param dependencies classes of components in this plan which should be created before this one.
+     */
+    public <T> PrewarmPlan add(Class<T> componentClass, Object key, ComponentFactory<T> componentFactory, Class... dependencies) {
+        if (componentClass == null || componentFactory == null) {
+            throw new IllegalArgumentException("Component class or factory is not provided");
+        }
+        mTasks.add(new PrewarmHandle.Task<>(componentClass, key, componentFactory, dependencies));
+        return this;
+    }
+
+    /**
+     * Hold created components for grace period counted from start of plan instead of caching them for good, ones that nobody
+     * requested by then are released (i.e guessed by {@link StartupProfile}).
+     */
+    PrewarmPlan holdFor(long duration, TimeUnit unit) {
+        mHoldNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    /**
+     * Start creating components on own bounded pool of background threads, which is shut down once plan is finished.
+     *
+     * @param timeout components that are not started within timeout are skipped, they will be created on demand.
+     */
+    public PrewarmHandle start(long timeout, TimeUnit unit) {
+        checkNotStarted();
+        int parallelism = Math.max(1, Math.min(MAX_PARALLELISM, Runtime.getRuntime().availableProcessors() - 1));
+        ExecutorService executor = new ThreadPoolExecutor(parallelism, parallelism, 1, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new PrewarmThreadFactory());
+        return new PrewarmHandle(mComponentCache, mTasks, executor, executor, unit.toNanos(timeout), mHoldNanos);
+    }
+
+    /**
+     * Start creating components on provided executor.
+     *
+     * @param timeout components that are not started within timeout are skipped, they will be created on demand.
+     */
+    public PrewarmHandle start(Executor executor, long timeout, TimeUnit unit) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor is not provided");
+        }
+        checkNotStarted();
+        return new PrewarmHandle(mComponentCache, mTasks, executor, null, unit.toNanos(timeout), mHoldNanos);
+    }
+
+    private void checkNotStarted() {
+        if (mStarted) {
+            throw new IllegalStateException("Prewarm plan is already started");
+        }
+        mStarted = true;
+    }
+
+    private static class PrewarmThreadFactory implements ThreadFactory {
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "ufinjector-prewarm-" + mCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
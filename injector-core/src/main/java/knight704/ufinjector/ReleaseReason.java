@@ -0,0 +1,27 @@
+package knight704.ufinjector;
+
+/**
+ * Why component was released from cache.
+ */
+public enum ReleaseReason {
+    /**
+     * Owner is stopped, but not finished (i.e another activity is started on top of it).
+     */
+    STOP,
+    /**
+     * Owner is finished.
+     */
+    FINISH,
+    /**
+     * Owner is recreated because of config change, component can be retained.
+     */
+    CONFIG_CHANGE,
+    /**
+     * Retained component is evicted because of retained limit or memory pressure, or prefetched component wasn't requested in time.
+     */
+    EVICTED,
+    /**
+     * Component is released directly via {@link ComponentCache#release(Class, Object)}.
+     */
+    EXPLICIT
+}
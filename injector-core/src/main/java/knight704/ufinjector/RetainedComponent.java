@@ -0,0 +1,50 @@
+package knight704.ufinjector;
+
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache entry of component that was retained by its owner (i.e on config change) and isn't used by anyone at the moment.
+ * It is replaced by component itself once requested again.
+ * <p>
+ * Component released by owner with grace period is held in the same way until {@link #expiresAtNanos}, see {@link GraceComponents}.
+ */
+final class RetainedComponent {
+    final ConcurrentMap<Object, Object> components;
+    final Object cacheKey;
+    final Class componentClass;
+    final Object key;
+    final Object component;
+    final int weight;
+    final long retainedAtNanos;
+    /**
+     * Reason owner released held component with, null if component is retained.
+     */
+    final ReleaseReason releaseReason;
+    final long expiresAtNanos;
+
+    RetainedComponent(ConcurrentMap<Object, Object> components, Object cacheKey, Class componentClass, Object key, Object component, int weight) {
+        this(components, cacheKey, componentClass, key, component, weight, null, 0);
+    }
+
+    RetainedComponent(ConcurrentMap<Object, Object> components, Object cacheKey, Class componentClass, Object key, Object component,
+                      ReleaseReason releaseReason, long graceNanos) {
+        this(components, cacheKey, componentClass, key, component, 0, releaseReason, graceNanos);
+    }
+
+    private RetainedComponent(ConcurrentMap<Object, Object> components, Object cacheKey, Class componentClass, Object key, Object component,
+                              int weight, ReleaseReason releaseReason, long graceNanos) {
+        this.components = components;
+        this.cacheKey = cacheKey;
+        this.componentClass = componentClass;
+        this.key = key;
+        this.component = component;
+        this.weight = weight;
+        this.retainedAtNanos = System.nanoTime();
+        this.releaseReason = releaseReason;
+        this.expiresAtNanos = retainedAtNanos + graceNanos;
+    }
+
+    boolean isHeld() {
+        return releaseReason != null;
+    }
+}
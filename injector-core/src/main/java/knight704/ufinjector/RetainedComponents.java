@@ -0,0 +1,91 @@
+package knight704.ufinjector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps retained components in least recently retained order and evicts eldest of them from cache once their total weight exceeds limit.
+ * Components that are in use are never tracked here, so they can't be evicted. Evicted entries are returned to caller, so it can
+ * report them and release their children outside of the lock.
+ */
+class RetainedComponents {
+    private static final ComponentWeigher SINGLE_WEIGHER = new ComponentWeigher() {
+        @Override
+        public int weigh(Class componentClass, Object component) {
+            return 1;
+        }
+    };
+
+    private final Set<RetainedComponent> mEntries = new LinkedHashSet<>();
+    private ComponentWeigher mWeigher = SINGLE_WEIGHER;
+    private int mMaxWeight = Integer.MAX_VALUE;
+    private int mWeight;
+
+    synchronized void setLimit(int maxWeight, ComponentWeigher weigher) {
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException("Max weight can't be negative");
+        }
+        mMaxWeight = maxWeight;
+        mWeigher = weigher != null ? weigher : SINGLE_WEIGHER;
+    }
+
+    synchronized ComponentWeigher getWeigher() {
+        return mWeigher;
+    }
+
+    synchronized int getWeight() {
+        return mWeight;
+    }
+
+    /**
+     * Put retained entry into cache instead of component, unless component was changed meanwhile. Limit is not applied, see {@link #trim()}.
+     */
+    synchronized boolean add(RetainedComponent entry) {
+        if (entry.components.replace(entry.cacheKey, entry.component, entry) && mEntries.add(entry)) {
+            mWeight += entry.weight;
+            return true;
+        }
+        return false;
+    }
+
+    synchronized void remove(RetainedComponent entry) {
+        if (mEntries.remove(entry)) {
+            mWeight -= entry.weight;
+        }
+    }
+
+    /**
+     * Evict eldest retained components until total weight is within limit.
+     *
+     * @return entries removed from cache.
+     */
+    synchronized List<RetainedComponent> trim() {
+        return trimTo(mMaxWeight);
+    }
+
+    /**
+     * Evict eldest retained components from cache until total weight is not greater than provided one.
+     *
+     * @return entries removed from cache.
+     */
+    synchronized List<RetainedComponent> trimTo(int maxWeight) {
+        if (mWeight <= maxWeight) {
+            return Collections.emptyList();
+        }
+        List<RetainedComponent> evicted = new ArrayList<>();
+        Iterator<RetainedComponent> iterator = mEntries.iterator();
+        while (mWeight > maxWeight && iterator.hasNext()) {
+            RetainedComponent entry = iterator.next();
+            iterator.remove();
+            mWeight -= entry.weight;
+            if (entry.components.remove(entry.cacheKey, entry)) {
+                evicted.add(entry);
+            }
+        }
+        return evicted;
+    }
+}
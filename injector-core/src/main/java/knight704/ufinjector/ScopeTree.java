@@ -0,0 +1,99 @@
+package knight704.ufinjector;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Parent-child relations between cached components. Only components that have parent or children are tracked, so components
+ * without scopes cost a single lookup on release. Releasing parent visits its subtree only.
+ */
+class ScopeTree {
+    private final ConcurrentMap<Object, Node> mNodes = new ConcurrentHashMap<>();
+
+    /**
+     * Make child a direct child of parent, child is moved if it had another parent.
+     */
+    synchronized void attach(Object childCacheKey, Class childClass, Object childKey, Object parentCacheKey, Class parentClass, Object parentKey) {
+        Node parent = obtain(parentCacheKey, parentClass, parentKey);
+        for (Node node = parent; node != null; node = node.parent) {
+            if (node.cacheKey.equals(childCacheKey)) {
+                throw new IllegalArgumentException(String.format("Component %s can't be a parent of itself", childClass.getName()));
+            }
+        }
+        Node child = obtain(childCacheKey, childClass, childKey);
+        if (child.parent == parent) {
+            return;
+        }
+        if (child.parent != null) {
+            unlink(child);
+        }
+        child.parent = parent;
+        if (parent.children == null) {
+            parent.children = new LinkedHashSet<>();
+        }
+        parent.children.add(child);
+    }
+
+    /**
+     * Forget component, its children become roots and should be released by caller.
+     *
+     * @return direct children of component.
+     */
+    Collection<Node> remove(Object cacheKey) {
+        if (!mNodes.containsKey(cacheKey)) {
+            return Collections.emptyList();
+        }
+        synchronized (this) {
+            Node node = mNodes.remove(cacheKey);
+            if (node == null) {
+                return Collections.emptyList();
+            }
+            if (node.parent != null) {
+                unlink(node);
+            }
+            if (node.children == null) {
+                return Collections.emptyList();
+            }
+            for (Node child : node.children) {
+                child.parent = null;
+            }
+            return node.children;
+        }
+    }
+
+    private Node obtain(Object cacheKey, Class componentClass, Object key) {
+        Node node = mNodes.get(cacheKey);
+        if (node == null) {
+            node = new Node(cacheKey, componentClass, key);
+            mNodes.put(cacheKey, node);
+        }
+        return node;
+    }
+
+    private void unlink(Node child) {
+        Node parent = child.parent;
+        child.parent = null;
+        parent.children.remove(child);
+        if (parent.children.isEmpty() && parent.parent == null) {
+            mNodes.remove(parent.cacheKey);
+        }
+    }
+
+    static final class Node {
+        final Object cacheKey;
+        final Class componentClass;
+        final Object key;
+        Node parent;
+        Set<Node> children;
+
+        Node(Object cacheKey, Class componentClass, Object key) {
+            this.cacheKey = cacheKey;
+            this.componentClass = componentClass;
+            this.key = key;
+        }
+    }
+}
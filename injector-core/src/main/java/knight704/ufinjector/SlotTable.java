@@ -0,0 +1,58 @@
+package knight704.ufinjector;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Components with default key that are in use, indexed by slot of their class, see {@link SlottedComponentFactory}. Cache index
+ * stays the source of truth, table only mirrors it for lock-free lookups without hashing.
+ * <p>
+ * Component is put into table only while it is cached as is. Every transition away from that state (release, retain, grace period)
+ * is done while holding table lock, so component is never found in table once it left the cache.
+ */
+final class SlotTable {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private volatile AtomicReferenceArray<Object> mSlots = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+
+    /**
+     * @return component in slot or null if it is not in table.
+     */
+    Object get(int slot) {
+        AtomicReferenceArray<Object> slots = mSlots;
+        return slot < slots.length() ? slots.get(slot) : null;
+    }
+
+    /**
+     * Put component into slot if it is still cached under the key.
+     */
+    synchronized void fill(int slot, ConcurrentMap<Object, Object> components, Object cacheKey, Object component) {
+        if (components.get(cacheKey) != component) {
+            return;
+        }
+        AtomicReferenceArray<Object> slots = mSlots;
+        if (slot >= slots.length()) {
+            AtomicReferenceArray<Object> grown = new AtomicReferenceArray<>(Math.max(slots.length() * 2, slot + 1));
+            for (int i = 0; i < slots.length(); i++) {
+                grown.set(i, slots.get(i));
+            }
+            mSlots = grown;
+            // Readers that still see old table just miss and go to cache index.
+            for (int i = 0; i < slots.length(); i++) {
+                slots.set(i, null);
+            }
+            slots = grown;
+        }
+        slots.set(slot, component);
+    }
+
+    /**
+     * Remove component from slot, should be called while holding table lock right before component leaves the cache.
+     */
+    void clear(int slot) {
+        AtomicReferenceArray<Object> slots = mSlots;
+        if (slot < slots.length()) {
+            slots.set(slot, null);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package knight704.ufinjector;
+
+/**
+ * Factory that knows slot of its component class, so cached component with default key is found by single array read instead of
+ * hash lookup. Factories generated for {@link knight704.ufinjector.annotations.GenerateFactory} components implement it.
+ */
+public interface SlottedComponentFactory<T> extends ComponentFactory<T> {
+    /**
+     * @return slot of component class, see {@link ComponentRegistry#slotOf(Class)}.
+     */
+    int getSlot();
+}
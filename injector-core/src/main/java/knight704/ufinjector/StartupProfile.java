@@ -0,0 +1,413 @@
+package knight704.ufinjector;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Records which components are built during the first seconds after launch and prefetches them on the next cold start, so they are
+ * already cached when activities ask for them:
+ * <pre>
+ * // in Application.onCreate
+ * new StartupProfile(new File(getFilesDir(), "ufinjector.profile"), BuildConfig.VERSION_CODE)
+ *         .start(Injector.getInstance(), 5, TimeUnit.SECONDS);
+ * </pre>
+ * Profile is a small versioned binary file (at most {@link #MAX_ENTRIES} components). It is ignored if it was recorded by another build
+ * or is older than max age. Only components with factory registered in {@link ComponentRegistry} (i.e generated ones) and default,
+ * string, number or enum keys can be prefetched. Prefetched components that application doesn't request within window are released.
+ */
+public class StartupProfile {
+    public static final int MAX_ENTRIES = 64;
+    public static final long DEFAULT_MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(14);
+    static final int MAGIC = 0x55464950;
+    static final int VERSION = 1;
+    private static final int MAX_NAME_LENGTH = 256;
+    private static final int MAX_PREFETCH_PARALLELISM = 3;
+
+    private static final byte KEY_DEFAULT = 0;
+    private static final byte KEY_STRING = 1;
+    private static final byte KEY_INT = 2;
+    private static final byte KEY_LONG = 3;
+    private static final byte KEY_ENUM = 4;
+
+    // Set on prefetch threads, so prefetched components are not recorded as requested by application.
+    private static final ThreadLocal<Boolean> sPrefetching = new ThreadLocal<>();
+
+    private final File mFile;
+    private final long mBuildStamp;
+    private long mMaxAgeMillis = DEFAULT_MAX_AGE_MILLIS;
+    private final CountDownLatch mSaved = new CountDownLatch(1);
+    private boolean mStarted;
+
+    /**
+     * @param file       file to keep profile in, i.e in {@code Context.getFilesDir()}.
+     * @param buildStamp identifies build of application (i.e version code), profile recorded by another build is ignored.
+     */
+    public StartupProfile(File file, long buildStamp) {
+        if (file == null) {
+            throw new IllegalArgumentException("Profile file is not provided");
+        }
+        mFile = file;
+        mBuildStamp = buildStamp;
+    }
+
+    /**
+     * Profile recorded earlier than max age ago is ignored, components are recorded again.
+     */
+    public StartupProfile setMaxAge(long maxAge, TimeUnit unit) {
+        mMaxAgeMillis = unit.toMillis(maxAge);
+        return this;
+    }
+
+    /**
+     * Prefetch components recorded on previous launch and record components built within window for the next one.
+     * Profile is read, prefetched and written on background threads.
+     *
+     * @param window how long components are recorded after start, prefetch that is not started within window is skipped.
+     */
+    public synchronized void start(final CoreInjector injector, final long window, final TimeUnit unit) {
+        if (mStarted) {
+            throw new IllegalStateException("Startup profile is already started");
+        }
+        mStarted = true;
+        final Recorder recorder = new Recorder();
+        injector.addCacheListener(recorder);
+        final ScheduledThreadPoolExecutor ioExecutor = new ScheduledThreadPoolExecutor(1, new ProfileThreadFactory("ufinjector-profile"));
+        ioExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                prefetch(injector, read(mFile, mBuildStamp, mMaxAgeMillis, System.currentTimeMillis()), window, unit);
+            }
+        });
+        ioExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                injector.removeCacheListener(recorder);
+                try {
+                    write(mFile, mBuildStamp, System.currentTimeMillis(), recorder.getEntries());
+                } catch (IOException ignored) {
+                    // Profile is just not updated, prefetch is an optimization anyway.
+                } finally {
+                    ioExecutor.shutdown();
+                    mSaved.countDown();
+                }
+            }
+        }, window, unit);
+    }
+
+    boolean awaitSaved(long timeout, TimeUnit unit) throws InterruptedException {
+        return mSaved.await(timeout, unit);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void prefetch(CoreInjector injector, List<Entry> entries, long window, TimeUnit unit) {
+        PrewarmPlan plan = injector.prewarm();
+        int count = 0;
+        for (Entry entry : entries) {
+            Class componentClass;
+            try {
+                componentClass = Class.forName(entry.className, false, StartupProfile.class.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                continue;
+            }
+            ComponentFactory factory = ComponentRegistry.findFactory(componentClass);
+            if (factory != null) {
+                plan.add(componentClass, entry.key, factory);
+                count++;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        int parallelism = Math.max(1, Math.min(MAX_PREFETCH_PARALLELISM, Runtime.getRuntime().availableProcessors() - 1));
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(parallelism, parallelism, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ProfileThreadFactory("ufinjector-prefetch"));
+        // Threads die on their own once prefetch is done.
+        pool.allowCoreThreadTimeOut(true);
+        plan.holdFor(window, unit).start(new PrefetchExecutor(pool), window, unit);
+    }
+
+    /**
+     * @return recorded entries or empty list if profile is missing, corrupted, stale or recorded by another version or build.
+     */
+    static List<Entry> read(File file, long buildStamp, long maxAgeMillis, long nowMillis) {
+        if (!file.isFile() || file.length() > maxFileLength()) {
+            return Collections.emptyList();
+        }
+        DataInputStream input = null;
+        try {
+            CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(new FileInputStream(file)), new CRC32());
+            input = new DataInputStream(checked);
+            if (input.readInt() != MAGIC || input.readShort() != VERSION || input.readLong() != buildStamp) {
+                return Collections.emptyList();
+            }
+            long recordedAt = input.readLong();
+            if (recordedAt > nowMillis || nowMillis - recordedAt > maxAgeMillis) {
+                return Collections.emptyList();
+            }
+            int count = input.readUnsignedShort();
+            if (count > MAX_ENTRIES) {
+                return Collections.emptyList();
+            }
+            List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Entry entry = readEntry(input);
+                if (entry != null) {
+                    entries.add(entry);
+                }
+            }
+            long crc = checked.getChecksum().getValue();
+            if (input.readLong() != crc) {
+                return Collections.emptyList();
+            }
+            return entries;
+        } catch (IOException | RuntimeException e) {
+            return Collections.emptyList();
+        } finally {
+            closeQuietly(input);
+        }
+    }
+
+    /**
+     * Write profile to temporary file and move it in place, so reader never sees half-written profile.
+     */
+    static void write(File file, long buildStamp, long nowMillis, List<Entry> entries) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        DataOutputStream output = null;
+        try {
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)), new CRC32());
+            output = new DataOutputStream(checked);
+            output.writeInt(MAGIC);
+            output.writeShort(VERSION);
+            output.writeLong(buildStamp);
+            output.writeLong(nowMillis);
+            int count = Math.min(entries.size(), MAX_ENTRIES);
+            output.writeShort(count);
+            for (int i = 0; i < count; i++) {
+                writeEntry(output, entries.get(i));
+            }
+            output.writeLong(checked.getChecksum().getValue());
+            output.close();
+            output = null;
+            if (!tmp.renameTo(file)) {
+                throw new IOException("Can't move profile to " + file);
+            }
+        } finally {
+            closeQuietly(output);
+            if (tmp.exists()) {
+                tmp.delete();
+            }
+        }
+    }
+
+    private static Entry readEntry(DataInputStream input) throws IOException {
+        String className = input.readUTF();
+        byte keyType = input.readByte();
+        Object key;
+        switch (keyType) {
+            case KEY_DEFAULT:
+                key = null;
+                break;
+            case KEY_STRING:
+                key = input.readUTF();
+                break;
+            case KEY_INT:
+                key = input.readInt();
+                break;
+            case KEY_LONG:
+                key = input.readLong();
+                break;
+            case KEY_ENUM:
+                key = readEnum(input.readUTF(), input.readUTF());
+                break;
+            default:
+                throw new IOException("Unknown key type " + keyType);
+        }
+        if (keyType != KEY_DEFAULT && key == null) {
+            return null;
+        }
+        return new Entry(className, key);
+    }
+
+    /**
+     * @return enum constant or null if it doesn't exist in this build.
+     */
+    @SuppressWarnings("unchecked")
+    private static Object readEnum(String className, String name) {
+        try {
+            return Enum.valueOf((Class) Class.forName(className, false, StartupProfile.class.getClassLoader()), name);
+        } catch (ClassNotFoundException | IllegalArgumentException | ClassCastException e) {
+            return null;
+        }
+    }
+
+    private static void writeEntry(DataOutputStream output, Entry entry) throws IOException {
+        output.writeUTF(entry.className);
+        Object key = entry.key;
+        if (key == null) {
+            output.writeByte(KEY_DEFAULT);
+        } else if (key instanceof String) {
+            output.writeByte(KEY_STRING);
+            output.writeUTF((String) key);
+        } else if (key instanceof Integer) {
+            output.writeByte(KEY_INT);
+            output.writeInt((Integer) key);
+        } else if (key instanceof Long) {
+            output.writeByte(KEY_LONG);
+            output.writeLong((Long) key);
+        } else {
+            Enum enumKey = (Enum) key;
+            output.writeByte(KEY_ENUM);
+            output.writeUTF(enumKey.getDeclaringClass().getName());
+            output.writeUTF(enumKey.name());
+        }
+    }
+
+    private static boolean isRecordable(Class componentClass, Object key) {
+        if (componentClass.getName().length() > MAX_NAME_LENGTH) {
+            return false;
+        }
+        return key == null || key instanceof String && ((String) key).length() <= MAX_NAME_LENGTH || key instanceof Integer
+                || key instanceof Long || key instanceof Enum;
+    }
+
+    private static long maxFileLength() {
+        // Header, entries with longest names and keys, checksum.
+        return 32 + MAX_ENTRIES * (2 + 3 * (MAX_NAME_LENGTH * 3 + 2));
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    static final class Entry {
+        final String className;
+        final Object key;
+
+        Entry(String className, Object key) {
+            this.className = className;
+            this.key = key;
+        }
+    }
+
+    /**
+     * Records first request of every component made by application (not by prefetch) while it is registered as cache listener.
+     */
+    private static class Recorder implements ComponentCacheListener {
+        private final List<Entry> mEntries = new ArrayList<>();
+        private final Set<Object> mRecorded = new HashSet<>();
+
+        synchronized List<Entry> getEntries() {
+            return new ArrayList<>(mEntries);
+        }
+
+        @Override
+        public void onHit(Class componentClass, Object key) {
+            record(componentClass, key);
+        }
+
+        @Override
+        public void onMiss(Class componentClass, Object key) {
+            record(componentClass, key);
+        }
+
+        @Override
+        public void onCreated(Class componentClass, Object key, long durationNanos) {
+        }
+
+        @Override
+        public void onRetained(Class componentClass, Object key) {
+        }
+
+        @Override
+        public void onRevived(Class componentClass, Object key, long retainedNanos) {
+            record(componentClass, key);
+        }
+
+        @Override
+        public void onHeld(Class componentClass, Object key) {
+        }
+
+        @Override
+        public void onReclaimed(Class componentClass, Object key, long heldNanos) {
+            record(componentClass, key);
+        }
+
+        @Override
+        public void onReleased(Class componentClass, Object key, ReleaseReason reason, long retainedNanos) {
+        }
+
+        private synchronized void record(Class componentClass, Object key) {
+            if (mEntries.size() >= MAX_ENTRIES || sPrefetching.get() != null || !isRecordable(componentClass, key)) {
+                return;
+            }
+            if (mRecorded.add(ComponentKey.of(componentClass, key))) {
+                mEntries.add(new Entry(componentClass.getName(), key));
+            }
+        }
+    }
+
+    private static class PrefetchExecutor implements Executor {
+        private final Executor mExecutor;
+
+        PrefetchExecutor(Executor executor) {
+            mExecutor = executor;
+        }
+
+        @Override
+        public void execute(final Runnable command) {
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    sPrefetching.set(Boolean.TRUE);
+                    try {
+                        command.run();
+                    } finally {
+                        sPrefetching.remove();
+                    }
+                }
+            });
+        }
+    }
+
+    private static class ProfileThreadFactory implements ThreadFactory {
+        private final String mName;
+
+        ProfileThreadFactory(String name) {
+            mName = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, mName);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package knight704.ufinjector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Secondary indexes of cached components: by tags of requests and by String keys sorted, so components of a tag or key prefix
+ * (i.e of user session) are found in time proportional to their number instead of scanning the whole cache.
+ * <p>
+ * Only tagged and String-keyed components are tracked, so other components cost a single lookup on release.
+ * Component whose creation failed is forgotten once its placeholder leaves cache.
+ */
+class TagIndex {
+    private final ConcurrentMap<Object, Set<Object>> mTagged = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Object, Set<Object>> mTagsOf = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Set<Object>> mKeyed = new ConcurrentSkipListMap<>();
+
+    synchronized void tag(Object cacheKey, Object tag) {
+        Set<Object> tags = mTagsOf.get(cacheKey);
+        if (tags == null) {
+            tags = new HashSet<>(2);
+            mTagsOf.put(cacheKey, tags);
+        }
+        if (!tags.add(tag)) {
+            return;
+        }
+        Set<Object> tagged = mTagged.get(tag);
+        if (tagged == null) {
+            tagged = new LinkedHashSet<>();
+            mTagged.put(tag, tagged);
+        }
+        tagged.add(cacheKey);
+    }
+
+    /**
+     * Index component with String key.
+     */
+    synchronized void addKey(ComponentKey cacheKey) {
+        String key = (String) cacheKey.key;
+        Set<Object> keyed = mKeyed.get(key);
+        if (keyed == null) {
+            keyed = new HashSet<>(2);
+            mKeyed.put(key, keyed);
+        }
+        keyed.add(cacheKey);
+    }
+
+    /**
+     * Forget component, i.e once it is released.
+     */
+    void remove(Object cacheKey) {
+        boolean keyed = cacheKey instanceof ComponentKey && ((ComponentKey) cacheKey).key instanceof String;
+        if (!mTagsOf.containsKey(cacheKey) && !(keyed && mKeyed.containsKey((String) ((ComponentKey) cacheKey).key))) {
+            return;
+        }
+        synchronized (this) {
+            untag(cacheKey);
+            if (keyed) {
+                String key = (String) ((ComponentKey) cacheKey).key;
+                Set<Object> sameKey = mKeyed.get(key);
+                if (sameKey != null && sameKey.remove(cacheKey) && sameKey.isEmpty()) {
+                    mKeyed.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Forget tag.
+     *
+     * @return cache keys of components that were tagged with it.
+     */
+    synchronized Set<Object> removeTag(Object tag) {
+        Set<Object> tagged = mTagged.remove(tag);
+        if (tagged == null) {
+            return Collections.emptySet();
+        }
+        for (Object cacheKey : tagged) {
+            Set<Object> tags = mTagsOf.get(cacheKey);
+            if (tags != null && tags.remove(tag) && tags.isEmpty()) {
+                mTagsOf.remove(cacheKey);
+            }
+        }
+        return tagged;
+    }
+
+    /**
+     * Forget components whose String key starts with prefix.
+     *
+     * @return their cache keys.
+     */
+    synchronized List<Object> removeKeyPrefix(String prefix) {
+        List<Object> matched = new ArrayList<>();
+        Map<String, Set<Object>> tail = mKeyed.tailMap(prefix, true);
+        for (Map.Entry<String, Set<Object>> entry : tail.entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            matched.addAll(entry.getValue());
+        }
+        for (Object cacheKey : matched) {
+            remove(cacheKey);
+        }
+        return matched;
+    }
+
+    /**
+     * @return number of tagged or keyed components.
+     */
+    synchronized int size() {
+        Set<Object> indexed = new HashSet<>(mTagsOf.keySet());
+        for (Set<Object> keyed : mKeyed.values()) {
+            indexed.addAll(keyed);
+        }
+        return indexed.size();
+    }
+
+    private void untag(Object cacheKey) {
+        Set<Object> tags = mTagsOf.remove(cacheKey);
+        if (tags == null) {
+            return;
+        }
+        for (Object tag : tags) {
+            Set<Object> tagged = mTagged.get(tag);
+            if (tagged != null && tagged.remove(cacheKey) && tagged.isEmpty()) {
+                mTagged.remove(tag);
+            }
+        }
+    }
+}
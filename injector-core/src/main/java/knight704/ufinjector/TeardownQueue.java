@@ -0,0 +1,99 @@
+package knight704.ufinjector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Collects released {@link Disposable} components and disposes them in batches on executor. Without executor components are disposed
+ * right away on releasing thread.
+ */
+class TeardownQueue {
+    static final int MAX_BATCH_SIZE = 16;
+
+    private final Runnable mDrainTask = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+    private List<Disposable> mPending = new ArrayList<>();
+    private boolean mDrainScheduled;
+    private volatile Executor mExecutor;
+
+    void setExecutor(Executor executor) {
+        mExecutor = executor;
+    }
+
+    void enqueue(Object component) {
+        if (!(component instanceof Disposable)) {
+            return;
+        }
+        Executor executor = mExecutor;
+        if (executor == null) {
+            ((Disposable) component).dispose();
+            return;
+        }
+        synchronized (this) {
+            mPending.add((Disposable) component);
+            if (mDrainScheduled) {
+                return;
+            }
+            mDrainScheduled = true;
+        }
+        schedule(executor);
+    }
+
+    private void schedule(Executor executor) {
+        try {
+            executor.execute(mDrainTask);
+        } catch (RuntimeException e) {
+            // I.e executor is shut down, dispose on this thread instead of leaving components queued for drain that never runs.
+            synchronized (this) {
+                mDrainScheduled = false;
+            }
+            drain();
+        }
+    }
+
+    /**
+     * Dispose up to {@link #MAX_BATCH_SIZE} components, the rest is left for the next run of executor so single run stays short.
+     */
+    private void drain() {
+        List<Disposable> batch;
+        boolean hasMore;
+        synchronized (this) {
+            if (mPending.size() <= MAX_BATCH_SIZE) {
+                batch = mPending;
+                mPending = new ArrayList<>();
+            } else {
+                List<Disposable> head = mPending.subList(0, MAX_BATCH_SIZE);
+                batch = new ArrayList<>(head);
+                head.clear();
+            }
+            hasMore = !mPending.isEmpty();
+            mDrainScheduled = hasMore;
+        }
+        RuntimeException error = null;
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                batch.get(i).dispose();
+            } catch (RuntimeException e) {
+                if (error == null) {
+                    error = e;
+                }
+            }
+        }
+        if (hasMore) {
+            Executor executor = mExecutor;
+            if (executor != null) {
+                schedule(executor);
+            } else {
+                drain();
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package knight704.ufinjector.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Mark Dagger {@link dagger.Component} to let injector-compiler generate singleton {@link knight704.ufinjector.ComponentFactory} for it.
+ * <p>
+ * For component {@code MainActivity.MainComponent} factory {@code MainActivity_MainComponentFactory} is generated in the same package.
+ * It creates component via Dagger's {@code DaggerMainActivity_MainComponent.create()} and registers component class in
+ * {@link knight704.ufinjector.ComponentRegistry} as validated one, so no reflection is used to check it at runtime:
+ * <pre>
+ * Injector.with(this)
+ *   .build(MainComponent.class, MainActivity_MainComponentFactory.INSTANCE)
+ *   .inject(this);
+ * </pre>
+ * Component should not have dependencies, custom builder or modules without default constructor, otherwise compilation fails.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface GenerateFactory {
+}
@@ -0,0 +1,20 @@
+package knight704.ufinjector.releasers;
+
+import knight704.ufinjector.ReleaseReason;
+
+public interface ComponentReleaser {
+    void onRegisterReleaser(OnReleaseListener listener);
+
+    void onUnregisterReleaser();
+
+    public interface OnReleaseListener {
+        void onRelease(boolean canRetain);
+    }
+
+    /**
+     * Listener that is also told why component is released, releasers call it instead of {@link #onRelease(boolean)} when it is implemented.
+     */
+    public interface OnReleaseReasonListener extends OnReleaseListener {
+        void onRelease(ReleaseReason reason);
+    }
+}
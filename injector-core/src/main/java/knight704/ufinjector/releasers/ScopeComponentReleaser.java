@@ -0,0 +1,68 @@
+package knight704.ufinjector.releasers;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+
+import knight704.ufinjector.ReleaseReason;
+
+/**
+ * Release components of explicit scope (i.e request served by backend) once it is closed. Unlike Activity releaser, single scope is shared
+ * by every request built within it, components are released in reverse order of their requests, so subcomponents go first:
+ * <pre>
+ * ScopeComponentReleaser scope = new ScopeComponentReleaser();
+ * try {
+ *     injector.request(scope).build(RequestComponent.class, RequestComponentFactory.INSTANCE).inject(handler);
+ *     ...
+ * } finally {
+ *     scope.close();
+ * }
+ * </pre>
+ * Scope may be used from several threads.
+ */
+public class ScopeComponentReleaser implements ComponentReleaser, Closeable {
+    private List<OnReleaseListener> mListeners = new ArrayList<>();
+
+    /**
+     * @throws IllegalStateException if scope is closed already.
+     */
+    @Override
+    public synchronized void onRegisterReleaser(OnReleaseListener listener) {
+        if (mListeners == null) {
+            throw new IllegalStateException("Scope is closed");
+        }
+        mListeners.add(listener);
+    }
+
+    @Override
+    public void onUnregisterReleaser() {
+        // Listeners are dropped all at once when scope is closed.
+    }
+
+    public synchronized boolean isClosed() {
+        return mListeners == null;
+    }
+
+    /**
+     * Release components of this scope, does nothing if it is closed already.
+     */
+    @Override
+    public void close() {
+        List<OnReleaseListener> listeners;
+        synchronized (this) {
+            listeners = mListeners;
+            mListeners = null;
+        }
+        if (listeners == null) {
+            return;
+        }
+        for (int i = listeners.size() - 1; i >= 0; i--) {
+            OnReleaseListener listener = listeners.get(i);
+            if (listener instanceof OnReleaseReasonListener) {
+                ((OnReleaseReasonListener) listener).onRelease(ReleaseReason.FINISH);
+            } else {
+                listener.onRelease(false);
+            }
+        }
+    }
+}
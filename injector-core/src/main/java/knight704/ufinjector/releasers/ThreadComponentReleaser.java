@@ -0,0 +1,117 @@
+package knight704.ufinjector.releasers;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Release components bound to thread once it terminates. Termination is checked periodically by single daemon thread, so thread from pool
+ * (that is never terminated) should close its releaser when task is done:
+ * <pre>
+ * try {
+ *     injector.request(ThreadComponentReleaser.current()).build(WorkerComponent.class, WorkerComponentFactory.INSTANCE).inject(this);
+ *     ...
+ * } finally {
+ *     ThreadComponentReleaser.current().close();
+ * }
+ * </pre>
+ * See {@link VirtualThreadComponentReleaser} for tasks that run on their own thread.
+ */
+public class ThreadComponentReleaser extends ScopeComponentReleaser {
+    static final long POLL_MILLIS = 1000;
+    private static final ThreadLocal<ThreadComponentReleaser> sCurrent = new ThreadLocal<>();
+
+    private final Thread mThread;
+
+    ThreadComponentReleaser(Thread thread) {
+        mThread = thread;
+    }
+
+    /**
+     * @return releaser of current thread, new one is created if there is none or it was closed.
+     */
+    public static ThreadComponentReleaser current() {
+        ThreadComponentReleaser releaser = sCurrent.get();
+        if (releaser == null || releaser.isClosed()) {
+            releaser = new ThreadComponentReleaser(Thread.currentThread());
+            sCurrent.set(releaser);
+            Reaper.INSTANCE.watch(releaser);
+        }
+        return releaser;
+    }
+
+    /**
+     * Make releaser current one of its thread, it is closed by its owner instead of being watched.
+     */
+    static void bind(ThreadComponentReleaser releaser) {
+        sCurrent.set(releaser);
+    }
+
+    public Thread getThread() {
+        return mThread;
+    }
+
+    @Override
+    public void close() {
+        if (Thread.currentThread() == mThread && sCurrent.get() == this) {
+            sCurrent.remove();
+        }
+        Reaper.INSTANCE.unwatch(this);
+        super.close();
+    }
+
+    /**
+     * Closes releasers of terminated threads, polls only while there are releasers to watch.
+     */
+    private static class Reaper implements Runnable {
+        static final Reaper INSTANCE = new Reaper();
+
+        private final Set<ThreadComponentReleaser> mWatched = Collections.newSetFromMap(new ConcurrentHashMap<ThreadComponentReleaser, Boolean>());
+        private ScheduledThreadPoolExecutor mExecutor;
+        private ScheduledFuture<?> mPoll;
+
+        synchronized void watch(ThreadComponentReleaser releaser) {
+            mWatched.add(releaser);
+            if (mPoll == null) {
+                if (mExecutor == null) {
+                    mExecutor = new ScheduledThreadPoolExecutor(1, new ReaperThreadFactory());
+                    mExecutor.setKeepAliveTime(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    mExecutor.allowCoreThreadTimeOut(true);
+                }
+                mPoll = mExecutor.scheduleWithFixedDelay(this, POLL_MILLIS, POLL_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        void unwatch(ThreadComponentReleaser releaser) {
+            mWatched.remove(releaser);
+        }
+
+        @Override
+        public void run() {
+            for (ThreadComponentReleaser releaser : mWatched) {
+                if (!releaser.mThread.isAlive()) {
+                    releaser.close();
+                }
+            }
+            synchronized (this) {
+                if (mWatched.isEmpty()) {
+                    mPoll.cancel(false);
+                    mPoll = null;
+                }
+            }
+        }
+    }
+
+    private static class ReaperThreadFactory implements ThreadFactory {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "ufinjector-thread-reaper");
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package knight704.ufinjector.releasers;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Releaser of task started on its own virtual thread, components built with {@link ThreadComponentReleaser#current()} inside the task are
+ * released as soon as it completes, so nothing is polled even for millions of threads. Virtual threads are available since Java 21,
+ * task is started on platform thread on older runtimes (and on Android):
+ * <pre>
+ * VirtualThreadComponentReleaser.start(new Runnable() {
+ *     public void run() {
+ *         injector.request(ThreadComponentReleaser.current()).build(RequestComponent.class, RequestComponentFactory.INSTANCE).inject(handler);
+ *         handler.handle(request);
+ *     }
+ * });
+ * </pre>
+ */
+public class VirtualThreadComponentReleaser extends ThreadComponentReleaser {
+    private static final Method OF_VIRTUAL;
+    private static final Method START;
+
+    static {
+        Method ofVirtual = null;
+        Method start = null;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            start = ofVirtual.getReturnType().getMethod("start", Runnable.class);
+        } catch (NoSuchMethodException ignored) {
+            // Runtime without virtual threads.
+        }
+        OF_VIRTUAL = ofVirtual;
+        START = start;
+    }
+
+    private VirtualThreadComponentReleaser(Thread thread) {
+        super(thread);
+    }
+
+    public static boolean isVirtualThreadSupported() {
+        return START != null;
+    }
+
+    /**
+     * Start task on new virtual thread (platform one if they are not supported).
+     *
+     * @return started thread.
+     */
+    public static Thread start(final Runnable task) {
+        if (task == null) {
+            throw new IllegalArgumentException("Task is not provided");
+        }
+        Runnable scoped = new Runnable() {
+            @Override
+            public void run() {
+                VirtualThreadComponentReleaser releaser = new VirtualThreadComponentReleaser(Thread.currentThread());
+                bind(releaser);
+                try {
+                    task.run();
+                } finally {
+                    releaser.close();
+                }
+            }
+        };
+        if (START == null) {
+            Thread thread = new Thread(scoped, "ufinjector-scoped-task");
+            thread.start();
+            return thread;
+        }
+        try {
+            return (Thread) START.invoke(OF_VIRTUAL.invoke(null), scoped);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Can't start virtual thread", e);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Can't start virtual thread", cause);
+        }
+    }
+}
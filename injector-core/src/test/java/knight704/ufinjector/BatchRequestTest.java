@@ -0,0 +1,180 @@
+package knight704.ufinjector;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import dagger.Component;
+import knight704.ufinjector.releasers.ComponentReleaser;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class BatchRequestTest {
+    private CoreInjector mInjector;
+    private ComponentReleaser mReleaser;
+    private ExecutorService mExecutor;
+
+    @Before
+    public void setUp() {
+        mInjector = new CoreInjector();
+        mReleaser = mock(ComponentReleaser.class);
+        mExecutor = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testBatchShouldCreateComponentsInParallel() throws Exception {
+        // Every factory waits for the other one, so batch completes only if they are created on different threads.
+        final CountDownLatch created = new CountDownLatch(2);
+        BatchComponents components = mInjector.requestBatch(mReleaser)
+                .add(FirstComponent.class, new FirstFactory(created))
+                .add(SecondComponent.class, "key", new SecondFactory(created))
+                .build(mExecutor);
+
+        assertThat(components.isDone(), is(true));
+        assertThat(components.get(FirstComponent.class), sameInstance(mInjector.getOrCreate(FirstComponent.class, new FirstFactory(null))));
+        assertThat(components.get(SecondComponent.class, "key"), sameInstance(mInjector.getOrCreate(SecondComponent.class, "key", new SecondFactory(null))));
+        verify(mReleaser, times(1)).onRegisterReleaser(any(ComponentReleaser.OnReleaseListener.class));
+    }
+
+    @Test
+    public void testReleaseShouldReleaseEveryComponentOfBatch() throws Exception {
+        BatchRequest request = mInjector.requestBatch(mReleaser)
+                .add(FirstComponent.class, new FirstFactory(null))
+                .add(SecondComponent.class, new SecondFactory(null));
+        BatchComponents components = request.build(mExecutor);
+
+        request.onRelease(ReleaseReason.FINISH);
+        assertThat(mInjector.isCached(FirstComponent.class, null), is(false));
+        assertThat(mInjector.isCached(SecondComponent.class, null), is(false));
+        assertThat(mInjector.getOrCreate(FirstComponent.class, new FirstFactory(null)), not(sameInstance(components.get(FirstComponent.class))));
+        verify(mReleaser).onUnregisterReleaser();
+    }
+
+    @Test
+    public void testFailedComponentShouldReleaseWholeBatch() throws Exception {
+        BatchRequest request = mInjector.requestBatch(mReleaser)
+                .add(FirstComponent.class, new FirstFactory(null))
+                .add(SecondComponent.class, new ComponentFactory<SecondComponent>() {
+                    @Override
+                    public SecondComponent create() {
+                        throw new IllegalStateException("Expected");
+                    }
+                });
+        try {
+            request.build(mExecutor);
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), is("Expected"));
+        }
+        assertThat(mInjector.isCached(FirstComponent.class, null), is(false));
+        assertThat(mInjector.isCached(SecondComponent.class, null), is(false));
+    }
+
+    @Test
+    public void testCancelledSharedCreationShouldReleaseBatch() throws Exception {
+        final BatchRequest request = mInjector.requestBatch(mReleaser)
+                .add(FirstComponent.class, new FirstFactory(null));
+        final AtomicReference<BatchComponents> components = new AtomicReference<>();
+        try {
+            mInjector.getOrCreateAsync(FirstComponent.class, new FirstFactory(null), new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    // Batch shares creation of this request, which is cancelled once executor rejects it.
+                    components.set(request.buildAsync(mExecutor));
+                    throw new RejectedExecutionException("Executor is shut down");
+                }
+            });
+            fail();
+        } catch (RejectedExecutionException expected) {
+        }
+
+        try {
+            components.get().get(FirstComponent.class);
+            fail();
+        } catch (CancellationException expected) {
+        }
+        assertThat(mInjector.isCached(FirstComponent.class, null), is(false));
+        assertThat(mInjector.getReferenceCount(FirstComponent.class, null), is(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateComponentShouldThrowException() throws Exception {
+        mInjector.requestBatch(mReleaser)
+                .add(FirstComponent.class, "key", new FirstFactory(null))
+                .add(FirstComponent.class, "key", new FirstFactory(null));
+    }
+
+    @Component
+    interface FirstComponent {
+    }
+
+    @Component
+    interface SecondComponent {
+    }
+
+    private static void await(CountDownLatch latch) {
+        if (latch == null) {
+            return;
+        }
+        latch.countDown();
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Components are not created in parallel");
+            }
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class FirstFactory implements ComponentFactory<FirstComponent> {
+        private final CountDownLatch mLatch;
+
+        FirstFactory(CountDownLatch latch) {
+            mLatch = latch;
+        }
+
+        @Override
+        public FirstComponent create() {
+            await(mLatch);
+            return new FirstComponent() {
+            };
+        }
+    }
+
+    private static class SecondFactory implements ComponentFactory<SecondComponent> {
+        private final CountDownLatch mLatch;
+
+        SecondFactory(CountDownLatch latch) {
+            mLatch = latch;
+        }
+
+        @Override
+        public SecondComponent create() {
+            await(mLatch);
+            return new SecondComponent() {
+            };
+        }
+    }
+}
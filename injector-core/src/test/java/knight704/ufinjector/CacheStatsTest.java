@@ -0,0 +1,143 @@
+package knight704.ufinjector;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class CacheStatsTest {
+    private static final ComponentFactory<MockComponent> FACTORY = new ComponentFactory<MockComponent>() {
+        @Override
+        public MockComponent create() {
+            return new MockComponent();
+        }
+    };
+    private CoreInjector mInjector;
+    private CacheStats mStats;
+
+    @Before
+    public void setUp() {
+        mInjector = new CoreInjector();
+        mStats = new CacheStats();
+        mInjector.addCacheListener(mStats);
+    }
+
+    @Test
+    public void testShouldCountHitsMissesAndCreations() throws Exception {
+        mInjector.getOrCreate(MockComponent.class, FACTORY);
+        mInjector.getOrCreate(MockComponent.class, FACTORY);
+        mInjector.getOrCreate(MockComponent.class, FACTORY);
+        mInjector.getOrCreate(MockComponent.class, "key", FACTORY);
+
+        ComponentStats stats = mStats.snapshot(MockComponent.class);
+        assertThat(stats.getHitCount(), is(2L));
+        assertThat(stats.getMissCount(), is(2L));
+        assertThat(stats.getCreatedCount(), is(2L));
+        assertThat(stats.getLiveCount(), is(2L));
+        long histogramTotal = 0;
+        for (long count : stats.getCreationHistogram()) {
+            histogramTotal += count;
+        }
+        assertThat(histogramTotal, is(2L));
+    }
+
+    @Test
+    public void testShouldCountReleasesByReason() throws Exception {
+        mInjector.getOrCreate(MockComponent.class, "key1", FACTORY);
+        mInjector.getOrCreate(MockComponent.class, "key2", FACTORY);
+        mInjector.getOrCreate(MockComponent.class, "key3", FACTORY);
+
+        mInjector.release(MockComponent.class, "key1", ReleaseReason.STOP);
+        mInjector.release(MockComponent.class, "key2", ReleaseReason.FINISH);
+        mInjector.release(MockComponent.class, "key3");
+        mInjector.release(MockComponent.class, "key3", ReleaseReason.STOP);
+
+        ComponentStats stats = mStats.snapshot(MockComponent.class);
+        assertThat(stats.getLiveCount(), is(0L));
+        assertThat(stats.getReleaseCount(ReleaseReason.STOP), is(1L));
+        assertThat(stats.getReleaseCount(ReleaseReason.FINISH), is(1L));
+        assertThat(stats.getReleaseCount(ReleaseReason.EXPLICIT), is(1L));
+        assertThat(stats.getReleaseCount(ReleaseReason.CONFIG_CHANGE), is(0L));
+    }
+
+    @Test
+    public void testRevivedComponentShouldCountRetainDuration() throws Exception {
+        MockComponent component = mInjector.getOrCreate(MockComponent.class, FACTORY);
+        mInjector.retain(MockComponent.class);
+        Thread.sleep(5);
+
+        assertTrue(component == mInjector.getOrCreate(MockComponent.class, FACTORY));
+        ComponentStats stats = mStats.snapshot(MockComponent.class);
+        assertThat(stats.getRetainedCount(), is(1L));
+        assertThat(stats.getRevivedCount(), is(1L));
+        assertThat(stats.getHitCount(), is(1L));
+        assertThat(stats.getLiveCount(), is(1L));
+        assertTrue(stats.getTotalRetainedNanos() >= 5000000L);
+    }
+
+    @Test
+    public void testEvictedComponentShouldBeReleasedWithEvictedReason() throws Exception {
+        mInjector.setRetainedLimit(1);
+        mInjector.getOrCreate(MockComponent.class, "key1", FACTORY);
+        mInjector.getOrCreate(MockComponent.class, "key2", FACTORY);
+        mInjector.retain(MockComponent.class, "key1");
+        mInjector.retain(MockComponent.class, "key2");
+
+        ComponentStats stats = mStats.snapshot(MockComponent.class);
+        assertThat(stats.getRetainedCount(), is(2L));
+        assertThat(stats.getReleaseCount(ReleaseReason.EVICTED), is(1L));
+        assertThat(stats.getLiveCount(), is(1L));
+    }
+
+    @Test
+    public void testShouldCountGracePeriodHitRate() throws Exception {
+        mInjector.getOrCreate(MockComponent.class, "key1", FACTORY);
+        mInjector.getOrCreate(MockComponent.class, "key2", FACTORY);
+        mInjector.releaseAfter(MockComponent.class, "key1", ReleaseReason.FINISH, 1, TimeUnit.MINUTES);
+        mInjector.releaseAfter(MockComponent.class, "key2", ReleaseReason.FINISH, 1, TimeUnit.MINUTES);
+        mInjector.getOrCreate(MockComponent.class, "key1", FACTORY);
+        mInjector.expireHeld(System.nanoTime() + TimeUnit.MINUTES.toNanos(2));
+
+        ComponentStats stats = mStats.snapshot(MockComponent.class);
+        assertThat(stats.getHeldCount(), is(2L));
+        assertThat(stats.getReclaimedCount(), is(1L));
+        assertThat(stats.getHitCount(), is(1L));
+        assertThat(stats.getGraceHitRate(), is(0.5));
+        assertThat(stats.getReleaseCount(ReleaseReason.FINISH), is(1L));
+        assertThat(stats.getLiveCount(), is(1L));
+    }
+
+    @Test
+    public void testStatsAddedLaterShouldNotCountLiveBelowZero() throws Exception {
+        CoreInjector injector = new CoreInjector();
+        injector.getOrCreate(MockComponent.class, "cached", FACTORY);
+        CacheStats stats = new CacheStats();
+        injector.addCacheListener(stats);
+
+        injector.release(MockComponent.class, "cached", ReleaseReason.STOP);
+        assertThat(stats.snapshot(MockComponent.class).getLiveCount(), is(0L));
+        injector.getOrCreate(MockComponent.class, "created", FACTORY);
+        assertThat(stats.snapshot(MockComponent.class).getLiveCount(), is(1L));
+        assertThat(stats.snapshot(MockComponent.class).getReleaseCount(ReleaseReason.STOP), is(1L));
+    }
+
+    @Test
+    public void testSnapshotShouldContainOnlySeenClasses() throws Exception {
+        assertThat(mStats.snapshot(MockComponent.class), is(nullValue()));
+
+        mInjector.getOrCreate(MockComponent.class, FACTORY);
+
+        Map<Class, ComponentStats> snapshot = mStats.snapshot();
+        assertThat(snapshot.size(), is(1));
+        assertThat(snapshot.get(MockComponent.class).getCreatedCount(), is(1L));
+    }
+
+    private static class MockComponent {
+    }
+}
@@ -0,0 +1,77 @@
+package knight704.ufinjector;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringWriter;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class ChromeTraceWriterTest {
+    private static final ComponentFactory<MockComponent> FACTORY = new ComponentFactory<MockComponent>() {
+        @Override
+        public MockComponent create() {
+            return new MockComponent();
+        }
+    };
+    private CoreInjector mInjector;
+    private StringWriter mOutput;
+    private ChromeTraceWriter mTrace;
+
+    @Before
+    public void setUp() {
+        mInjector = new CoreInjector();
+        mOutput = new StringWriter();
+        mTrace = new ChromeTraceWriter(mOutput);
+        mInjector.setTracer(mTrace);
+    }
+
+    @Test
+    public void testShouldWriteSectionsOfLookupCreationAndRelease() throws Exception {
+        mInjector.getOrCreate(MockComponent.class, FACTORY);
+        mInjector.release(MockComponent.class);
+        mTrace.close();
+
+        String trace = mOutput.toString();
+        assertTrue(trace.startsWith("[") && trace.trim().endsWith("]"));
+        assertThat(trace, containsString("\"name\":\"get MockComponent\""));
+        assertThat(trace, containsString("\"name\":\"create MockComponent\""));
+        assertThat(trace, containsString("\"name\":\"release MockComponent\""));
+        assertThat(trace, containsString("\"name\":\"thread_name\""));
+        assertThat(count(trace, "\"ph\":\"B\""), is(3));
+        assertThat(count(trace, "\"ph\":\"E\""), is(3));
+        // Creation is nested into lookup.
+        assertTrue(trace.indexOf("get MockComponent") < trace.indexOf("create MockComponent"));
+    }
+
+    @Test
+    public void testShouldEscapeKeyOfComponent() throws Exception {
+        mInjector.getOrCreate(MockComponent.class, "chat \"42\"", FACTORY);
+        mTrace.close();
+
+        assertThat(mOutput.toString(), containsString("\"key\":\"chat \\\"42\\\"\""));
+    }
+
+    @Test
+    public void testShouldWriteNothingAfterClose() throws Exception {
+        mTrace.close();
+        mInjector.getOrCreate(MockComponent.class, FACTORY);
+
+        assertThat(mOutput.toString(), not(containsString("MockComponent")));
+    }
+
+    private static int count(String text, String token) {
+        int count = 0;
+        for (int i = text.indexOf(token); i >= 0; i = text.indexOf(token, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    private static class MockComponent {
+    }
+}
@@ -0,0 +1,65 @@
+package knight704.ufinjector;
+
+import org.junit.Test;
+
+import dagger.Component;
+import dagger.Subcomponent;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class ComponentRegistryTest {
+    @Test
+    public void testAnnotatedClassesShouldBeDaggerComponents() throws Exception {
+        assertThat(ComponentRegistry.isDaggerComponent(AnnotatedComponent.class), is(true));
+        assertThat(ComponentRegistry.isDaggerComponent(AnnotatedSubcomponent.class), is(true));
+        assertThat(ComponentRegistry.isDaggerComponent(NotComponent.class), is(false));
+    }
+
+    @Test
+    public void testRegisteredClassShouldBeValidWithoutAnnotation() throws Exception {
+        ComponentFactory<RegisteredComponent> factory = new ComponentFactory<RegisteredComponent>() {
+            @Override
+            public RegisteredComponent create() {
+                return new RegisteredComponent();
+            }
+        };
+        assertThat(ComponentRegistry.getFactory(RegisteredComponent.class), nullValue());
+
+        ComponentRegistry.register(RegisteredComponent.class, factory);
+
+        assertThat(ComponentRegistry.isDaggerComponent(RegisteredComponent.class), is(true));
+        assertThat(ComponentRegistry.getFactory(RegisteredComponent.class), sameInstance(factory));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRegisterWithoutFactoryShouldThrowException() throws Exception {
+        ComponentRegistry.register(RegisteredComponent.class, null);
+    }
+
+    @Test
+    public void testSlotOfClassShouldBeStable() throws Exception {
+        int slot = ComponentRegistry.slotOf(AnnotatedComponent.class);
+
+        assertThat(ComponentRegistry.slotOf(AnnotatedComponent.class), is(slot));
+        assertThat(ComponentRegistry.findSlot(AnnotatedComponent.class), is(slot));
+        assertThat(ComponentRegistry.slotOf(AnnotatedSubcomponent.class) != slot, is(true));
+        assertThat(ComponentRegistry.findSlot(NotComponent.class), is(-1));
+    }
+
+    @Component
+    private static class AnnotatedComponent {
+    }
+
+    @Subcomponent
+    private static class AnnotatedSubcomponent {
+    }
+
+    private static class NotComponent {
+    }
+
+    private static class RegisteredComponent {
+    }
+}
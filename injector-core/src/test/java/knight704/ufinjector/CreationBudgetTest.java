@@ -0,0 +1,117 @@
+package knight704.ufinjector;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CreationBudgetTest {
+    private static final long SLOW_CREATION_MS = 80;
+    private CoreInjector mInjector;
+    private final List<CreationBudgetViolation> mViolations = new ArrayList<>();
+    private final CreationBudget.Listener mListener = new CreationBudget.Listener() {
+        @Override
+        public void onViolation(CreationBudgetViolation violation) {
+            mViolations.add(violation);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        mInjector = new CoreInjector();
+    }
+
+    @Test
+    public void testSlowCreationShouldBeReportedWithSampledStack() throws Exception {
+        mInjector.setCreationBudget(new CreationBudget(Thread.currentThread(), 10, TimeUnit.MILLISECONDS)
+                .penaltyListener(mListener)
+                .sampleEvery(5, TimeUnit.MILLISECONDS));
+        mInjector.getOrCreate(MockComponent.class, "key", new SlowFactory());
+
+        assertThat(mViolations.size(), is(1));
+        CreationBudgetViolation violation = mViolations.get(0);
+        assertThat(violation.getComponentClass(), sameInstance((Class) MockComponent.class));
+        assertThat(violation.getKey(), is((Object) "key"));
+        assertTrue(violation.getDurationNanos() >= TimeUnit.MILLISECONDS.toNanos(SLOW_CREATION_MS));
+        assertTrue(hasFrame(violation.getStackTrace(), SlowFactory.class.getName(), "create"));
+    }
+
+    @Test
+    public void testPenaltyThrowShouldFailCreation() throws Exception {
+        mInjector.setCreationBudget(new CreationBudget(Thread.currentThread(), 10, TimeUnit.MILLISECONDS).penaltyThrow());
+        try {
+            mInjector.getOrCreate(MockComponent.class, new SlowFactory());
+            fail();
+        } catch (CreationBudgetViolation expected) {
+            assertThat(expected.getComponentClass(), sameInstance((Class) MockComponent.class));
+            assertThat(expected.getKey(), nullValue());
+        }
+        assertThat(mInjector.isCached(MockComponent.class, null), is(false));
+    }
+
+    @Test
+    public void testCreationWithinBudgetOrOnOtherThreadShouldNotBeReported() throws Exception {
+        mInjector.setCreationBudget(new CreationBudget(Thread.currentThread(), 10, TimeUnit.SECONDS).penaltyListener(mListener));
+        mInjector.getOrCreate(MockComponent.class, new SlowFactory());
+
+        mInjector.setCreationBudget(new CreationBudget(new Thread(), 10, TimeUnit.MILLISECONDS).penaltyListener(mListener).penaltyThrow());
+        mInjector.getOrCreate(MockComponent.class, "key", new SlowFactory());
+
+        assertThat(mViolations.size(), is(0));
+    }
+
+    @Test
+    public void testFailedSlowCreationShouldStopSampling() throws Exception {
+        CreationBudget budget = new CreationBudget(Thread.currentThread(), 10, TimeUnit.MILLISECONDS)
+                .penaltyListener(mListener)
+                .sampleEvery(5, TimeUnit.MILLISECONDS);
+        mInjector.setCreationBudget(budget);
+        try {
+            mInjector.getOrCreate(MockComponent.class, new SlowFactory() {
+                @Override
+                public MockComponent create() {
+                    super.create();
+                    throw new IllegalStateException("Graph is broken");
+                }
+            });
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        assertThat(budget.getSamplingCount(), is(0));
+        assertThat(mViolations.size(), is(0));
+    }
+
+    private static boolean hasFrame(StackTraceElement[] stack, String className, String methodName) {
+        for (StackTraceElement element : stack) {
+            if (element.getClassName().equals(className) && element.getMethodName().equals(methodName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class SlowFactory implements ComponentFactory<MockComponent> {
+        @Override
+        public MockComponent create() {
+            try {
+                Thread.sleep(SLOW_CREATION_MS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return new MockComponent();
+        }
+    }
+
+    private static class MockComponent {
+    }
+}
@@ -0,0 +1,348 @@
+package knight704.ufinjector;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import dagger.Component;
+import dagger.Lazy;
+import knight704.ufinjector.releasers.ComponentReleaser;
+
+import static junit.framework.Assert.assertTrue;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SuppressWarnings("unchecked")
+@RunWith(MockitoJUnitRunner.class)
+public class InjectRequestTest {
+    @Mock
+    protected ComponentCache mMockComponentCache;
+    @Mock
+    protected ComponentReleaser mMockReleaser;
+    @Mock
+    protected MockComponent mMockComponent;
+    @Mock
+    protected ComponentFactory mMockFactory;
+
+    private InjectRequest prepareRequest() {
+        return new InjectRequest(mMockComponentCache, mMockReleaser);
+    }
+
+    @Before
+    public void setUp() {
+        when(mMockFactory.create()).thenReturn(mMockComponent);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullComponentClassOrFactoryShouldThrowException() throws Exception {
+        prepareRequest().build(null, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullDuplicateKeyShouldThrowException() throws Exception {
+        prepareRequest().allowComponentDuplicates(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotAnnotatedComponentShouldThrowException() throws Exception {
+        prepareRequest().build(NotComponent.class, new ComponentFactory<NotComponent>() {
+            @Override
+            public NotComponent create() {
+                return new NotComponent();
+            }
+        });
+    }
+
+    @Test
+    public void testBuildShouldAddressCacheToGetComponent() throws Exception {
+        prepareRequest().build(MockComponent.class, mMockFactory);
+        verify(mMockComponentCache).getOrCreate(MockComponent.class, mMockFactory);
+    }
+
+    @Test
+    public void testMultipleBuildsToSameComponentShouldReturnSameInstance() throws Exception {
+        MockComponent comp1 = prepareRequest().build(MockComponent.class, mMockFactory);
+        MockComponent comp2 = prepareRequest().build(MockComponent.class, mMockFactory);
+        MockComponent comp3 = prepareRequest().build(MockComponent.class, mMockFactory);
+
+        verify(mMockComponentCache, times(3)).getOrCreate(MockComponent.class, mMockFactory);
+        assertTrue(comp1 == comp2 && comp2 == comp3);
+    }
+
+    @Test
+    public void testAllowComponentDuplicatesShouldGetComponentByKey() throws Exception {
+        prepareRequest().allowComponentDuplicates("key1")
+                .build(MockComponent.class, mMockFactory);
+        prepareRequest().allowComponentDuplicates("key2")
+                .build(MockComponent.class, mMockFactory);
+
+        verify(mMockComponentCache).getOrCreate(MockComponent.class, "key1", mMockFactory);
+        verify(mMockComponentCache).getOrCreate(MockComponent.class, "key2", mMockFactory);
+    }
+
+    @Test
+    public void testBuildAsyncShouldAddressCacheWithExecutor() throws Exception {
+        Executor executor = mock(Executor.class);
+        prepareRequest().allowComponentDuplicates("key")
+                .buildAsync(MockComponent.class, mMockFactory, executor);
+        prepareRequest().buildAsync(MockComponent.class, mMockFactory, executor);
+
+        verify(mMockComponentCache).getOrCreateAsync(MockComponent.class, "key", mMockFactory, executor);
+        verify(mMockComponentCache).getOrCreateAsync(MockComponent.class, mMockFactory, executor);
+    }
+
+    @Test
+    public void testBuildWithParentShouldAttachComponentToParent() throws Exception {
+        prepareRequest().allowComponentDuplicates("key")
+                .parent(MockComponent.class, "parentKey")
+                .build(MockComponent.class, mMockFactory);
+        prepareRequest().parent(MockComponent.class)
+                .build(MockComponent.class, mMockFactory);
+
+        verify(mMockComponentCache).attach(MockComponent.class, "key", MockComponent.class, "parentKey");
+        verify(mMockComponentCache).attach(MockComponent.class, null, MockComponent.class, null);
+    }
+
+    @Test
+    public void testBuildWithTagsShouldTagComponent() throws Exception {
+        prepareRequest().allowComponentDuplicates("key")
+                .tag("session")
+                .tag(42)
+                .build(MockComponent.class, mMockFactory);
+
+        verify(mMockComponentCache).tag(MockComponent.class, "key", "session");
+        verify(mMockComponentCache).tag(MockComponent.class, "key", 42);
+    }
+
+    @Test
+    public void testBuildLazyShouldReserveSlotAndCreateOnFirstGet() throws Exception {
+        Lazy<MockComponent> lazy = prepareRequest().allowComponentDuplicates("key")
+                .buildLazy(MockComponent.class, mMockFactory);
+
+        verify(mMockComponentCache).getOrCreateAsync(eq(MockComponent.class), eq("key"), eq(mMockFactory), any(Executor.class));
+        verify(mMockComponentCache, times(0)).getOrCreate(MockComponent.class, "key", mMockFactory);
+
+        when(mMockComponentCache.getOrCreate(MockComponent.class, "key", mMockFactory)).thenReturn(mMockComponent);
+        assertTrue(lazy.get() == mMockComponent);
+        assertTrue(lazy.get() == mMockComponent);
+        verify(mMockComponentCache, times(1)).getOrCreate(MockComponent.class, "key", mMockFactory);
+    }
+
+    @Test
+    public void testLazyComponentShouldBeSharedWithCache() throws Exception {
+        CoreInjector injector = new CoreInjector();
+        Lazy<MockComponent> lazy = new InjectRequest(injector, mMockReleaser).buildLazy(MockComponent.class, mMockFactory);
+        verify(mMockFactory, times(0)).create();
+
+        assertTrue(injector.getOrCreate(MockComponent.class, mMockFactory) == mMockComponent);
+        assertTrue(lazy.get() == mMockComponent);
+        verify(mMockFactory, times(1)).create();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testLazyComponentReleasedBeforeGetShouldThrowException() throws Exception {
+        ArgumentCaptor<ComponentReleaser.OnReleaseListener> releaseListenerCaptor = ArgumentCaptor.forClass(ComponentReleaser.OnReleaseListener.class);
+        CoreInjector injector = new CoreInjector();
+        Lazy<MockComponent> lazy = new InjectRequest(injector, mMockReleaser).buildLazy(MockComponent.class, mMockFactory);
+
+        dispatchOnRelease(releaseListenerCaptor, false);
+        assertThat(injector.getCachedCount(MockComponent.class), is(0));
+        verify(mMockFactory, times(0)).create();
+        lazy.get();
+    }
+
+    @Test
+    public void testLazyComponentReleasedWhileGetShouldNotStayCached() throws Exception {
+        final ArgumentCaptor<ComponentReleaser.OnReleaseListener> releaseListenerCaptor = ArgumentCaptor.forClass(ComponentReleaser.OnReleaseListener.class);
+        CoreInjector injector = new CoreInjector() {
+            @Override
+            public <T> T getOrCreate(Class<T> componentClass, ComponentFactory<T> componentFactory) {
+                // Owner is released right after handle checked that it is not.
+                dispatchOnRelease(releaseListenerCaptor, false);
+                return super.getOrCreate(componentClass, componentFactory);
+            }
+        };
+        Lazy<MockComponent> lazy = new InjectRequest(injector, mMockReleaser).buildLazy(MockComponent.class, mMockFactory);
+
+        try {
+            lazy.get();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        assertThat(injector.getCachedCount(MockComponent.class), is(0));
+        assertThat(injector.getReferenceCount(MockComponent.class, null), is(0));
+    }
+
+    @Test
+    public void testBuildAsyncOfLazyComponentShouldCreateItOnExecutor() throws Exception {
+        CoreInjector injector = new CoreInjector();
+        Lazy<MockComponent> lazy = new InjectRequest(injector, mMockReleaser).buildLazy(MockComponent.class, mMockFactory);
+        final List<Runnable> tasks = new ArrayList<>();
+        Future<MockComponent> future = new InjectRequest(injector, mock(ComponentReleaser.class)).buildAsync(MockComponent.class, mMockFactory,
+                new Executor() {
+                    @Override
+                    public void execute(Runnable command) {
+                        tasks.add(command);
+                    }
+                });
+
+        assertThat(tasks.size(), is(1));
+        tasks.get(0).run();
+        assertTrue(future.get(5, TimeUnit.SECONDS) == mMockComponent);
+        assertTrue(lazy.get() == mMockComponent);
+        verify(mMockFactory, times(1)).create();
+    }
+
+    @Test
+    public void testLazyComponentNotCreatedBeforeConfigChangeShouldNotStayCached() throws Exception {
+        ArgumentCaptor<ComponentReleaser.OnReleaseListener> releaseListenerCaptor = ArgumentCaptor.forClass(ComponentReleaser.OnReleaseListener.class);
+        CoreInjector injector = new CoreInjector();
+        new InjectRequest(injector, mMockReleaser).retainOnConfigChange(true).buildLazy(MockComponent.class, mMockFactory);
+
+        dispatchOnRelease(releaseListenerCaptor, true);
+        assertThat(injector.getCachedCount(MockComponent.class), is(0));
+        assertThat(injector.getReferenceCount(MockComponent.class, null), is(0));
+        verify(mMockFactory, times(0)).create();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuildAsyncWithoutExecutorShouldThrowException() throws Exception {
+        prepareRequest().buildAsync(MockComponent.class, mMockFactory, null);
+    }
+
+    @Test
+    public void testComponentShouldRelease() throws Exception {
+        ArgumentCaptor<ComponentReleaser.OnReleaseListener> releaseListenerCaptor = ArgumentCaptor.forClass(ComponentReleaser.OnReleaseListener.class);
+        ComponentReference reference = stubReference(null);
+
+        prepareRequest().build(MockComponent.class, mMockFactory);
+
+        dispatchOnRelease(releaseListenerCaptor, false);
+        verify(mMockComponentCache).release(reference, ReleaseReason.STOP, false);
+    }
+
+    @Test
+    public void testRetainOnConfigChangeShouldNotRelease() throws Exception {
+        ArgumentCaptor<ComponentReleaser.OnReleaseListener> releaseListenerCaptor = ArgumentCaptor.forClass(ComponentReleaser.OnReleaseListener.class);
+        ComponentReference reference = stubReference(null);
+
+        prepareRequest()
+                .retainOnConfigChange(true)
+                .build(MockComponent.class, mMockFactory);
+
+        dispatchOnRelease(releaseListenerCaptor, true);
+        verify(mMockComponentCache, times(0)).release(reference, ReleaseReason.CONFIG_CHANGE, false);
+        verify(mMockComponentCache).release(reference, ReleaseReason.CONFIG_CHANGE, true);
+    }
+
+    @Test
+    public void testRetainOnConfigChangeShouldRetainComponentByKey() throws Exception {
+        ArgumentCaptor<ComponentReleaser.OnReleaseListener> releaseListenerCaptor = ArgumentCaptor.forClass(ComponentReleaser.OnReleaseListener.class);
+        ComponentReference reference = stubReference("key");
+
+        prepareRequest()
+                .retainOnConfigChange(true)
+                .allowComponentDuplicates("key")
+                .build(MockComponent.class, mMockFactory);
+
+        dispatchOnRelease(releaseListenerCaptor, true);
+        verify(mMockComponentCache).release(reference, ReleaseReason.CONFIG_CHANGE, true);
+    }
+
+    @Test
+    public void testRetainOnConfigChangeShouldReleaseIfCantRetain() throws Exception {
+        ArgumentCaptor<ComponentReleaser.OnReleaseListener> releaseListenerCaptor = ArgumentCaptor.forClass(ComponentReleaser.OnReleaseListener.class);
+        ComponentReference reference = stubReference(null);
+
+        prepareRequest()
+                .retainOnConfigChange(true)
+                .build(MockComponent.class, mMockFactory);
+
+        dispatchOnRelease(releaseListenerCaptor, false);
+        verify(mMockComponentCache).release(reference, ReleaseReason.STOP, false);
+    }
+
+    @Test
+    public void testFinishShouldReleaseRetainedComponentWithReason() throws Exception {
+        ArgumentCaptor<ComponentReleaser.OnReleaseListener> releaseListenerCaptor = ArgumentCaptor.forClass(ComponentReleaser.OnReleaseListener.class);
+        ComponentReference reference = stubReference("key");
+
+        prepareRequest()
+                .retainOnConfigChange(true)
+                .allowComponentDuplicates("key")
+                .build(MockComponent.class, mMockFactory);
+
+        verify(mMockReleaser).onRegisterReleaser(releaseListenerCaptor.capture());
+        ((ComponentReleaser.OnReleaseReasonListener) releaseListenerCaptor.getValue()).onRelease(ReleaseReason.FINISH);
+        verify(mMockComponentCache).release(reference, ReleaseReason.FINISH, false);
+        verify(mMockComponentCache, times(0)).release(reference, ReleaseReason.FINISH, true);
+    }
+
+    @Test
+    public void testSharedComponentShouldReleaseReferenceInsteadOfComponent() throws Exception {
+        ArgumentCaptor<ComponentReleaser.OnReleaseListener> releaseListenerCaptor = ArgumentCaptor.forClass(ComponentReleaser.OnReleaseListener.class);
+        ComponentReference reference = stubReference("key");
+
+        prepareRequest()
+                .retainOnConfigChange(true)
+                .allowComponentDuplicates("key")
+                .build(MockComponent.class, mMockFactory);
+
+        dispatchOnRelease(releaseListenerCaptor, true);
+        verify(mMockComponentCache).release(reference, ReleaseReason.CONFIG_CHANGE, true);
+        verify(mMockComponentCache, times(0)).retain(MockComponent.class, "key");
+    }
+
+    @Test
+    public void testRetainForShouldReleaseComponentAfterGracePeriod() throws Exception {
+        ArgumentCaptor<ComponentReleaser.OnReleaseListener> releaseListenerCaptor = ArgumentCaptor.forClass(ComponentReleaser.OnReleaseListener.class);
+        ComponentReference reference = stubReference("key");
+
+        prepareRequest()
+                .retainFor(2, TimeUnit.SECONDS)
+                .allowComponentDuplicates("key")
+                .build(MockComponent.class, mMockFactory);
+
+        dispatchOnRelease(releaseListenerCaptor, false);
+        verify(mMockComponentCache).releaseAfter(reference, ReleaseReason.STOP, TimeUnit.SECONDS.toNanos(2), TimeUnit.NANOSECONDS);
+        verify(mMockComponentCache, times(0)).release(reference, ReleaseReason.STOP, false);
+    }
+
+    /**
+     * Mocked cache hands out reference of component, request releases component through it.
+     */
+    private ComponentReference stubReference(Object key) {
+        ComponentReference reference = new ComponentReference(ComponentKey.of(MockComponent.class, key), MockComponent.class, key);
+        when(mMockComponentCache.acquire(MockComponent.class, key)).thenReturn(reference);
+        return reference;
+    }
+
+    private void dispatchOnRelease(ArgumentCaptor<ComponentReleaser.OnReleaseListener> captor, boolean canRelease) {
+        verify(mMockReleaser).onRegisterReleaser(captor.capture());
+        captor.getValue().onRelease(canRelease);
+        verify(mMockReleaser).onUnregisterReleaser();
+    }
+
+    private static class NotComponent {
+    }
+
+    @Component
+    private static class MockComponent {
+    }
+}
@@ -0,0 +1,158 @@
+package knight704.ufinjector;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class InjectorAsyncTest {
+    private CoreInjector mInjector;
+    private QueueExecutor mExecutor;
+    private CountingFactory mFactory;
+
+    @Before
+    public void setUp() {
+        mInjector = new CoreInjector();
+        mExecutor = new QueueExecutor();
+        mFactory = new CountingFactory();
+    }
+
+    @Test
+    public void testAsyncShouldCreateComponentOnExecutor() throws Exception {
+        Future<MockComponent> future = mInjector.getOrCreateAsync(MockComponent.class, mFactory, mExecutor);
+
+        assertThat(future.isDone(), is(false));
+        assertThat(mFactory.mCreated.get(), is(0));
+
+        mExecutor.runAll();
+
+        assertThat(future.isDone(), is(true));
+        assertThat(mInjector.getOrCreate(MockComponent.class, mFactory), sameInstance(future.get()));
+        assertThat(mFactory.mCreated.get(), is(1));
+    }
+
+    @Test
+    public void testSyncGetShouldReuseInFlightAsyncCreation() throws Exception {
+        Future<MockComponent> future = mInjector.getOrCreateAsync(MockComponent.class, "key", mFactory, mExecutor);
+        MockComponent component = mInjector.getOrCreate(MockComponent.class, "key", mFactory);
+        mExecutor.runAll();
+
+        assertThat(future.get(), sameInstance(component));
+        assertThat(mFactory.mCreated.get(), is(1));
+    }
+
+    @Test
+    public void testAsyncShouldReturnSameFutureForInFlightCreation() throws Exception {
+        Future<MockComponent> first = mInjector.getOrCreateAsync(MockComponent.class, mFactory, mExecutor);
+        Future<MockComponent> second = mInjector.getOrCreateAsync(MockComponent.class, mFactory, mExecutor);
+
+        assertThat(second, sameInstance(first));
+        assertThat(mExecutor.mTasks.size(), is(1));
+    }
+
+    @Test
+    public void testAsyncShouldReturnCompletedFutureForCachedComponent() throws Exception {
+        MockComponent component = mInjector.getOrCreate(MockComponent.class, mFactory);
+        Future<MockComponent> future = mInjector.getOrCreateAsync(MockComponent.class, mFactory, mExecutor);
+
+        assertThat(future.isDone(), is(true));
+        assertThat(future.get(), sameInstance(component));
+        assertThat(mExecutor.mTasks.size(), is(0));
+    }
+
+    @Test
+    public void testFailedAsyncCreationShouldBeDeliveredViaFuture() throws Exception {
+        Future<MockComponent> future = mInjector.getOrCreateAsync(MockComponent.class, new ComponentFactory<MockComponent>() {
+            @Override
+            public MockComponent create() {
+                throw new IllegalStateException("boom");
+            }
+        }, mExecutor);
+        mExecutor.runAll();
+
+        try {
+            future.get();
+            fail("Factory exception should be delivered");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+        }
+        assertThat(mInjector.getCachedCount(MockComponent.class), is(0));
+    }
+
+    @Test
+    public void testCancelledAsyncCreationShouldNotBlockSyncGet() throws Exception {
+        Future<MockComponent> future = mInjector.getOrCreateAsync(MockComponent.class, mFactory, mExecutor);
+        future.cancel(false);
+
+        mInjector.getOrCreate(MockComponent.class, mFactory);
+        mExecutor.runAll();
+
+        assertThat(mFactory.mCreated.get(), is(1));
+    }
+
+    @Test
+    public void testRejectedExecutionShouldNotLeavePlaceholder() throws Exception {
+        try {
+            mInjector.getOrCreateAsync(MockComponent.class, mFactory, new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    throw new RejectedExecutionException();
+                }
+            });
+            fail("Rejection should be propagated");
+        } catch (RejectedExecutionException expected) {
+        }
+        assertThat(mInjector.getCachedCount(MockComponent.class), is(0));
+    }
+
+    @Test
+    public void testReleaseDuringAsyncCreationShouldNotCacheComponent() throws Exception {
+        Future<MockComponent> future = mInjector.getOrCreateAsync(MockComponent.class, mFactory, mExecutor);
+        mInjector.release(MockComponent.class);
+        mExecutor.runAll();
+
+        assertThat(future.isDone(), is(true));
+        assertThat(mInjector.getCachedCount(MockComponent.class), is(0));
+    }
+
+    private static class QueueExecutor implements Executor {
+        private final Queue<Runnable> mTasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            mTasks.add(command);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = mTasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    private static class CountingFactory implements ComponentFactory<MockComponent> {
+        private final AtomicInteger mCreated = new AtomicInteger();
+
+        @Override
+        public MockComponent create() {
+            mCreated.incrementAndGet();
+            return new MockComponent();
+        }
+    }
+
+    private static class MockComponent {
+    }
+}
@@ -0,0 +1,299 @@
+package knight704.ufinjector;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Contention tests for Injector cache: many threads hammer getOrCreate/release at the same time.
+ */
+public class InjectorConcurrencyTest {
+    private static final int THREADS = 16;
+    private static final int ITERATIONS = 2000;
+
+    private CoreInjector mInjector;
+    private ExecutorService mExecutor;
+
+    @Before
+    public void setUp() {
+        mInjector = new CoreInjector();
+        mExecutor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mExecutor.shutdownNow();
+        mExecutor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testConcurrentMissesShouldCreateComponentOnce() throws Exception {
+        final CountingFactory factory = new CountingFactory(20);
+        final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        List<Future<MockComponent>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(mExecutor.submit(new Callable<MockComponent>() {
+                @Override
+                public MockComponent call() throws Exception {
+                    barrier.await();
+                    return mInjector.getOrCreate(MockComponent.class, factory);
+                }
+            }));
+        }
+
+        MockComponent first = results.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<MockComponent> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS), sameInstance(first));
+        }
+        assertThat(factory.mCreated.get(), is(1));
+    }
+
+    @Test
+    public void testCallersShouldWaitForInFlightCreation() throws Exception {
+        final CountDownLatch creationStarted = new CountDownLatch(1);
+        final CountDownLatch finishCreation = new CountDownLatch(1);
+        final AtomicInteger created = new AtomicInteger();
+        final ComponentFactory<MockComponent> blockingFactory = new ComponentFactory<MockComponent>() {
+            @Override
+            public MockComponent create() {
+                created.incrementAndGet();
+                creationStarted.countDown();
+                try {
+                    finishCreation.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return new MockComponent();
+            }
+        };
+        Future<MockComponent> creator = mExecutor.submit(new Callable<MockComponent>() {
+            @Override
+            public MockComponent call() throws Exception {
+                return mInjector.getOrCreate(MockComponent.class, "key", blockingFactory);
+            }
+        });
+        creationStarted.await(5, TimeUnit.SECONDS);
+        final AtomicReference<Thread> waiterThread = new AtomicReference<>();
+        Future<MockComponent> waiter = mExecutor.submit(new Callable<MockComponent>() {
+            @Override
+            public MockComponent call() throws Exception {
+                waiterThread.set(Thread.currentThread());
+                return mInjector.getOrCreate(MockComponent.class, "key", blockingFactory);
+            }
+        });
+
+        awaitParked(waiterThread);
+        assertThat(waiter.isDone(), is(false));
+        finishCreation.countDown();
+
+        assertThat(waiter.get(5, TimeUnit.SECONDS), sameInstance(creator.get(5, TimeUnit.SECONDS)));
+        assertThat(created.get(), is(1));
+    }
+
+    @Test
+    public void testFailedCreationShouldNotStayInCache() throws Exception {
+        ComponentFactory<MockComponent> failingFactory = new ComponentFactory<MockComponent>() {
+            @Override
+            public MockComponent create() {
+                throw new IllegalStateException("boom");
+            }
+        };
+        try {
+            mInjector.getOrCreate(MockComponent.class, failingFactory);
+            fail("Factory exception should be propagated");
+        } catch (IllegalStateException expected) {
+        }
+
+        assertThat(mInjector.getCachedCount(MockComponent.class), is(0));
+        assertThat(mInjector.getOrCreate(MockComponent.class, new CountingFactory(0)), notNullValue());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRecursiveCreationShouldThrowException() throws Exception {
+        mInjector.getOrCreate(MockComponent.class, new ComponentFactory<MockComponent>() {
+            @Override
+            public MockComponent create() {
+                return mInjector.getOrCreate(MockComponent.class, this);
+            }
+        });
+    }
+
+    @Test
+    public void testConcurrentGetOrCreateAndReleaseShouldKeepCacheConsistent() throws Exception {
+        final String[] keys = {"key1", "key2", "key3", "key4"};
+        final CountingFactory factory = new CountingFactory(0);
+        final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        CacheStats stats = new CacheStats();
+        mInjector.addCacheListener(stats);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            final int seed = i;
+            results.add(mExecutor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    barrier.await();
+                    int hits = 0;
+                    for (int j = 0; j < ITERATIONS; j++) {
+                        String key = keys[(seed + j) % keys.length];
+                        MockComponent component = mInjector.getOrCreate(MockComponent.class, key, factory);
+                        if (component == null) {
+                            throw new AssertionError("Cache returned null component");
+                        }
+                        if ((seed + j) % 3 == 0) {
+                            mInjector.release(MockComponent.class, key);
+                        } else {
+                            hits++;
+                        }
+                    }
+                    return hits;
+                }
+            }));
+        }
+        for (Future<Integer> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+
+        for (String key : keys) {
+            MockComponent cached = mInjector.getOrCreate(MockComponent.class, key, factory);
+            assertThat(mInjector.getOrCreate(MockComponent.class, key, factory), sameInstance(cached));
+            mInjector.release(MockComponent.class, key);
+        }
+        assertThat(mInjector.getCachedCount(MockComponent.class), is(0));
+        // Every miss created exactly one component, nobody created its own copy of component that was in flight.
+        ComponentStats componentStats = stats.snapshot(MockComponent.class);
+        assertThat((long) factory.mCreated.get(), is(componentStats.getMissCount()));
+        assertThat(componentStats.getCreatedCount(), is(componentStats.getMissCount()));
+    }
+
+    @Test
+    public void testSharedComponentShouldStayCachedWhileReferenced() throws Exception {
+        final CountingFactory factory = new CountingFactory(0);
+        final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(mExecutor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    barrier.await();
+                    for (int j = 0; j < ITERATIONS; j++) {
+                        ComponentReference reference = mInjector.acquire(MockComponent.class, "key");
+                        MockComponent component = mInjector.getOrCreate(MockComponent.class, "key", factory);
+                        if (mInjector.getOrCreate(MockComponent.class, "key", factory) != component) {
+                            throw new AssertionError("Referenced component was released by another owner");
+                        }
+                        mInjector.release(reference, ReleaseReason.STOP, false);
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+
+        assertThat(mInjector.getCachedCount(MockComponent.class), is(0));
+        assertThat(mInjector.getReferenceCount(MockComponent.class, "key"), is(0));
+    }
+
+    @Test
+    public void testComponentRequestedOnItsTeardownShouldBeCreatedAgain() throws Exception {
+        final AtomicReference<MockComponent> recreated = new AtomicReference<>();
+        final ComponentFactory<MockComponent> factory = new ComponentFactory<MockComponent>() {
+            @Override
+            public MockComponent create() {
+                return new MockComponent();
+            }
+        };
+        final ComponentFactory<DisposableComponent> disposableFactory = new ComponentFactory<DisposableComponent>() {
+            @Override
+            public DisposableComponent create() {
+                return new DisposableComponent() {
+                    @Override
+                    public void dispose() {
+                        // Teardown of released component requests its sibling again, i.e restarts session it belonged to.
+                        ComponentReference reference = mInjector.acquire(MockComponent.class, "key");
+                        recreated.set(mInjector.getOrCreate(MockComponent.class, "key", factory));
+                        mInjector.release(reference, ReleaseReason.EXPLICIT, true);
+                    }
+                };
+            }
+        };
+        Future<?> result = mExecutor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                ComponentReference reference = mInjector.acquire(MockComponent.class, "key");
+                mInjector.getOrCreate(MockComponent.class, "key", factory);
+                mInjector.getOrCreate(DisposableComponent.class, "key", disposableFactory);
+                mInjector.attach(DisposableComponent.class, "key", MockComponent.class, "key");
+                mInjector.release(reference, ReleaseReason.FINISH, false);
+                return null;
+            }
+        });
+
+        result.get(5, TimeUnit.SECONDS);
+        assertThat(recreated.get(), notNullValue());
+        assertThat(mInjector.getReferenceCount(MockComponent.class, "key"), is(0));
+    }
+
+    /**
+     * Wait until thread blocks, i.e waits for creation started by another thread.
+     */
+    private static void awaitParked(AtomicReference<Thread> thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.get() == null || thread.get().getState() != Thread.State.WAITING) {
+            if (System.nanoTime() > deadline) {
+                fail("Thread didn't start waiting");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private static class CountingFactory implements ComponentFactory<MockComponent> {
+        private final AtomicInteger mCreated = new AtomicInteger();
+        private final long mCreationDelayMs;
+
+        CountingFactory(long creationDelayMs) {
+            mCreationDelayMs = creationDelayMs;
+        }
+
+        @Override
+        public MockComponent create() {
+            mCreated.incrementAndGet();
+            if (mCreationDelayMs > 0) {
+                try {
+                    Thread.sleep(mCreationDelayMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new MockComponent();
+        }
+    }
+
+    private static class MockComponent {
+    }
+
+    private static class DisposableComponent implements Disposable {
+        @Override
+        public void dispose() {
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package knight704.ufinjector;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class PrewarmPlanTest {
+    private CoreInjector mInjector;
+    private List<Class> mCreated;
+
+    @Before
+    public void setUp() {
+        mInjector = new CoreInjector();
+        mCreated = Collections.synchronizedList(new ArrayList<Class>());
+    }
+
+    @Test
+    public void testPrewarmedComponentsShouldBeCached() throws Exception {
+        PrewarmHandle handle = mInjector.prewarm()
+                .add(ParentComponent.class, new RecordingFactory<>(ParentComponent.class))
+                .add(ChildComponent.class, "key", new RecordingFactory<>(ChildComponent.class))
+                .start(5, TimeUnit.SECONDS);
+
+        assertTrue(handle.await(5, TimeUnit.SECONDS));
+        assertThat(handle.getCreatedCount(), is(2));
+        mInjector.getOrCreate(ParentComponent.class, new RecordingFactory<>(ParentComponent.class));
+        mInjector.getOrCreate(ChildComponent.class, "key", new RecordingFactory<>(ChildComponent.class));
+        assertThat(mCreated.size(), is(2));
+    }
+
+    @Test
+    public void testDependenciesShouldBeCreatedFirst() throws Exception {
+        PrewarmHandle handle = mInjector.prewarm()
+                .add(ChildComponent.class, new RecordingFactory<>(ChildComponent.class), ParentComponent.class)
+                .add(OtherComponent.class, new RecordingFactory<>(OtherComponent.class), ChildComponent.class, ParentComponent.class)
+                .add(ParentComponent.class, new RecordingFactory<>(ParentComponent.class))
+                .start(5, TimeUnit.SECONDS);
+
+        assertTrue(handle.await(5, TimeUnit.SECONDS));
+        assertThat(mCreated, is(Arrays.<Class>asList(ParentComponent.class, ChildComponent.class, OtherComponent.class)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCyclicDependenciesShouldThrowException() throws Exception {
+        mInjector.prewarm()
+                .add(ParentComponent.class, new RecordingFactory<>(ParentComponent.class), ChildComponent.class)
+                .add(ChildComponent.class, new RecordingFactory<>(ChildComponent.class), ParentComponent.class)
+                .start(new QueueExecutor(), 5, TimeUnit.SECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownDependencyShouldThrowException() throws Exception {
+        mInjector.prewarm()
+                .add(ChildComponent.class, new RecordingFactory<>(ChildComponent.class), ParentComponent.class)
+                .start(new QueueExecutor(), 5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testCancelledPlanShouldSkipNotStartedComponents() throws Exception {
+        QueueExecutor executor = new QueueExecutor();
+        PrewarmHandle handle = mInjector.prewarm()
+                .add(ParentComponent.class, new RecordingFactory<>(ParentComponent.class))
+                .add(ChildComponent.class, new RecordingFactory<>(ChildComponent.class), ParentComponent.class)
+                .start(executor, 5, TimeUnit.SECONDS);
+        handle.cancel();
+        executor.runAll();
+
+        assertThat(handle.isFinished(), is(true));
+        assertThat(handle.getSkippedCount(), is(2));
+        assertThat(mCreated.size(), is(0));
+    }
+
+    @Test
+    public void testTimedOutPlanShouldSkipNotStartedComponents() throws Exception {
+        QueueExecutor executor = new QueueExecutor();
+        PrewarmHandle handle = mInjector.prewarm()
+                .add(ParentComponent.class, new RecordingFactory<>(ParentComponent.class))
+                .start(executor, 0, TimeUnit.SECONDS);
+        Thread.sleep(1);
+        executor.runAll();
+
+        assertThat(handle.getSkippedCount(), is(1));
+        assertThat(mCreated.size(), is(0));
+    }
+
+    @Test
+    public void testFailedDependencyShouldSkipDependents() throws Exception {
+        QueueExecutor executor = new QueueExecutor();
+        PrewarmHandle handle = mInjector.prewarm()
+                .add(ParentComponent.class, new ComponentFactory<ParentComponent>() {
+                    @Override
+                    public ParentComponent create() {
+                        throw new IllegalStateException("boom");
+                    }
+                })
+                .add(ChildComponent.class, new RecordingFactory<>(ChildComponent.class), ParentComponent.class)
+                .add(OtherComponent.class, new RecordingFactory<>(OtherComponent.class))
+                .start(executor, 5, TimeUnit.SECONDS);
+        executor.runAll();
+
+        assertThat(handle.isFinished(), is(true));
+        assertThat(handle.getCreatedCount(), is(1));
+        assertThat(handle.getSkippedCount(), is(2));
+        assertThat(mCreated, is(Collections.<Class>singletonList(OtherComponent.class)));
+    }
+
+    private class RecordingFactory<T> implements ComponentFactory<T> {
+        private final Class<T> mComponentClass;
+
+        RecordingFactory(Class<T> componentClass) {
+            mComponentClass = componentClass;
+        }
+
+        @Override
+        public T create() {
+            mCreated.add(mComponentClass);
+            try {
+                return mComponentClass.newInstance();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static class QueueExecutor implements Executor {
+        private final Queue<Runnable> mTasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            mTasks.add(command);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = mTasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    public static class ParentComponent {
+    }
+
+    public static class ChildComponent {
+    }
+
+    public static class OtherComponent {
+    }
+}
@@ -0,0 +1,80 @@
+package knight704.ufinjector;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class SlotTableTest {
+    private static final SlottedComponentFactory<MockComponent> FACTORY = new SlottedComponentFactory<MockComponent>() {
+        private final int mSlot = ComponentRegistry.slotOf(MockComponent.class);
+
+        @Override
+        public MockComponent create() {
+            return new MockComponent();
+        }
+
+        @Override
+        public int getSlot() {
+            return mSlot;
+        }
+    };
+    private CoreInjector mInjector;
+    private CacheStats mStats;
+
+    @Before
+    public void setUp() {
+        mInjector = new CoreInjector();
+        mStats = new CacheStats();
+        mInjector.addCacheListener(mStats);
+    }
+
+    @Test
+    public void testHitShouldBeServedFromSlot() throws Exception {
+        MockComponent component = mInjector.getOrCreate(MockComponent.class, FACTORY);
+        assertThat(mInjector.getOrCreate(MockComponent.class, FACTORY), sameInstance(component));
+
+        assertThat(slotted(), sameInstance((Object) component));
+        assertThat(mStats.snapshot(MockComponent.class).getHitCount(), is(1L));
+        assertThat(mStats.snapshot(MockComponent.class).getMissCount(), is(1L));
+    }
+
+    @Test
+    public void testReleasedComponentShouldLeaveSlot() throws Exception {
+        MockComponent component = mInjector.getOrCreate(MockComponent.class, FACTORY);
+        mInjector.release(MockComponent.class);
+
+        assertThat(slotted(), nullValue());
+        assertThat(mInjector.getOrCreate(MockComponent.class, FACTORY), not(sameInstance(component)));
+    }
+
+    @Test
+    public void testRetainedComponentShouldBeRevivedInsteadOfHit() throws Exception {
+        MockComponent component = mInjector.getOrCreate(MockComponent.class, FACTORY);
+        mInjector.retain(MockComponent.class);
+        assertThat(slotted(), nullValue());
+
+        assertThat(mInjector.getOrCreate(MockComponent.class, FACTORY), sameInstance(component));
+        assertThat(mStats.snapshot(MockComponent.class).getRevivedCount(), is(1L));
+        assertThat(slotted(), sameInstance((Object) component));
+    }
+
+    @Test
+    public void testKeyedComponentShouldNotUseSlot() throws Exception {
+        MockComponent keyed = mInjector.getOrCreate(MockComponent.class, "key", FACTORY);
+
+        assertThat(slotted(), nullValue());
+        assertThat(mInjector.getOrCreate(MockComponent.class, FACTORY), not(sameInstance(keyed)));
+    }
+
+    private Object slotted() {
+        return mInjector.getSlotted(FACTORY.getSlot());
+    }
+
+    private static class MockComponent {
+    }
+}
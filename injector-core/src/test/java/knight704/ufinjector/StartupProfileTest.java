@@ -0,0 +1,146 @@
+package knight704.ufinjector;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class StartupProfileTest {
+    private static final long BUILD = 7;
+    private static final long NOW = 1000000;
+    private static final long MAX_AGE = TimeUnit.DAYS.toMillis(1);
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+    private File mFile;
+
+    @Before
+    public void setUp() throws Exception {
+        mFile = new File(mTemporaryFolder.getRoot(), "startup.profile");
+    }
+
+    @Test
+    public void testWrittenProfileShouldBeReadInOrder() throws Exception {
+        StartupProfile.write(mFile, BUILD, NOW, Arrays.asList(
+                new StartupProfile.Entry("a.Component", null),
+                new StartupProfile.Entry("b.Component", "key"),
+                new StartupProfile.Entry("c.Component", 42L),
+                new StartupProfile.Entry("d.Component", 7),
+                new StartupProfile.Entry("e.Component", TimeUnit.SECONDS)));
+
+        List<StartupProfile.Entry> entries = StartupProfile.read(mFile, BUILD, MAX_AGE, NOW + 1);
+        assertThat(entries.size(), is(5));
+        assertThat(entries.get(0).className, is("a.Component"));
+        assertThat(entries.get(0).key, is(nullValue()));
+        assertThat(entries.get(1).key, is((Object) "key"));
+        assertThat(entries.get(2).key, is((Object) 42L));
+        assertThat(entries.get(3).key, is((Object) 7));
+        assertThat(entries.get(4).key, is((Object) TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testStaleOrForeignProfileShouldBeIgnored() throws Exception {
+        StartupProfile.write(mFile, BUILD, NOW, Arrays.asList(new StartupProfile.Entry("a.Component", null)));
+
+        assertThat(StartupProfile.read(mFile, BUILD + 1, MAX_AGE, NOW).size(), is(0));
+        assertThat(StartupProfile.read(mFile, BUILD, MAX_AGE, NOW + MAX_AGE + 1).size(), is(0));
+        assertThat(StartupProfile.read(mFile, BUILD, MAX_AGE, NOW).size(), is(1));
+    }
+
+    @Test
+    public void testCorruptedProfileShouldBeIgnored() throws Exception {
+        StartupProfile.write(mFile, BUILD, NOW, Arrays.asList(new StartupProfile.Entry("a.Component", null)));
+        RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        file.seek(file.length() - 12);
+        file.write('b');
+        file.close();
+
+        assertThat(StartupProfile.read(mFile, BUILD, MAX_AGE, NOW).size(), is(0));
+    }
+
+    @Test
+    public void testProfileShouldBeBounded() throws Exception {
+        List<StartupProfile.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < StartupProfile.MAX_ENTRIES * 2; i++) {
+            entries.add(new StartupProfile.Entry("a.Component", i));
+        }
+        StartupProfile.write(mFile, BUILD, NOW, entries);
+
+        assertThat(StartupProfile.read(mFile, BUILD, MAX_AGE, NOW).size(), is(StartupProfile.MAX_ENTRIES));
+    }
+
+    @Test
+    public void testRecordedComponentsShouldBePrefetchedOnNextStart() throws Exception {
+        ComponentRegistry.register(ProfiledComponent.class, new ProfiledFactory());
+        CoreInjector firstLaunch = new CoreInjector();
+        StartupProfile recording = new StartupProfile(mFile, BUILD);
+        recording.start(firstLaunch, 200, TimeUnit.MILLISECONDS);
+        firstLaunch.getOrCreate(ProfiledComponent.class, "key", new ProfiledFactory());
+        firstLaunch.getOrCreate(ProfiledComponent.class, "key", new ProfiledFactory());
+        firstLaunch.getOrCreate(ProfiledComponent.class, new Object(), new ProfiledFactory());
+        assertTrue(recording.awaitSaved(5, TimeUnit.SECONDS));
+
+        List<StartupProfile.Entry> entries = StartupProfile.read(mFile, BUILD, MAX_AGE, System.currentTimeMillis());
+        assertThat(entries.size(), is(1));
+        assertThat(entries.get(0).key, is((Object) "key"));
+
+        CoreInjector nextLaunch = new CoreInjector();
+        StartupProfile replay = new StartupProfile(mFile, BUILD);
+        replay.start(nextLaunch, 200, TimeUnit.MILLISECONDS);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!nextLaunch.isCached(ProfiledComponent.class, "key") && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(nextLaunch.isCached(ProfiledComponent.class, "key"));
+        assertTrue(replay.awaitSaved(5, TimeUnit.SECONDS));
+        // Prefetched component is not requested by application, so it is not recorded again.
+        assertThat(StartupProfile.read(mFile, BUILD, MAX_AGE, System.currentTimeMillis()).size(), is(0));
+    }
+
+    @Test
+    public void testPrefetchedComponentNotRequestedWithinWindowShouldBeReleased() throws Exception {
+        ComponentRegistry.register(ProfiledComponent.class, new ProfiledFactory());
+        StartupProfile.write(mFile, BUILD, System.currentTimeMillis(), Arrays.asList(
+                new StartupProfile.Entry(ProfiledComponent.class.getName(), "claimed"),
+                new StartupProfile.Entry(ProfiledComponent.class.getName(), "unclaimed")));
+        CoreInjector injector = new CoreInjector();
+        new StartupProfile(mFile, BUILD).start(injector, 1, TimeUnit.SECONDS);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!(injector.isCached(ProfiledComponent.class, "claimed") && injector.isCached(ProfiledComponent.class, "unclaimed"))
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        // Application requests only one of prefetched components.
+        injector.acquire(ProfiledComponent.class, "claimed");
+        injector.getOrCreate(ProfiledComponent.class, "claimed", new ProfiledFactory());
+
+        while (injector.isCached(ProfiledComponent.class, "unclaimed") && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(injector.isCached(ProfiledComponent.class, "unclaimed"), is(false));
+        assertThat(injector.isCached(ProfiledComponent.class, "claimed"), is(true));
+        assertThat(injector.getHeldCount(), is(0));
+    }
+
+    private static class ProfiledComponent {
+    }
+
+    private static class ProfiledFactory implements ComponentFactory<ProfiledComponent> {
+        @Override
+        public ProfiledComponent create() {
+            return new ProfiledComponent();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package knight704.ufinjector;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import dagger.Component;
+import knight704.ufinjector.releasers.ComponentReleaser;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class TagIndexTest {
+    private static final ComponentFactory<MockComponent> FACTORY = new ComponentFactory<MockComponent>() {
+        @Override
+        public MockComponent create() {
+            return new MockComponent();
+        }
+    };
+    private CoreInjector mInjector;
+
+    @Before
+    public void setUp() {
+        mInjector = new CoreInjector();
+    }
+
+    @Test
+    public void testReleaseTagShouldReleaseOnlyTaggedComponents() throws Exception {
+        request().tag("session1").allowComponentDuplicates("a").build(MockComponent.class, FACTORY);
+        request().tag("session1").tag("chat").allowComponentDuplicates(1).build(MockComponent.class, FACTORY);
+        request().tag("session2").build(MockComponent.class, FACTORY);
+        request().allowComponentDuplicates("b").build(MockComponent.class, FACTORY);
+
+        mInjector.releaseTag("session1");
+
+        assertThat(mInjector.isCached(MockComponent.class, "a"), is(false));
+        assertThat(mInjector.isCached(MockComponent.class, 1), is(false));
+        assertThat(mInjector.isCached(MockComponent.class, null), is(true));
+        assertThat(mInjector.isCached(MockComponent.class, "b"), is(true));
+        // Released component is forgotten by its other tags as well.
+        mInjector.releaseTag("session2");
+        mInjector.release(MockComponent.class, "b");
+        assertThat(mInjector.getIndexedCount(), is(0));
+    }
+
+    @Test
+    public void testReleaseKeyPrefixShouldReleaseOnlyMatchingKeys() throws Exception {
+        mInjector.getOrCreate(MockComponent.class, "session1/main", FACTORY);
+        mInjector.getOrCreate(MockComponent.class, "session1/chat", FACTORY);
+        mInjector.getOrCreate(MockComponent.class, "session10/main", FACTORY);
+        mInjector.getOrCreate(MockComponent.class, "session2/main", FACTORY);
+        mInjector.getOrCreate(MockComponent.class, 1, FACTORY);
+
+        mInjector.releaseKeyPrefix("session1/");
+
+        assertThat(mInjector.isCached(MockComponent.class, "session1/main"), is(false));
+        assertThat(mInjector.isCached(MockComponent.class, "session1/chat"), is(false));
+        assertThat(mInjector.isCached(MockComponent.class, "session10/main"), is(true));
+        assertThat(mInjector.isCached(MockComponent.class, "session2/main"), is(true));
+        assertThat(mInjector.isCached(MockComponent.class, 1), is(true));
+        assertThat(mInjector.getIndexedCount(), is(2));
+    }
+
+    @Test
+    public void testRetainedAndHeldComponentsShouldBeReleasedByTag() throws Exception {
+        mInjector.getOrCreate(MockComponent.class, "retained", FACTORY);
+        mInjector.tag(MockComponent.class, "retained", "session");
+        mInjector.retain(MockComponent.class, "retained");
+        mInjector.getOrCreate(MockComponent.class, "held", FACTORY);
+        mInjector.tag(MockComponent.class, "held", "session");
+        mInjector.releaseAfter(MockComponent.class, "held", ReleaseReason.STOP, 1, TimeUnit.HOURS);
+
+        mInjector.releaseTag("session");
+
+        assertThat(mInjector.getCachedCount(MockComponent.class), is(0));
+        assertThat(mInjector.getHeldCount(), is(0));
+        assertThat(mInjector.getRetainedWeight(), is(0));
+    }
+
+    @Test
+    public void testKeysOfFailedCreationsShouldBeForgotten() throws Exception {
+        ComponentFactory<MockComponent> failing = new ComponentFactory<MockComponent>() {
+            @Override
+            public MockComponent create() {
+                throw new IllegalStateException("Graph is broken");
+            }
+        };
+        try {
+            mInjector.getOrCreate(MockComponent.class, "session1/main", failing);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        Future<MockComponent> future = mInjector.getOrCreateAsync(MockComponent.class, "session1/chat", failing, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException expected) {
+        }
+        assertThat(mInjector.getIndexedCount(), is(0));
+        // Created later with the same key is indexed again.
+        mInjector.getOrCreate(MockComponent.class, "session1/main", FACTORY);
+
+        mInjector.releaseKeyPrefix("session1/");
+
+        assertThat(mInjector.getCachedCount(MockComponent.class), is(0));
+        assertThat(mInjector.getIndexedCount(), is(0));
+    }
+
+    private InjectRequest request() {
+        return new InjectRequest(mInjector, mock(ComponentReleaser.class));
+    }
+
+    @Component
+    static class MockComponent {
+    }
+}
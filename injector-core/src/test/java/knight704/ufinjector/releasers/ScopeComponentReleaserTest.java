@@ -0,0 +1,96 @@
+package knight704.ufinjector.releasers;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import dagger.Component;
+import knight704.ufinjector.ComponentCacheListener;
+import knight704.ufinjector.ComponentFactory;
+import knight704.ufinjector.CoreInjector;
+import knight704.ufinjector.ReleaseReason;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class ScopeComponentReleaserTest {
+    private CoreInjector mInjector;
+    private ComponentCacheListener mListener;
+
+    @Before
+    public void setUp() {
+        mInjector = new CoreInjector();
+        mListener = mock(ComponentCacheListener.class);
+        mInjector.addCacheListener(mListener);
+    }
+
+    @Test
+    public void testCloseShouldReleaseComponentsInReverseOrder() throws Exception {
+        ScopeComponentReleaser scope = new ScopeComponentReleaser();
+        mInjector.request(scope).build(ParentComponent.class, new ParentFactory());
+        mInjector.request(scope).allowComponentDuplicates("key").build(ChildComponent.class, new ChildFactory());
+
+        scope.close();
+        InOrder inOrder = inOrder(mListener);
+        inOrder.verify(mListener).onReleased(ChildComponent.class, "key", ReleaseReason.FINISH, 0);
+        inOrder.verify(mListener).onReleased(ParentComponent.class, null, ReleaseReason.FINISH, 0);
+        assertThat(scope.isClosed(), is(true));
+
+        scope.close();
+        verify(mListener, times(2)).onReleased(any(Class.class), any(), eq(ReleaseReason.FINISH), anyLong());
+    }
+
+    @Test
+    public void testScopesShouldShareComponentUntilLastOneIsClosed() throws Exception {
+        ScopeComponentReleaser first = new ScopeComponentReleaser();
+        ScopeComponentReleaser second = new ScopeComponentReleaser();
+        ParentComponent component = mInjector.request(first).build(ParentComponent.class, new ParentFactory());
+        assertThat(mInjector.request(second).build(ParentComponent.class, new ParentFactory()), sameInstance(component));
+
+        first.close();
+        verify(mListener, times(0)).onReleased(ParentComponent.class, null, ReleaseReason.FINISH, 0);
+        second.close();
+        verify(mListener).onReleased(ParentComponent.class, null, ReleaseReason.FINISH, 0);
+        assertThat(mInjector.getOrCreate(ParentComponent.class, new ParentFactory()), not(sameInstance(component)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRequestOfClosedScopeShouldThrowException() throws Exception {
+        ScopeComponentReleaser scope = new ScopeComponentReleaser();
+        scope.close();
+        mInjector.request(scope);
+    }
+
+    @Component
+    interface ParentComponent {
+    }
+
+    @Component
+    interface ChildComponent {
+    }
+
+    private static class ParentFactory implements ComponentFactory<ParentComponent> {
+        @Override
+        public ParentComponent create() {
+            return new ParentComponent() {
+            };
+        }
+    }
+
+    private static class ChildFactory implements ComponentFactory<ChildComponent> {
+        @Override
+        public ChildComponent create() {
+            return new ChildComponent() {
+            };
+        }
+    }
+}
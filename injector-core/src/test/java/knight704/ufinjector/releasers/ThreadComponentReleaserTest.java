@@ -0,0 +1,88 @@
+package knight704.ufinjector.releasers;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import dagger.Component;
+import knight704.ufinjector.CacheStats;
+import knight704.ufinjector.ComponentFactory;
+import knight704.ufinjector.CoreInjector;
+import knight704.ufinjector.ReleaseReason;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class ThreadComponentReleaserTest {
+    private static final ComponentFactory<MockComponent> FACTORY = new ComponentFactory<MockComponent>() {
+        @Override
+        public MockComponent create() {
+            return new MockComponent() {
+            };
+        }
+    };
+    private CoreInjector mInjector;
+    private CacheStats mStats;
+
+    @Before
+    public void setUp() {
+        mInjector = new CoreInjector();
+        mStats = new CacheStats();
+        mInjector.addCacheListener(mStats);
+    }
+
+    @Test
+    public void testComponentsShouldBeReleasedOnceThreadTerminates() throws Exception {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                mInjector.request(ThreadComponentReleaser.current()).build(MockComponent.class, FACTORY);
+            }
+        });
+        thread.start();
+        thread.join();
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ThreadComponentReleaser.POLL_MILLIS * 5);
+        while (mStats.snapshot(MockComponent.class).getReleaseCount(ReleaseReason.FINISH) == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(mStats.snapshot(MockComponent.class).getReleaseCount(ReleaseReason.FINISH), is(1L));
+    }
+
+    @Test
+    public void testCloseShouldReleaseComponentsAndResetCurrentReleaser() throws Exception {
+        ThreadComponentReleaser releaser = ThreadComponentReleaser.current();
+        assertThat(ThreadComponentReleaser.current(), sameInstance(releaser));
+        mInjector.request(releaser).build(MockComponent.class, FACTORY);
+
+        releaser.close();
+        assertThat(mStats.snapshot(MockComponent.class).getReleaseCount(ReleaseReason.FINISH), is(1L));
+        assertThat(ThreadComponentReleaser.current(), not(sameInstance(releaser)));
+        ThreadComponentReleaser.current().close();
+    }
+
+    @Test
+    public void testTaskComponentsShouldBeReleasedOnceTaskCompletes() throws Exception {
+        final AtomicReference<ThreadComponentReleaser> taskReleaser = new AtomicReference<>();
+        Thread thread = VirtualThreadComponentReleaser.start(new Runnable() {
+            @Override
+            public void run() {
+                taskReleaser.set(ThreadComponentReleaser.current());
+                mInjector.request(ThreadComponentReleaser.current()).build(MockComponent.class, FACTORY);
+            }
+        });
+        thread.join();
+
+        assertThat(taskReleaser.get() instanceof VirtualThreadComponentReleaser, is(true));
+        assertThat(taskReleaser.get().isClosed(), is(true));
+        assertThat(mStats.snapshot(MockComponent.class).getReleaseCount(ReleaseReason.FINISH), is(1L));
+    }
+
+    @Component
+    interface MockComponent {
+    }
+}
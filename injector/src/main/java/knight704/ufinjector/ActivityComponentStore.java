@@ -0,0 +1,85 @@
+package knight704.ufinjector;
+
+import android.app.Activity;
+import android.app.Fragment;
+import android.app.FragmentManager;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import knight704.ufinjector.releasers.ActivityComponentReleaser;
+
+/**
+ * Cache of components retained on config change that is scoped to activity record instead of application wide {@link Injector}.
+ * <p>
+ * Store lives in retained headless fragment, so it survives activity recreation and is dropped together with components left in it
+ * once activity is destroyed for good (i.e finished). Retained components are bounded by activities of back stack, and their lookups
+ * don't touch application cache:
+ * <pre>
+ * Injector.withRetained(this).build(MainComponent.class, MainComponentFactory.INSTANCE);
+ * </pre>
+ * Store has its own cache, so listeners, tracer and creation budget of {@link Injector} don't apply to it. Should be used on main thread.
+ */
+public class ActivityComponentStore {
+    static final String FRAGMENT_TAG = "knight704.ufinjector.ActivityComponentStore";
+    private static final Map<Activity, ActivityComponentStore> sStores = new WeakHashMap<>();
+
+    private final CoreInjector mCache = new CoreInjector();
+
+    @VisibleForTesting
+    ActivityComponentStore() {
+    }
+
+    /**
+     * @return store of activity record, it is added to activity on first call.
+     */
+    public static ActivityComponentStore of(Activity activity) {
+        ActivityComponentStore store = sStores.get(activity);
+        if (store != null) {
+            return store;
+        }
+        FragmentManager fragmentManager = activity.getFragmentManager();
+        StoreFragment fragment = (StoreFragment) fragmentManager.findFragmentByTag(FRAGMENT_TAG);
+        if (fragment == null) {
+            fragment = new StoreFragment();
+            fragment.setRetainInstance(true);
+            // Transaction is executed later, so store is remembered for this activity instance until fragment can be found.
+            // State loss is fine here: store isn't restored after process death anyway.
+            fragmentManager.beginTransaction().add(fragment, FRAGMENT_TAG).commitAllowingStateLoss();
+        }
+        sStores.put(activity, fragment.mStore);
+        return fragment.mStore;
+    }
+
+    /**
+     * Start request of component that is released when activity is stopped and retained in this store on config change.
+     */
+    public InjectRequest with(Activity activity) {
+        return new InjectRequest(mCache, new ActivityComponentReleaser(activity)).retainOnConfigChange(true);
+    }
+
+    CoreInjector getCache() {
+        return mCache;
+    }
+
+    /**
+     * Activity record is gone, drop components retained on the last config change that weren't requested again.
+     */
+    void clear() {
+        mCache.trim(0);
+    }
+
+    /**
+     * Headless fragment that keeps store across config changes, its onDestroy() is called only once activity is destroyed for good.
+     */
+    public static class StoreFragment extends Fragment {
+        final ActivityComponentStore mStore = new ActivityComponentStore();
+
+        @Override
+        public void onDestroy() {
+            super.onDestroy();
+            mStore.clear();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package knight704.ufinjector;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Runs tasks on main thread once it is idle (no pending messages, i.e transition animation is finished), see {@link MessageQueue.IdleHandler}.
+ * Suitable for {@link Injector#setTeardownExecutor(Executor)}.
+ */
+public class IdleExecutor implements Executor {
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    @Override
+    public void execute(final Runnable command) {
+        final MessageQueue.IdleHandler idleHandler = new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                command.run();
+                return false;
+            }
+        };
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            Looper.myQueue().addIdleHandler(idleHandler);
+        } else {
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    Looper.myQueue().addIdleHandler(idleHandler);
+                }
+            });
+        }
+    }
+}
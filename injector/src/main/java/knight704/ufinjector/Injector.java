@@ -1,70 +1,85 @@
 package knight704.ufinjector;
 
 import android.app.Activity;
+import android.app.Application;
+import android.content.ComponentCallbacks2;
 import android.support.annotation.VisibleForTesting;
+import android.view.View;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import knight704.ufinjector.releasers.ActivityComponentReleaser;
 import knight704.ufinjector.releasers.ComponentReleaser;
+import knight704.ufinjector.releasers.ViewComponentReleaser;
 
 /**
  * Created by Knight704.
  * This class is responsible for creating dagger components via convenient builder-style and keeping them in map-cache.
+ * <p>
+ * Android side of {@link CoreInjector}: single cache of application bound to Activity lifecycle, trimmed according to
+ * {@link ComponentCallbacks2} levels, see {@link #onTrimMemory(int)}.
  */
-public class Injector implements ComponentCache {
+public class Injector extends CoreInjector {
     private static Injector sInstance = new Injector();
-    private Map<Class, Map<String, Object>> mComponentGroups = new HashMap<>();
 
     @VisibleForTesting
     Injector() {
     }
 
-    @VisibleForTesting
-    Map<Class, Map<String, Object>> getComponentGroups() {
-        return mComponentGroups;
+    public static Injector getInstance() {
+        return sInstance;
     }
 
-    @SuppressWarnings("unchecked")
-    @Override
-    public <T> T getOrCreate(Class<T> componentClass, String key, ComponentFactory<T> componentFactory) {
-        Map<String, Object> componentMap = mComponentGroups.get(componentClass);
-        if (componentMap == null) {
-            componentMap = new HashMap<>();
-            mComponentGroups.put(componentClass, componentMap);
-        }
-        T component = (T) componentMap.get(key);
-        if (component == null) {
-            component = componentFactory.create();
-            componentMap.put(key, component);
+    /**
+     * Drop retained components according to {@link ComponentCallbacks2} trim level. Should be called from
+     * {@link android.app.Application#onTrimMemory(int)}. Components that are in use are never dropped, components held for
+     * grace period are dropped first.
+     */
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            trim(0);
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            trim(0.5f);
         }
-        return component;
     }
 
-    @Override
-    public <T> T getOrCreate(Class<T> componentClass, ComponentFactory<T> componentFactory) {
-        return getOrCreate(componentClass, componentClass.getName(), componentFactory);
+    /**
+     * Start looking for activities of application that are leaked by cached components. Meant for debug and beta builds, see {@link LeakWatchdog}.
+     *
+     * @param callback called on background thread for every found leak.
+     */
+    public LeakWatchdog watchLeaks(Application application, LeakWatchdog.Callback callback) {
+        return new LeakWatchdog(this, callback, LeakWatchdog.DEFAULT_DELAY_MILLIS, TimeUnit.MILLISECONDS).start(application);
     }
 
-    @Override
-    public void release(Class componentClass, String key) {
-        Map<String, Object> componentMap = mComponentGroups.get(componentClass);
-        if (componentMap != null) {
-            componentMap.remove(key);
-        }
+    public static InjectRequest with(Activity activity) {
+        return with(new ActivityComponentReleaser(activity));
     }
 
-    @Override
-    public void release(Class componentClass) {
-        release(componentClass, componentClass.getName());
+    /**
+     * Start request of component that is retained on config change in store of activity record instead of this cache, see {@link ActivityComponentStore}.
+     */
+    public static InjectRequest withRetained(Activity activity) {
+        return ActivityComponentStore.of(activity).with(activity);
     }
 
-    public static InjectRequest with(Activity activity) {
-        return with(new ActivityComponentReleaser(activity));
+    /**
+     * Start request of component that is released once view is detached from window, fragments use
+     * {@link knight704.ufinjector.releasers.FragmentComponentReleaser}.
+     */
+    public static InjectRequest with(View view) {
+        return with(new ViewComponentReleaser(view));
     }
 
     public static InjectRequest with(ComponentReleaser releaser) {
         return new InjectRequest(sInstance, releaser);
     }
+
+    public static BatchRequest batch(Activity activity) {
+        return batch(new ActivityComponentReleaser(activity));
+    }
+
+    public static BatchRequest batch(ComponentReleaser releaser) {
+        return new BatchRequest(sInstance, releaser);
+    }
 }
@@ -0,0 +1,55 @@
+package knight704.ufinjector;
+
+/**
+ * Cached component that keeps destroyed activity reachable, see {@link LeakWatchdog}.
+ */
+public class LeakReport {
+    private final Class mComponentClass;
+    private final Object mKey;
+    private final boolean mRetained;
+    private final String mLeakedClassName;
+    private final String mPath;
+
+    LeakReport(Class componentClass, Object key, boolean retained, String leakedClassName, String path) {
+        mComponentClass = componentClass;
+        mKey = key;
+        mRetained = retained;
+        mLeakedClassName = leakedClassName;
+        mPath = path;
+    }
+
+    public Class getComponentClass() {
+        return mComponentClass;
+    }
+
+    /**
+     * @return key of component, null for default one.
+     */
+    public Object getKey() {
+        return mKey;
+    }
+
+    /**
+     * @return true if component was retained by its owner and isn't used by anyone at the moment.
+     */
+    public boolean isRetained() {
+        return mRetained;
+    }
+
+    public String getLeakedClassName() {
+        return mLeakedClassName;
+    }
+
+    /**
+     * @return chain of fields from component to leaked object, i.e {@code MainComponent.module.activity}.
+     */
+    public String getPath() {
+        return mPath;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s leaked by %s%s component %s: %s", mLeakedClassName, mRetained ? "retained " : "", mComponentClass.getName(),
+                mKey != null ? "with key " + mKey : "", mPath);
+    }
+}
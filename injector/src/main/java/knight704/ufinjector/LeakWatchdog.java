@@ -0,0 +1,359 @@
+package knight704.ufinjector;
+
+import android.app.Activity;
+import android.app.Application;
+import android.support.annotation.VisibleForTesting;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Opt-in detector of activities leaked by cached components (i.e retained component with activity link in its module).
+ * <p>
+ * Destroyed activities are tracked with weak references. Those that are not collected after delay and GC are looked for in object graphs
+ * of cached components and every component that still reaches one is reported to {@link Callback}. Work is done on single low priority
+ * background thread in small steps, so watchdog doesn't cause jank, but it walks object graphs via reflection, thus is meant for debug
+ * and beta builds.
+ */
+public class LeakWatchdog {
+    public static final long DEFAULT_DELAY_MILLIS = 5000;
+    private static final int STEP_BUDGET = 256;
+    private static final int MAX_OBJECTS_PER_COMPONENT = 20000;
+
+    private final Injector mInjector;
+    private final Callback mCallback;
+    private final long mDelayNanos;
+    private final ScheduledExecutorService mExecutor;
+    private final ReferenceQueue<Object> mReferenceQueue = new ReferenceQueue<>();
+    private final Set<WatchedReference> mWatched = Collections.synchronizedSet(new HashSet<WatchedReference>());
+    private final AtomicInteger mActiveScans = new AtomicInteger();
+    // Accessed on watchdog thread only.
+    private final Map<Class, Field[]> mFields = new HashMap<>();
+    private final Runnable mCheckTask = new Runnable() {
+        @Override
+        public void run() {
+            check();
+        }
+    };
+    private final Application.ActivityLifecycleCallbacks mLifecycleCallbacks = new ActivityLifecycleCallbacksAdapter() {
+        @Override
+        public void onActivityDestroyed(Activity activity) {
+            watch(activity);
+        }
+    };
+    private Application mApplication;
+
+    LeakWatchdog(Injector injector, Callback callback, long delay, TimeUnit unit) {
+        if (callback == null) {
+            throw new IllegalArgumentException("Callback is not provided");
+        }
+        mInjector = injector;
+        mCallback = callback;
+        mDelayNanos = unit.toNanos(delay);
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new WatchdogThreadFactory());
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        mExecutor = executor;
+    }
+
+    LeakWatchdog start(Application application) {
+        mApplication = application;
+        application.registerActivityLifecycleCallbacks(mLifecycleCallbacks);
+        return this;
+    }
+
+    /**
+     * Stop watching activities, pending checks are dropped.
+     */
+    public void stop() {
+        if (mApplication != null) {
+            mApplication.unregisterActivityLifecycleCallbacks(mLifecycleCallbacks);
+            mApplication = null;
+        }
+        mExecutor.shutdownNow();
+        mWatched.clear();
+    }
+
+    /**
+     * Object is expected to be garbage collected soon, report components that keep it reachable if it is not.
+     */
+    void watch(Object destroyed) {
+        mWatched.add(new WatchedReference(destroyed, mReferenceQueue));
+        try {
+            mExecutor.schedule(mCheckTask, mDelayNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException ignored) {
+            // Watchdog is stopped.
+        }
+    }
+
+    @VisibleForTesting
+    boolean isIdle() {
+        return mWatched.isEmpty() && mActiveScans.get() == 0;
+    }
+
+    private void check() {
+        if (!hasSuspects()) {
+            return;
+        }
+        // Give objects that are not leaked a chance to be collected before expensive scan.
+        Runtime.getRuntime().gc();
+        try {
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (!hasSuspects()) {
+            return;
+        }
+        List<Object> targets = new ArrayList<>();
+        long now = System.nanoTime();
+        // Scan is counted before suspects leave watched set, so watchdog never looks idle in between.
+        mActiveScans.incrementAndGet();
+        synchronized (mWatched) {
+            Iterator<WatchedReference> iterator = mWatched.iterator();
+            while (iterator.hasNext()) {
+                WatchedReference reference = iterator.next();
+                Object target = reference.get();
+                if (target == null) {
+                    iterator.remove();
+                } else if (now - reference.watchedAtNanos >= mDelayNanos) {
+                    iterator.remove();
+                    targets.add(target);
+                }
+            }
+        }
+        if (targets.isEmpty()) {
+            mActiveScans.decrementAndGet();
+        } else {
+            continueScan(new Scan(targets, new ArrayList<>(mInjector.getComponents().entrySet())));
+        }
+    }
+
+    private void continueScan(Scan scan) {
+        try {
+            mExecutor.execute(scan);
+        } catch (RejectedExecutionException e) {
+            // Watchdog is stopped.
+            mActiveScans.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return true if some of watched objects are not collected for longer than delay.
+     */
+    private boolean hasSuspects() {
+        Reference<?> collected;
+        while ((collected = mReferenceQueue.poll()) != null) {
+            mWatched.remove(collected);
+        }
+        long now = System.nanoTime();
+        synchronized (mWatched) {
+            for (WatchedReference reference : mWatched) {
+                if (now - reference.watchedAtNanos >= mDelayNanos) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private Field[] getFields(Class cls) {
+        Field[] fields = mFields.get(cls);
+        if (fields == null) {
+            List<Field> list = new ArrayList<>();
+            for (Class c = cls; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive()) {
+                        continue;
+                    }
+                    try {
+                        field.setAccessible(true);
+                        list.add(field);
+                    } catch (RuntimeException ignored) {
+                        // Field of platform class that can't be opened, it is skipped.
+                    }
+                }
+            }
+            fields = list.toArray(new Field[list.size()]);
+            mFields.put(cls, fields);
+        }
+        return fields;
+    }
+
+    /**
+     * Values that can't reach activity or whose graphs are not worth walking.
+     */
+    private static boolean isLeaf(Object value) {
+        return value instanceof String || value instanceof Number || value instanceof Boolean || value instanceof Character
+                || value instanceof Class || value instanceof ClassLoader || value instanceof Thread || value instanceof Reference
+                || value instanceof Enum || value instanceof Activity || value.getClass().getComponentType() != null
+                && value.getClass().getComponentType().isPrimitive();
+    }
+
+    public interface Callback {
+        /**
+         * Called on watchdog thread for every component that keeps destroyed activity reachable.
+         */
+        void onLeak(LeakReport report);
+    }
+
+    /**
+     * Breadth-first walk over object graphs of cached components, limited by {@link #STEP_BUDGET} objects per executor task.
+     */
+    private class Scan implements Runnable {
+        private final Map<Object, Boolean> mTargets = new IdentityHashMap<>();
+        private final List<Map.Entry<Object, Object>> mEntries;
+        private final ArrayDeque<Node> mQueue = new ArrayDeque<>();
+        private final Map<Object, Boolean> mVisited = new IdentityHashMap<>();
+        private int mEntryIndex;
+        private Class mComponentClass;
+        private Object mKey;
+        private boolean mRetained;
+
+        Scan(List<Object> targets, List<Map.Entry<Object, Object>> entries) {
+            for (Object target : targets) {
+                mTargets.put(target, Boolean.TRUE);
+            }
+            mEntries = entries;
+        }
+
+        @Override
+        public void run() {
+            int budget = STEP_BUDGET;
+            while (budget > 0) {
+                Node node = mQueue.poll();
+                if (node == null) {
+                    if (!nextComponent()) {
+                        mTargets.clear();
+                        mActiveScans.decrementAndGet();
+                        return;
+                    }
+                    continue;
+                }
+                visit(node);
+                budget--;
+            }
+            // Let other tasks run between steps.
+            continueScan(this);
+        }
+
+        private boolean nextComponent() {
+            mVisited.clear();
+            while (mEntryIndex < mEntries.size()) {
+                Map.Entry<Object, Object> entry = mEntries.get(mEntryIndex++);
+                Object component = entry.getValue();
+                if (component instanceof PendingComponent) {
+                    continue;
+                }
+                mRetained = component instanceof RetainedComponent;
+                if (mRetained) {
+                    component = ((RetainedComponent) component).component;
+                }
+                Object cacheKey = entry.getKey();
+                if (cacheKey instanceof ComponentKey) {
+                    mComponentClass = ((ComponentKey) cacheKey).componentClass;
+                    mKey = ((ComponentKey) cacheKey).key;
+                } else {
+                    mComponentClass = (Class) cacheKey;
+                    mKey = null;
+                }
+                mVisited.put(component, Boolean.TRUE);
+                mQueue.add(new Node(component, null, mComponentClass.getSimpleName()));
+                return true;
+            }
+            return false;
+        }
+
+        private void visit(Node node) {
+            Object object = node.object;
+            if (object instanceof Object[]) {
+                Object[] array = (Object[]) object;
+                for (int i = 0; i < array.length; i++) {
+                    enqueue(array[i], node, "[" + i + "]");
+                }
+                return;
+            }
+            for (Field field : getFields(object.getClass())) {
+                Object value;
+                try {
+                    value = field.get(object);
+                } catch (IllegalAccessException e) {
+                    continue;
+                }
+                enqueue(value, node, field.getName());
+            }
+        }
+
+        private void enqueue(Object value, Node parent, String name) {
+            if (value == null || mVisited.containsKey(value)) {
+                return;
+            }
+            mVisited.put(value, Boolean.TRUE);
+            if (mTargets.containsKey(value)) {
+                mCallback.onLeak(new LeakReport(mComponentClass, mKey, mRetained, value.getClass().getName(), new Node(value, parent, name).path()));
+            } else if (!isLeaf(value) && mVisited.size() < MAX_OBJECTS_PER_COMPONENT) {
+                mQueue.add(new Node(value, parent, name));
+            }
+        }
+    }
+
+    private static class Node {
+        final Object object;
+        final Node parent;
+        final String name;
+
+        Node(Object object, Node parent, String name) {
+            this.object = object;
+            this.parent = parent;
+            this.name = name;
+        }
+
+        String path() {
+            StringBuilder builder = new StringBuilder(name);
+            for (Node node = parent; node != null; node = node.parent) {
+                if (builder.charAt(0) != '[') {
+                    builder.insert(0, '.');
+                }
+                builder.insert(0, node.name);
+            }
+            return builder.toString();
+        }
+    }
+
+    private static class WatchedReference extends WeakReference<Object> {
+        final long watchedAtNanos = System.nanoTime();
+
+        WatchedReference(Object referent, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+        }
+    }
+
+    private static class WatchdogThreadFactory implements ThreadFactory {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "ufinjector-leak-watchdog");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    }
+}
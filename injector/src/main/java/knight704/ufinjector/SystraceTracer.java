@@ -0,0 +1,30 @@
+package knight704.ufinjector;
+
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * Emits trace sections with {@link Trace}, so they show up in systrace and Perfetto captures (i.e of app startup) named after component
+ * and its key: "ufi:create MainComponent[42]". Sections are built for every lookup while tracer is set, so it is meant for profiling builds.
+ * Does nothing before API 18.
+ */
+public class SystraceTracer implements ComponentTracer {
+    private static final boolean SUPPORTED = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+    private static final int MAX_SECTION_NAME_LENGTH = 127;
+
+    @Override
+    public void beginSection(String action, Class componentClass, Object key) {
+        if (!SUPPORTED) {
+            return;
+        }
+        String name = "ufi:" + action + ' ' + componentClass.getSimpleName() + (key != null ? "[" + key + "]" : "");
+        Trace.beginSection(name.length() > MAX_SECTION_NAME_LENGTH ? name.substring(0, MAX_SECTION_NAME_LENGTH) : name);
+    }
+
+    @Override
+    public void endSection() {
+        if (SUPPORTED) {
+            Trace.endSection();
+        }
+    }
+}
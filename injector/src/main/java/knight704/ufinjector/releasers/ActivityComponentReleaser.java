@@ -1,37 +1,41 @@
 package knight704.ufinjector.releasers;
 
 import android.app.Activity;
-import android.app.Application;
-
-import knight704.ufinjector.ActivityLifecycleCallbacksAdapter;
 
+/**
+ * Release component when activity is stopped. All releasers of application share single lifecycle callback, see {@link ActivityLifecycleDispatcher}.
+ */
 public class ActivityComponentReleaser implements ComponentReleaser {
     private Activity mActivity;
-    private Application.ActivityLifecycleCallbacks mActivityCallbacks;
+    private OnReleaseListener mListener;
+    private ActivityLifecycleDispatcher mDispatcher;
 
     public ActivityComponentReleaser(Activity activity) {
         mActivity = activity;
     }
 
     @Override
-    public void onRegisterReleaser(final OnReleaseListener listener) {
-        mActivityCallbacks = new ActivityLifecycleCallbacksAdapter() {
-            @Override
-            public void onActivityStopped(Activity activity) {
-                if (mActivity == activity) {
-                    listener.onRelease(!activity.isFinishing() && activity.isChangingConfigurations());
-                }
-            }
-        };
-
-        Application app = mActivity.getApplication();
-        app.registerActivityLifecycleCallbacks(mActivityCallbacks);
+    public void onRegisterReleaser(OnReleaseListener listener) {
+        mListener = listener;
+        mDispatcher = ActivityLifecycleDispatcher.obtain(mActivity.getApplication());
+        mDispatcher.add(mActivity, this);
     }
 
     @Override
     public void onUnregisterReleaser() {
-        Application app = mActivity.getApplication();
-        app.unregisterActivityLifecycleCallbacks(mActivityCallbacks);
+        if (mDispatcher != null) {
+            mDispatcher.remove(mActivity, this);
+            mDispatcher = null;
+        }
+        mListener = null;
         mActivity = null;
     }
+
+    void dispatchRelease(Activity activity) {
+        OnReleaseListener listener = mListener;
+        if (listener == null) {
+            return;
+        }
+        ReleaseReasons.dispatch(listener, ReleaseReasons.of(activity, false));
+    }
 }
@@ -0,0 +1,86 @@
+package knight704.ufinjector.releasers;
+
+import android.app.Activity;
+import android.app.Application;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import knight704.ufinjector.ActivityLifecycleCallbacksAdapter;
+
+/**
+ * Single {@link Application.ActivityLifecycleCallbacks} shared by all {@link ActivityComponentReleaser} of application.
+ * <p>
+ * It is registered in application only once and keeps pending releasers indexed by activity, so every lifecycle event
+ * is handled only by releasers of that activity instead of going through callbacks of all inject requests.
+ */
+class ActivityLifecycleDispatcher extends ActivityLifecycleCallbacksAdapter {
+    private static final Map<Application, ActivityLifecycleDispatcher> sDispatchers = new WeakHashMap<>();
+
+    private final Map<Activity, List<ActivityComponentReleaser>> mReleasers = new IdentityHashMap<>();
+
+    private ActivityLifecycleDispatcher() {
+    }
+
+    /**
+     * @return dispatcher registered in application, it is registered on first call.
+     */
+    static ActivityLifecycleDispatcher obtain(Application app) {
+        synchronized (sDispatchers) {
+            ActivityLifecycleDispatcher dispatcher = sDispatchers.get(app);
+            if (dispatcher == null) {
+                dispatcher = new ActivityLifecycleDispatcher();
+                sDispatchers.put(app, dispatcher);
+                app.registerActivityLifecycleCallbacks(dispatcher);
+            }
+            return dispatcher;
+        }
+    }
+
+    synchronized void add(Activity activity, ActivityComponentReleaser releaser) {
+        List<ActivityComponentReleaser> releasers = mReleasers.get(activity);
+        if (releasers == null) {
+            releasers = new ArrayList<>(2);
+            mReleasers.put(activity, releasers);
+        }
+        releasers.add(releaser);
+    }
+
+    synchronized void remove(Activity activity, ActivityComponentReleaser releaser) {
+        List<ActivityComponentReleaser> releasers = mReleasers.get(activity);
+        if (releasers != null && releasers.remove(releaser) && releasers.isEmpty()) {
+            mReleasers.remove(activity);
+        }
+    }
+
+    @Override
+    public void onActivityStopped(Activity activity) {
+        dispatchRelease(activity);
+    }
+
+    /**
+     * Activity may be destroyed without being stopped (i.e finish() called in onCreate), release what is left to not leak it.
+     */
+    @Override
+    public void onActivityDestroyed(Activity activity) {
+        dispatchRelease(activity);
+    }
+
+    private void dispatchRelease(Activity activity) {
+        ActivityComponentReleaser[] releasers;
+        synchronized (this) {
+            List<ActivityComponentReleaser> pending = mReleasers.get(activity);
+            if (pending == null) {
+                return;
+            }
+            releasers = pending.toArray(new ActivityComponentReleaser[pending.size()]);
+        }
+        // Releasers unregister themselves from listener, so iterate over a copy.
+        for (ActivityComponentReleaser releaser : releasers) {
+            releaser.dispatchRelease(activity);
+        }
+    }
+}
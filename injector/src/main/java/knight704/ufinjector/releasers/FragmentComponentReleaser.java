@@ -0,0 +1,87 @@
+package knight704.ufinjector.releasers;
+
+import android.app.Activity;
+import android.support.annotation.VisibleForTesting;
+import android.support.v4.app.Fragment;
+import android.support.v4.app.FragmentManager;
+
+/**
+ * Release component when fragment is destroyed, or when its view is destroyed for view scoped components (see {@link #forView(Fragment)}),
+ * i.e fragment is put on back stack or is an off screen page of ViewPager. Component is retained on config change of activity.
+ * <p>
+ * All releasers of fragment manager share single lifecycle callback, see {@link FragmentLifecycleDispatcher}. Fragment should be
+ * added to its manager (i.e request is made in onCreate() or later).
+ * <p>
+ * Retained fragments (see {@link Fragment#setRetainInstance(boolean)}) are not supported: such fragment is moved to fragment manager
+ * of recreated activity on config change, so it is never destroyed by manager releaser listens to and its components would never
+ * be released. Release their components explicitly instead.
+ */
+public class FragmentComponentReleaser implements ComponentReleaser {
+    private final boolean mViewScoped;
+    private final FragmentManager mFragmentManager;
+    private Fragment mFragment;
+    private OnReleaseListener mListener;
+    private FragmentLifecycleDispatcher mDispatcher;
+
+    public FragmentComponentReleaser(Fragment fragment) {
+        this(fragment, fragment.getFragmentManager(), false);
+    }
+
+    /**
+     * Releaser of component that lives as long as view of fragment, i.e one that holds presenter bound to views.
+     */
+    public static FragmentComponentReleaser forView(Fragment fragment) {
+        return new FragmentComponentReleaser(fragment, fragment.getFragmentManager(), true);
+    }
+
+    @VisibleForTesting
+    FragmentComponentReleaser(Fragment fragment, FragmentManager fragmentManager, boolean viewScoped) {
+        if (fragmentManager == null) {
+            throw new IllegalStateException("Fragment should be added before its components are requested");
+        }
+        if (fragment.getRetainInstance()) {
+            throw new IllegalStateException("Components of retained fragment can't be released with its lifecycle");
+        }
+        mFragment = fragment;
+        mFragmentManager = fragmentManager;
+        mViewScoped = viewScoped;
+    }
+
+    @Override
+    public void onRegisterReleaser(OnReleaseListener listener) {
+        mListener = listener;
+        mDispatcher = FragmentLifecycleDispatcher.obtain(mFragmentManager);
+        mDispatcher.add(mFragment, this);
+    }
+
+    @Override
+    public void onUnregisterReleaser() {
+        if (mDispatcher != null) {
+            mDispatcher.remove(mFragment, this);
+            mDispatcher = null;
+        }
+        mListener = null;
+        mFragment = null;
+    }
+
+    boolean isViewScoped() {
+        return mViewScoped;
+    }
+
+    void dispatchRelease(Fragment fragment) {
+        dispatchRelease(fragment.getActivity(), fragment.isRemoving());
+    }
+
+    /**
+     * @param activity activity fragment belongs to, null if fragment is detached.
+     * @param removing fragment is removed from its manager.
+     */
+    @VisibleForTesting
+    void dispatchRelease(Activity activity, boolean removing) {
+        OnReleaseListener listener = mListener;
+        if (listener == null) {
+            return;
+        }
+        ReleaseReasons.dispatch(listener, ReleaseReasons.of(activity, removing));
+    }
+}
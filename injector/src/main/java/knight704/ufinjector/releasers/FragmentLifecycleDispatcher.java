@@ -0,0 +1,86 @@
+package knight704.ufinjector.releasers;
+
+import android.support.v4.app.Fragment;
+import android.support.v4.app.FragmentManager;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Single {@link FragmentManager.FragmentLifecycleCallbacks} shared by all {@link FragmentComponentReleaser} of fragment manager.
+ * <p>
+ * It is registered in fragment manager only once and keeps pending releasers indexed by fragment, so every lifecycle event
+ * is handled only by releasers of that fragment, no matter how many fragments (i.e pages of ViewPager) request components.
+ */
+class FragmentLifecycleDispatcher extends FragmentManager.FragmentLifecycleCallbacks {
+    private static final Map<FragmentManager, FragmentLifecycleDispatcher> sDispatchers = new WeakHashMap<>();
+
+    private final Map<Fragment, List<FragmentComponentReleaser>> mReleasers = new IdentityHashMap<>();
+
+    private FragmentLifecycleDispatcher() {
+    }
+
+    /**
+     * @return dispatcher registered in fragment manager, it is registered on first call.
+     */
+    static FragmentLifecycleDispatcher obtain(FragmentManager fragmentManager) {
+        synchronized (sDispatchers) {
+            FragmentLifecycleDispatcher dispatcher = sDispatchers.get(fragmentManager);
+            if (dispatcher == null) {
+                dispatcher = new FragmentLifecycleDispatcher();
+                sDispatchers.put(fragmentManager, dispatcher);
+                fragmentManager.registerFragmentLifecycleCallbacks(dispatcher, false);
+            }
+            return dispatcher;
+        }
+    }
+
+    synchronized void add(Fragment fragment, FragmentComponentReleaser releaser) {
+        List<FragmentComponentReleaser> releasers = mReleasers.get(fragment);
+        if (releasers == null) {
+            releasers = new ArrayList<>(2);
+            mReleasers.put(fragment, releasers);
+        }
+        releasers.add(releaser);
+    }
+
+    synchronized void remove(Fragment fragment, FragmentComponentReleaser releaser) {
+        List<FragmentComponentReleaser> releasers = mReleasers.get(fragment);
+        if (releasers != null && releasers.remove(releaser) && releasers.isEmpty()) {
+            mReleasers.remove(fragment);
+        }
+    }
+
+    /**
+     * Only releasers of view scoped components are released, fragment itself may be shown again (i.e from back stack).
+     */
+    @Override
+    public void onFragmentViewDestroyed(FragmentManager fm, Fragment f) {
+        dispatchRelease(f, true);
+    }
+
+    @Override
+    public void onFragmentDestroyed(FragmentManager fm, Fragment f) {
+        dispatchRelease(f, false);
+    }
+
+    private void dispatchRelease(Fragment fragment, boolean viewDestroyed) {
+        FragmentComponentReleaser[] releasers;
+        synchronized (this) {
+            List<FragmentComponentReleaser> pending = mReleasers.get(fragment);
+            if (pending == null) {
+                return;
+            }
+            releasers = pending.toArray(new FragmentComponentReleaser[pending.size()]);
+        }
+        // Releasers unregister themselves from listener, so iterate over a copy.
+        for (FragmentComponentReleaser releaser : releasers) {
+            if (!viewDestroyed || releaser.isViewScoped()) {
+                releaser.dispatchRelease(fragment);
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package knight704.ufinjector.releasers;
+
+import android.app.Activity;
+
+import knight704.ufinjector.ReleaseReason;
+import knight704.ufinjector.releasers.ComponentReleaser.OnReleaseListener;
+import knight704.ufinjector.releasers.ComponentReleaser.OnReleaseReasonListener;
+
+/**
+ * Release reasons shared by lifecycle releasers of Android.
+ */
+final class ReleaseReasons {
+    private ReleaseReasons() {
+    }
+
+    /**
+     * @param activity activity owner belongs to, null if it is not known (i.e fragment is already detached).
+     * @param removing owner is removed for good even if activity lives on (i.e fragment removed from its manager).
+     */
+    static ReleaseReason of(Activity activity, boolean removing) {
+        if (removing || activity == null || activity.isFinishing()) {
+            return ReleaseReason.FINISH;
+        } else if (activity.isChangingConfigurations()) {
+            return ReleaseReason.CONFIG_CHANGE;
+        } else {
+            return ReleaseReason.STOP;
+        }
+    }
+
+    static void dispatch(OnReleaseListener listener, ReleaseReason reason) {
+        if (listener instanceof OnReleaseReasonListener) {
+            ((OnReleaseReasonListener) listener).onRelease(reason);
+        } else {
+            listener.onRelease(reason == ReleaseReason.CONFIG_CHANGE);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package knight704.ufinjector.releasers;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.support.annotation.VisibleForTesting;
+import android.view.View;
+
+/**
+ * Release component when view is detached from window (i.e custom view that builds its own graph), component is retained on config
+ * change of activity view belongs to.
+ * <p>
+ * Component is released on the first detach and releaser stops listening to view, so it is meant for views that are not attached
+ * again (i.e not items of RecyclerView or views moved between parents). Such views should request their component on every attach.
+ */
+public class ViewComponentReleaser implements ComponentReleaser, View.OnAttachStateChangeListener {
+    private View mView;
+    private Activity mActivity;
+    private OnReleaseListener mListener;
+
+    public ViewComponentReleaser(View view) {
+        this(view, findActivity(view.getContext()));
+    }
+
+    /**
+     * @param activity activity view belongs to, null if view isn't created with activity context.
+     */
+    @VisibleForTesting
+    ViewComponentReleaser(View view, Activity activity) {
+        mView = view;
+        mActivity = activity;
+    }
+
+    @Override
+    public void onRegisterReleaser(OnReleaseListener listener) {
+        mListener = listener;
+        mView.addOnAttachStateChangeListener(this);
+    }
+
+    @Override
+    public void onUnregisterReleaser() {
+        if (mView != null) {
+            mView.removeOnAttachStateChangeListener(this);
+            mView = null;
+        }
+        mActivity = null;
+        mListener = null;
+    }
+
+    @Override
+    public void onViewAttachedToWindow(View v) {
+    }
+
+    @Override
+    public void onViewDetachedFromWindow(View v) {
+        OnReleaseListener listener = mListener;
+        if (listener == null) {
+            return;
+        }
+        ReleaseReasons.dispatch(listener, ReleaseReasons.of(mActivity, false));
+    }
+
+    private static Activity findActivity(Context context) {
+        while (context instanceof ContextWrapper) {
+            if (context instanceof Activity) {
+                return (Activity) context;
+            }
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+        return null;
+    }
+}
@@ -78,9 +78,57 @@ public class ActivityComponentReleaserTest {
     }
 
     @Test
-    public void testUnregisterReleaserShouldRemoveActivityLifecycleCallbacks() throws Exception {
+    public void testReleasersShouldShareSingleActivityLifecycleCallbacks() throws Exception {
+        mActivityReleaser.onRegisterReleaser(mock(ComponentReleaser.OnReleaseListener.class));
+        new ActivityComponentReleaser(mMockActivity).onRegisterReleaser(mock(ComponentReleaser.OnReleaseListener.class));
+        Activity anotherActivity = mock(Activity.class);
+        when(anotherActivity.getApplication()).thenReturn(mMockApp);
+        new ActivityComponentReleaser(anotherActivity).onRegisterReleaser(mock(ComponentReleaser.OnReleaseListener.class));
+
+        verify(mMockApp, times(1)).registerActivityLifecycleCallbacks(any(Application.ActivityLifecycleCallbacks.class));
+    }
+
+    @Test
+    public void testShouldFireOnReleaseForEveryReleaserOfActivity() throws Exception {
+        ReleaserEnv releaserEnv = registerReleaser();
+        ComponentReleaser.OnReleaseListener anotherListener = mock(ComponentReleaser.OnReleaseListener.class);
+        new ActivityComponentReleaser(mMockActivity).onRegisterReleaser(anotherListener);
+        releaserEnv.activityCallbacks.onActivityStopped(mMockActivity);
+
+        verify(releaserEnv.releaseListener).onRelease(anyBoolean());
+        verify(anotherListener).onRelease(anyBoolean());
+    }
+
+    @Test
+    public void testUnregisteredReleaserShouldNotFireOnRelease() throws Exception {
+        ReleaserEnv releaserEnv = registerReleaser();
         mActivityReleaser.onUnregisterReleaser();
-        verify(mMockApp).unregisterActivityLifecycleCallbacks(any(Application.ActivityLifecycleCallbacks.class));
+        releaserEnv.activityCallbacks.onActivityStopped(mMockActivity);
+
+        verify(releaserEnv.releaseListener, times(0)).onRelease(anyBoolean());
+        verify(mMockApp, times(0)).unregisterActivityLifecycleCallbacks(any(Application.ActivityLifecycleCallbacks.class));
+    }
+
+    @Test
+    public void testDestroyedActivityShouldFireOnReleaseIfNotStopped() throws Exception {
+        when(mMockActivity.isFinishing()).thenReturn(true);
+        ReleaserEnv releaserEnv = registerReleaser();
+        releaserEnv.activityCallbacks.onActivityDestroyed(mMockActivity);
+
+        verify(releaserEnv.releaseListener).onRelease(false);
+    }
+
+    @Test
+    public void testShouldFireOnReleaseWithReason() throws Exception {
+        ComponentReleaser.OnReleaseReasonListener reasonListener = mock(ComponentReleaser.OnReleaseReasonListener.class);
+        mActivityReleaser.onRegisterReleaser(reasonListener);
+        ArgumentCaptor<Application.ActivityLifecycleCallbacks> alcCaptor = ArgumentCaptor.forClass(Application.ActivityLifecycleCallbacks.class);
+        verify(mMockApp).registerActivityLifecycleCallbacks(alcCaptor.capture());
+
+        when(mMockActivity.isChangingConfigurations()).thenReturn(true);
+        alcCaptor.getValue().onActivityStopped(mMockActivity);
+        verify(reasonListener).onRelease(ReleaseReason.CONFIG_CHANGE);
+        verify(reasonListener, times(0)).onRelease(anyBoolean());
     }
 
     private ReleaserEnv registerReleaser() {
@@ -0,0 +1,168 @@
+package knight704.ufinjector;
+
+import android.app.Activity;
+import android.app.Application;
+import android.app.Fragment;
+import android.app.FragmentManager;
+import android.app.FragmentTransaction;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import dagger.Component;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ActivityComponentStoreTest {
+    private static final ComponentFactory<MockComponent> FACTORY = new ComponentFactory<MockComponent>() {
+        @Override
+        public MockComponent create() {
+            return new MockComponent();
+        }
+    };
+    private Application mApp;
+    private ActivityComponentStore mStore;
+
+    @Before
+    public void setUp() {
+        mApp = mock(Application.class);
+        mStore = new ActivityComponentStore();
+    }
+
+    @Test
+    public void testComponentShouldBeRetainedInStoreOnConfigChange() throws Exception {
+        Activity activity = createActivity();
+        MockComponent component = mStore.with(activity).build(MockComponent.class, FACTORY);
+
+        when(activity.isChangingConfigurations()).thenReturn(true);
+        callbacks().onActivityStopped(activity);
+        Activity recreated = createActivity();
+
+        assertThat(mStore.with(recreated).build(MockComponent.class, FACTORY), sameInstance(component));
+        assertThat(mStore.getCache().isCached(MockComponent.class, null), is(true));
+        assertThat(Injector.getInstance().isCached(MockComponent.class, null), is(false));
+    }
+
+    @Test
+    public void testComponentShouldBeReleasedFromStoreWhenActivityFinishes() throws Exception {
+        Activity activity = createActivity();
+        MockComponent component = mStore.with(activity).build(MockComponent.class, FACTORY);
+
+        when(activity.isFinishing()).thenReturn(true);
+        callbacks().onActivityStopped(activity);
+
+        assertThat(mStore.getCache().isCached(MockComponent.class, null), is(false));
+        assertThat(component.mDisposed, is(true));
+        assertThat(mStore.with(createActivity()).build(MockComponent.class, FACTORY), not(sameInstance(component)));
+    }
+
+    @Test
+    public void testClearShouldDropComponentsLeftRetained() throws Exception {
+        Activity activity = createActivity();
+        MockComponent component = mStore.with(activity).build(MockComponent.class, FACTORY);
+        when(activity.isChangingConfigurations()).thenReturn(true);
+        callbacks().onActivityStopped(activity);
+
+        mStore.clear();
+
+        assertThat(mStore.getCache().getComponents().size(), is(0));
+        assertThat(component.mDisposed, is(true));
+    }
+
+    @Test
+    public void testStoreShouldBeAddedToActivityInRetainedFragmentOnce() throws Exception {
+        Activity activity = createActivity();
+        FragmentManager fragmentManager = mock(FragmentManager.class);
+        FragmentTransaction transaction = mockTransaction(activity, fragmentManager);
+
+        ActivityComponentStore store = ActivityComponentStore.of(activity);
+        // Fragment isn't found until transaction is executed, store is remembered for activity meanwhile.
+        assertThat(ActivityComponentStore.of(activity), sameInstance(store));
+
+        ArgumentCaptor<Fragment> captor = ArgumentCaptor.forClass(Fragment.class);
+        verify(transaction).add(captor.capture(), eq(ActivityComponentStore.FRAGMENT_TAG));
+        verify(transaction).commitAllowingStateLoss();
+        verify(fragmentManager, times(1)).beginTransaction();
+        assertThat(captor.getValue(), instanceOf(ActivityComponentStore.StoreFragment.class));
+        assertThat(((ActivityComponentStore.StoreFragment) captor.getValue()).mStore, sameInstance(store));
+    }
+
+    @Test
+    public void testRecreatedActivityShouldFindStoreInItsFragment() throws Exception {
+        Activity activity = createActivity();
+        FragmentTransaction transaction = mockTransaction(activity, mock(FragmentManager.class));
+        ActivityComponentStore store = ActivityComponentStore.of(activity);
+        ArgumentCaptor<Fragment> captor = ArgumentCaptor.forClass(Fragment.class);
+        verify(transaction).add(captor.capture(), anyString());
+
+        Activity recreated = createActivity();
+        FragmentManager fragmentManager = mock(FragmentManager.class);
+        when(recreated.getFragmentManager()).thenReturn(fragmentManager);
+        when(fragmentManager.findFragmentByTag(ActivityComponentStore.FRAGMENT_TAG)).thenReturn(captor.getValue());
+
+        assertThat(ActivityComponentStore.of(recreated), sameInstance(store));
+        verify(fragmentManager, times(0)).beginTransaction();
+    }
+
+    @Test
+    public void testDestroyOfStoreFragmentShouldClearStore() throws Exception {
+        Activity activity = createActivity();
+        FragmentTransaction transaction = mockTransaction(activity, mock(FragmentManager.class));
+        ActivityComponentStore store = ActivityComponentStore.of(activity);
+        ArgumentCaptor<Fragment> captor = ArgumentCaptor.forClass(Fragment.class);
+        verify(transaction).add(captor.capture(), anyString());
+        MockComponent component = store.with(activity).build(MockComponent.class, FACTORY);
+        when(activity.isChangingConfigurations()).thenReturn(true);
+        callbacks().onActivityStopped(activity);
+
+        captor.getValue().onDestroy();
+
+        assertThat(store.getCache().getComponents().size(), is(0));
+        assertThat(component.mDisposed, is(true));
+    }
+
+    private Activity createActivity() {
+        Activity activity = mock(Activity.class);
+        when(activity.getApplication()).thenReturn(mApp);
+        return activity;
+    }
+
+    private static FragmentTransaction mockTransaction(Activity activity, FragmentManager fragmentManager) {
+        FragmentTransaction transaction = mock(FragmentTransaction.class);
+        when(activity.getFragmentManager()).thenReturn(fragmentManager);
+        when(fragmentManager.beginTransaction()).thenReturn(transaction);
+        when(transaction.add(any(Fragment.class), anyString())).thenReturn(transaction);
+        return transaction;
+    }
+
+    /**
+     * Dispatcher is registered in application by releaser of the first built request.
+     */
+    private Application.ActivityLifecycleCallbacks callbacks() {
+        ArgumentCaptor<Application.ActivityLifecycleCallbacks> captor = ArgumentCaptor.forClass(Application.ActivityLifecycleCallbacks.class);
+        verify(mApp).registerActivityLifecycleCallbacks(captor.capture());
+        return captor.getValue();
+    }
+
+    @Component
+    static class MockComponent implements Disposable {
+        boolean mDisposed;
+
+        @Override
+        public void dispose() {
+            mDisposed = true;
+        }
+    }
+}
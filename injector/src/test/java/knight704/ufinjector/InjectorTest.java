@@ -1,12 +1,18 @@
 package knight704.ufinjector;
 
+import android.content.ComponentCallbacks2;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
@@ -38,7 +44,7 @@ public class InjectorTest {
         mInjector.getOrCreate(MockComponent.class, mMockFactory);
 
         verify(mMockFactory, times(1)).create();
-        assertThat(mInjector.getComponentGroups().size(), is(1));
+        assertThat(mInjector.getCachedCount(MockComponent.class), is(1));
     }
 
     @Test
@@ -48,7 +54,7 @@ public class InjectorTest {
         MockComponent comp3 = mInjector.getOrCreate(MockComponent.class, mMockFactory);
 
         verify(mMockFactory, times(1)).create();
-        assertThat(mInjector.getComponentGroups().size(), is(1));
+        assertThat(mInjector.getCachedCount(MockComponent.class), is(1));
         assertTrue(comp1 == comp2 && comp2 == comp3);
     }
 
@@ -57,24 +63,357 @@ public class InjectorTest {
         mInjector.getOrCreate(MockComponent.class, "key1", mMockFactory);
         mInjector.getOrCreate(MockComponent.class, "key2", mMockFactory);
 
-        Map<Class, Map<String, Object>> componentGroups = mInjector.getComponentGroups();
-        assertThat(componentGroups.size(), is(1));
-        Map<String, Object> componentMap = componentGroups.get(MockComponent.class);
-        assertThat(componentMap.size(), is(2));
-        assertTrue(componentMap.containsKey("key1") && componentMap.containsKey("key2"));
+        assertThat(mInjector.getCachedCount(MockComponent.class), is(2));
+        assertTrue(mInjector.isCached(MockComponent.class, "key1") && mInjector.isCached(MockComponent.class, "key2"));
     }
 
     @Test
     public void testReleaseShouldRemoveComponentFromCache() throws Exception {
         mInjector.getOrCreate(MockComponent.class, mMockFactory);
 
-        assertThat(mInjector.getComponentGroups().get(MockComponent.class).size(), is(1));
+        assertThat(mInjector.getCachedCount(MockComponent.class), is(1));
 
         mInjector.release(MockComponent.class);
 
-        assertThat(mInjector.getComponentGroups().get(MockComponent.class).size(), is(0));
+        assertThat(mInjector.getCachedCount(MockComponent.class), is(0));
+    }
+
+    @Test
+    public void testRetainedComponentShouldBeReturnedOnNextGet() throws Exception {
+        MockComponent component = mInjector.getOrCreate(MockComponent.class, mMockFactory);
+        mInjector.retain(MockComponent.class);
+
+        assertThat(mInjector.getRetainedWeight(), is(1));
+        assertTrue(mInjector.getOrCreate(MockComponent.class, mMockFactory) == component);
+        assertThat(mInjector.getRetainedWeight(), is(0));
+        verify(mMockFactory, times(1)).create();
+    }
+
+    @Test
+    public void testRetainedComponentsOverLimitShouldBeEvictedInLruOrder() throws Exception {
+        mInjector.setRetainedLimit(2);
+        for (String key : new String[]{"key1", "key2", "key3"}) {
+            mInjector.getOrCreate(MockComponent.class, key, mMockFactory);
+            mInjector.retain(MockComponent.class, key);
+        }
+
+        assertThat(mInjector.getCachedCount(MockComponent.class), is(2));
+        assertTrue(mInjector.isCached(MockComponent.class, "key2") && mInjector.isCached(MockComponent.class, "key3"));
+    }
+
+    @Test
+    public void testComponentsInUseShouldNotBeEvicted() throws Exception {
+        mInjector.setRetainedLimit(0);
+        mInjector.getOrCreate(MockComponent.class, "used", mMockFactory);
+        mInjector.getOrCreate(MockComponent.class, "retained", mMockFactory);
+        mInjector.retain(MockComponent.class, "retained");
+
+        assertThat(mInjector.getCachedCount(MockComponent.class), is(1));
+        assertTrue(mInjector.isCached(MockComponent.class, "used"));
+    }
+
+    @Test
+    public void testWeigherShouldLimitRetainedWeight() throws Exception {
+        mInjector.setRetainedLimit(5, new ComponentWeigher() {
+            @Override
+            public int weigh(Class componentClass, Object component) {
+                return 3;
+            }
+        });
+        mInjector.getOrCreate(MockComponent.class, "key1", mMockFactory);
+        mInjector.retain(MockComponent.class, "key1");
+        mInjector.getOrCreate(MockComponent.class, "key2", mMockFactory);
+        mInjector.retain(MockComponent.class, "key2");
+
+        assertThat(mInjector.getRetainedWeight(), is(3));
+        assertTrue(mInjector.isCached(MockComponent.class, "key2"));
+    }
+
+    @Test
+    public void testTrimMemoryShouldDropRetainedComponents() throws Exception {
+        for (String key : new String[]{"key1", "key2", "key3", "key4"}) {
+            mInjector.getOrCreate(MockComponent.class, key, mMockFactory);
+            mInjector.retain(MockComponent.class, key);
+        }
+        mInjector.getOrCreate(MockComponent.class, "used", mMockFactory);
+
+        mInjector.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        assertThat(mInjector.getRetainedWeight(), is(4));
+
+        mInjector.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        assertThat(mInjector.getRetainedWeight(), is(2));
+
+        mInjector.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        assertThat(mInjector.getRetainedWeight(), is(0));
+        assertThat(mInjector.getCachedCount(MockComponent.class), is(1));
+        assertTrue(mInjector.isCached(MockComponent.class, "used"));
+    }
+
+    @Test
+    public void testGetByObjectKeyShouldNotMixWithDefaultComponent() throws Exception {
+        MockComponent defaultComponent = mInjector.getOrCreate(MockComponent.class, mMockFactory);
+        when(mMockFactory.create()).thenReturn(new MockComponent(), new MockComponent());
+        MockComponent longKeyComponent = mInjector.getOrCreate(MockComponent.class, 42L, mMockFactory);
+        MockComponent enumKeyComponent = mInjector.getOrCreate(MockComponent.class, TimeUnit.SECONDS, mMockFactory);
+
+        assertTrue(mInjector.getOrCreate(MockComponent.class, Long.valueOf(42), mMockFactory) == longKeyComponent);
+        assertTrue(mInjector.getOrCreate(MockComponent.class, TimeUnit.SECONDS, mMockFactory) == enumKeyComponent);
+        assertTrue(mInjector.getOrCreate(MockComponent.class, mMockFactory) == defaultComponent);
+        assertTrue(defaultComponent != longKeyComponent && longKeyComponent != enumKeyComponent);
+
+        mInjector.release(MockComponent.class, 42L);
+        assertThat(mInjector.getCachedCount(MockComponent.class), is(2));
+        assertTrue(mInjector.isCached(MockComponent.class, null) && mInjector.isCached(MockComponent.class, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testReleaseShouldRemoveRetainedComponent() throws Exception {
+        mInjector.getOrCreate(MockComponent.class, mMockFactory);
+        mInjector.retain(MockComponent.class);
+        mInjector.release(MockComponent.class);
+
+        assertThat(mInjector.getRetainedWeight(), is(0));
+        assertThat(mInjector.getCachedCount(MockComponent.class), is(0));
+    }
+
+    @Test
+    public void testReleaseShouldCascadeToChildren() throws Exception {
+        mInjector.getOrCreate(MockComponent.class, "parent", mMockFactory);
+        mInjector.getOrCreate(MockComponent.class, "child", mMockFactory);
+        mInjector.getOrCreate(MockComponent.class, "grandchild", mMockFactory);
+        mInjector.getOrCreate(MockComponent.class, "other", mMockFactory);
+        mInjector.attach(MockComponent.class, "child", MockComponent.class, "parent");
+        mInjector.attach(MockComponent.class, "grandchild", MockComponent.class, "child");
+        mInjector.retain(MockComponent.class, "grandchild");
+
+        mInjector.release(MockComponent.class, "parent");
+
+        assertThat(mInjector.getCachedCount(MockComponent.class), is(1));
+        assertTrue(mInjector.isCached(MockComponent.class, "other"));
+        assertThat(mInjector.getRetainedWeight(), is(0));
+    }
+
+    @Test
+    public void testReleasedChildShouldNotBeReleasedWithParentAgain() throws Exception {
+        mInjector.getOrCreate(MockComponent.class, mMockFactory);
+        mInjector.getOrCreate(MockComponent.class, "child", mMockFactory);
+        mInjector.attach(MockComponent.class, "child", MockComponent.class, null);
+        mInjector.release(MockComponent.class, "child");
+        mInjector.getOrCreate(MockComponent.class, "child", mMockFactory);
+
+        mInjector.release(MockComponent.class);
+
+        assertTrue(mInjector.isCached(MockComponent.class, "child"));
+    }
+
+    @Test
+    public void testEvictedParentShouldReleaseChildren() throws Exception {
+        mInjector.setRetainedLimit(0);
+        mInjector.getOrCreate(MockComponent.class, "parent", mMockFactory);
+        mInjector.getOrCreate(MockComponent.class, "child", mMockFactory);
+        mInjector.attach(MockComponent.class, "child", MockComponent.class, "parent");
+
+        mInjector.retain(MockComponent.class, "parent");
+
+        assertThat(mInjector.getCachedCount(MockComponent.class), is(0));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAttachToNotCachedParentShouldThrowException() throws Exception {
+        mInjector.getOrCreate(MockComponent.class, "child", mMockFactory);
+        mInjector.attach(MockComponent.class, "child", MockComponent.class, "parent");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAttachToOwnChildShouldThrowException() throws Exception {
+        mInjector.getOrCreate(MockComponent.class, "parent", mMockFactory);
+        mInjector.getOrCreate(MockComponent.class, "child", mMockFactory);
+        mInjector.attach(MockComponent.class, "child", MockComponent.class, "parent");
+        mInjector.attach(MockComponent.class, "parent", MockComponent.class, "child");
+    }
+
+    @Test
+    public void testReleasedDisposableComponentShouldBeDisposed() throws Exception {
+        DisposableComponent component = mInjector.getOrCreate(DisposableComponent.class, new DisposableFactory());
+        mInjector.retain(DisposableComponent.class);
+        assertThat(component.disposeCount, is(0));
+
+        mInjector.release(DisposableComponent.class);
+        assertThat(component.disposeCount, is(1));
+    }
+
+    @Test
+    public void testTeardownShouldBeDeferredToExecutorInBatches() throws Exception {
+        final List<Runnable> tasks = new ArrayList<>();
+        mInjector.setTeardownExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        });
+        int count = TeardownQueue.MAX_BATCH_SIZE + 1;
+        List<DisposableComponent> components = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            components.add(mInjector.getOrCreate(DisposableComponent.class, i, new DisposableFactory()));
+            mInjector.release(DisposableComponent.class, i);
+        }
+        assertThat(mInjector.getCachedCount(DisposableComponent.class), is(0));
+        assertThat(tasks.size(), is(1));
+        assertThat(components.get(0).disposeCount, is(0));
+
+        tasks.remove(0).run();
+        assertThat(components.get(TeardownQueue.MAX_BATCH_SIZE - 1).disposeCount, is(1));
+        assertThat(components.get(TeardownQueue.MAX_BATCH_SIZE).disposeCount, is(0));
+        assertThat(tasks.size(), is(1));
+
+        tasks.remove(0).run();
+        assertThat(components.get(TeardownQueue.MAX_BATCH_SIZE).disposeCount, is(1));
+        assertTrue(tasks.isEmpty());
+    }
+
+    @Test
+    public void testTeardownRejectedByExecutorShouldBeDoneOnReleasingThread() throws Exception {
+        mInjector.setTeardownExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException("Executor is shut down");
+            }
+        });
+        DisposableComponent first = mInjector.getOrCreate(DisposableComponent.class, 1, new DisposableFactory());
+        mInjector.release(DisposableComponent.class, 1);
+        DisposableComponent second = mInjector.getOrCreate(DisposableComponent.class, 2, new DisposableFactory());
+        mInjector.release(DisposableComponent.class, 2);
+
+        assertThat(first.disposeCount, is(1));
+        assertThat(second.disposeCount, is(1));
+    }
+
+    @Test
+    public void testEvictedDisposableComponentShouldBeDisposed() throws Exception {
+        mInjector.setRetainedLimit(0);
+        DisposableComponent component = mInjector.getOrCreate(DisposableComponent.class, new DisposableFactory());
+        mInjector.retain(DisposableComponent.class);
+
+        assertThat(component.disposeCount, is(1));
+    }
+
+    @Test
+    public void testHeldComponentShouldBeReclaimedWithinGracePeriod() throws Exception {
+        MockComponent component = mInjector.getOrCreate(MockComponent.class, "key", mMockFactory);
+        mInjector.releaseAfter(MockComponent.class, "key", ReleaseReason.STOP, 1, TimeUnit.MINUTES);
+        assertThat(mInjector.getHeldCount(), is(1));
+
+        mInjector.expireHeld(System.nanoTime() + TimeUnit.SECONDS.toNanos(30));
+        assertTrue(mInjector.getOrCreate(MockComponent.class, "key", mMockFactory) == component);
+        assertThat(mInjector.getHeldCount(), is(0));
+        verify(mMockFactory, times(1)).create();
+
+        mInjector.expireHeld(System.nanoTime() + TimeUnit.MINUTES.toNanos(2));
+        assertTrue(mInjector.isCached(MockComponent.class, "key"));
+    }
+
+    @Test
+    public void testHeldComponentShouldBeReleasedOnceGracePeriodEnds() throws Exception {
+        DisposableComponent component = mInjector.getOrCreate(DisposableComponent.class, new DisposableFactory());
+        mInjector.getOrCreate(MockComponent.class, "child", mMockFactory);
+        mInjector.attach(MockComponent.class, "child", DisposableComponent.class, null);
+        mInjector.releaseAfter(DisposableComponent.class, null, ReleaseReason.FINISH, 1, TimeUnit.MINUTES);
+
+        mInjector.expireHeld(System.nanoTime() + TimeUnit.MINUTES.toNanos(2));
+        assertThat(mInjector.getCachedCount(DisposableComponent.class), is(0));
+        assertThat(component.disposeCount, is(1));
+        assertThat(mInjector.getCachedCount(MockComponent.class), is(0));
+        assertThat(mInjector.getHeldCount(), is(0));
+    }
+
+    @Test
+    public void testHeldComponentShouldExpireOnTimerThread() throws Exception {
+        mInjector.getOrCreate(MockComponent.class, mMockFactory);
+        mInjector.releaseAfter(MockComponent.class, null, ReleaseReason.STOP, 50, TimeUnit.MILLISECONDS);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (mInjector.isCached(MockComponent.class, null) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(mInjector.getCachedCount(MockComponent.class), is(0));
+    }
+
+    @Test
+    public void testTrimMemoryShouldDropHeldComponents() throws Exception {
+        mInjector.getOrCreate(MockComponent.class, mMockFactory);
+        mInjector.releaseAfter(MockComponent.class, null, ReleaseReason.STOP, 1, TimeUnit.MINUTES);
+
+        mInjector.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        assertThat(mInjector.getCachedCount(MockComponent.class), is(0));
+        assertThat(mInjector.getHeldCount(), is(0));
+    }
+
+    @Test
+    public void testSharedComponentShouldBeReleasedByLastReferenceInAnyOrder() throws Exception {
+        ComponentReference first = mInjector.acquire(MockComponent.class, "key");
+        mInjector.getOrCreate(MockComponent.class, "key", mMockFactory);
+        ComponentReference second = mInjector.acquire(MockComponent.class, "key");
+        mInjector.getOrCreate(MockComponent.class, "key", mMockFactory);
+
+        mInjector.release(second, ReleaseReason.STOP, false);
+        assertTrue(mInjector.isCached(MockComponent.class, "key"));
+        assertThat(mInjector.getReferenceCount(MockComponent.class, "key"), is(1));
+        mInjector.release(first, ReleaseReason.STOP, false);
+        assertThat(mInjector.getCachedCount(MockComponent.class), is(0));
+        assertThat(mInjector.getReferenceCount(MockComponent.class, "key"), is(0));
+        verify(mMockFactory, times(1)).create();
+    }
+
+    @Test
+    public void testLastReferenceShouldDecideWhetherComponentIsRetained() throws Exception {
+        ComponentReference first = mInjector.acquire(MockComponent.class, null);
+        ComponentReference second = mInjector.acquire(MockComponent.class, null);
+        mInjector.getOrCreate(MockComponent.class, mMockFactory);
+
+        mInjector.release(first, ReleaseReason.STOP, false);
+        mInjector.release(second, ReleaseReason.CONFIG_CHANGE, true);
+        assertThat(mInjector.getRetainedWeight(), is(1));
+
+        first = mInjector.acquire(MockComponent.class, null);
+        second = mInjector.acquire(MockComponent.class, null);
+        mInjector.getOrCreate(MockComponent.class, mMockFactory);
+        mInjector.release(first, ReleaseReason.CONFIG_CHANGE, true);
+        assertThat(mInjector.getRetainedWeight(), is(0));
+        mInjector.release(second, ReleaseReason.STOP, false);
+        assertThat(mInjector.getCachedCount(MockComponent.class), is(0));
+        verify(mMockFactory, times(1)).create();
+    }
+
+    @Test
+    public void testExplicitReleaseShouldDropReferencesOfReleasedComponent() throws Exception {
+        ComponentReference stale = mInjector.acquire(MockComponent.class, "key");
+        mInjector.getOrCreate(MockComponent.class, "key", mMockFactory);
+        mInjector.release(MockComponent.class, "key");
+
+        ComponentReference fresh = mInjector.acquire(MockComponent.class, "key");
+        mInjector.getOrCreate(MockComponent.class, "key", mMockFactory);
+        mInjector.release(stale, ReleaseReason.STOP, false);
+        assertTrue(mInjector.isCached(MockComponent.class, "key"));
+        mInjector.release(fresh, ReleaseReason.STOP, false);
+        assertThat(mInjector.getCachedCount(MockComponent.class), is(0));
     }
 
     private static class MockComponent {
     }
+
+    private static class DisposableComponent implements Disposable {
+        int disposeCount;
+
+        @Override
+        public void dispose() {
+            disposeCount++;
+        }
+    }
+
+    private static class DisposableFactory implements ComponentFactory<DisposableComponent> {
+        @Override
+        public DisposableComponent create() {
+            return new DisposableComponent();
+        }
+    }
 }
@@ -0,0 +1,117 @@
+package knight704.ufinjector;
+
+import android.app.Activity;
+import android.app.Application;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class LeakWatchdogTest {
+    private Injector mInjector;
+    private List<LeakReport> mReports;
+    private LeakWatchdog mWatchdog;
+
+    @Before
+    public void setUp() {
+        mInjector = new Injector();
+        mReports = new CopyOnWriteArrayList<>();
+        mWatchdog = new LeakWatchdog(mInjector, new LeakWatchdog.Callback() {
+            @Override
+            public void onLeak(LeakReport report) {
+                mReports.add(report);
+            }
+        }, 0, TimeUnit.MILLISECONDS);
+    }
+
+    @After
+    public void tearDown() {
+        mWatchdog.stop();
+    }
+
+    @Test
+    public void testRetainedComponentReachingDestroyedActivityShouldBeReported() throws Exception {
+        Application app = mock(Application.class);
+        mWatchdog.start(app);
+        ArgumentCaptor<Application.ActivityLifecycleCallbacks> captor = ArgumentCaptor.forClass(Application.ActivityLifecycleCallbacks.class);
+        verify(app).registerActivityLifecycleCallbacks(captor.capture());
+        final Activity activity = mock(Activity.class);
+        mInjector.getOrCreate(LeakyComponent.class, "key", new ComponentFactory<LeakyComponent>() {
+            @Override
+            public LeakyComponent create() {
+                return new LeakyComponent(new ActivityModule(activity));
+            }
+        });
+        mInjector.retain(LeakyComponent.class, "key");
+
+        captor.getValue().onActivityDestroyed(activity);
+        awaitIdle();
+
+        assertThat(mReports.size(), is(1));
+        LeakReport report = mReports.get(0);
+        assertTrue(report.getComponentClass() == LeakyComponent.class);
+        assertThat(report.getKey(), is((Object) "key"));
+        assertTrue(report.isRetained());
+        assertThat(report.getPath(), is("LeakyComponent.mModules[0].mActivity"));
+    }
+
+    @Test
+    public void testCollectedObjectShouldNotBeReported() throws Exception {
+        mInjector.getOrCreate(LeakyComponent.class, new ComponentFactory<LeakyComponent>() {
+            @Override
+            public LeakyComponent create() {
+                return new LeakyComponent(new ActivityModule(new Object()));
+            }
+        });
+
+        mWatchdog.watch(new Object());
+        awaitIdle();
+
+        assertTrue(mReports.isEmpty());
+    }
+
+    @Test
+    public void testStopShouldUnregisterCallbacks() throws Exception {
+        Application app = mock(Application.class);
+        mWatchdog.start(app);
+        mWatchdog.stop();
+
+        verify(app).unregisterActivityLifecycleCallbacks(any(Application.ActivityLifecycleCallbacks.class));
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!mWatchdog.isIdle() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(mWatchdog.isIdle());
+    }
+
+    private static class LeakyComponent {
+        private final Object[] mModules;
+
+        LeakyComponent(ActivityModule module) {
+            mModules = new Object[]{module};
+        }
+    }
+
+    private static class ActivityModule {
+        private final Object mActivity;
+
+        ActivityModule(Object activity) {
+            mActivity = activity;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package knight704.ufinjector.releasers;
+
+import android.app.Activity;
+import android.support.v4.app.Fragment;
+import android.support.v4.app.FragmentManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import knight704.ufinjector.ReleaseReason;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FragmentComponentReleaserTest {
+    @Mock
+    protected FragmentManager mMockFragmentManager;
+
+    private Fragment mFragment;
+
+    @Before
+    public void setUp() throws Exception {
+        mFragment = new Fragment();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFragmentThatIsNotAddedShouldThrowException() throws Exception {
+        new FragmentComponentReleaser(mFragment);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRetainedFragmentShouldThrowException() throws Exception {
+        mFragment.setRetainInstance(true);
+        new FragmentComponentReleaser(mFragment, mMockFragmentManager, false);
+    }
+
+    @Test
+    public void testReleaseShouldReportReasonOfActivity() throws Exception {
+        Activity activity = mock(Activity.class);
+        ComponentReleaser.OnReleaseReasonListener stopped = mock(ComponentReleaser.OnReleaseReasonListener.class);
+        register(mFragment, false, stopped).dispatchRelease(activity, false);
+        ComponentReleaser.OnReleaseReasonListener removed = mock(ComponentReleaser.OnReleaseReasonListener.class);
+        register(mFragment, false, removed).dispatchRelease(activity, true);
+        when(activity.isChangingConfigurations()).thenReturn(true);
+        ComponentReleaser.OnReleaseReasonListener rotated = mock(ComponentReleaser.OnReleaseReasonListener.class);
+        register(mFragment, true, rotated).dispatchRelease(activity, false);
+        ComponentReleaser.OnReleaseListener canRetain = mock(ComponentReleaser.OnReleaseListener.class);
+        register(mFragment, false, canRetain).dispatchRelease(activity, false);
+
+        verify(stopped).onRelease(ReleaseReason.STOP);
+        verify(removed).onRelease(ReleaseReason.FINISH);
+        verify(rotated).onRelease(ReleaseReason.CONFIG_CHANGE);
+        verify(canRetain).onRelease(true);
+    }
+
+    @Test
+    public void testReleasersShouldShareSingleFragmentLifecycleCallbacks() throws Exception {
+        register(mFragment, false);
+        register(mFragment, true);
+        register(new Fragment(), false);
+
+        verify(mMockFragmentManager, times(1)).registerFragmentLifecycleCallbacks(any(FragmentManager.FragmentLifecycleCallbacks.class), eq(false));
+    }
+
+    @Test
+    public void testViewDestroyedShouldReleaseOnlyViewScopedComponents() throws Exception {
+        ComponentReleaser.OnReleaseListener fragmentListener = register(mFragment, false);
+        ComponentReleaser.OnReleaseListener viewListener = register(mFragment, true);
+        FragmentManager.FragmentLifecycleCallbacks callbacks = captureCallbacks();
+
+        callbacks.onFragmentViewDestroyed(mMockFragmentManager, mFragment);
+        verify(viewListener).onRelease(false);
+        verify(fragmentListener, times(0)).onRelease(anyBoolean());
+
+        callbacks.onFragmentDestroyed(mMockFragmentManager, mFragment);
+        verify(fragmentListener).onRelease(false);
+    }
+
+    @Test
+    public void testShouldFireOnReleaseOnlyForProvidedFragment() throws Exception {
+        ComponentReleaser.OnReleaseListener listener = register(mFragment, false);
+        captureCallbacks().onFragmentDestroyed(mMockFragmentManager, new Fragment());
+
+        verify(listener, times(0)).onRelease(anyBoolean());
+    }
+
+    private ComponentReleaser.OnReleaseListener register(Fragment fragment, boolean viewScoped) {
+        ComponentReleaser.OnReleaseListener listener = mock(ComponentReleaser.OnReleaseListener.class);
+        register(fragment, viewScoped, listener);
+        return listener;
+    }
+
+    private FragmentComponentReleaser register(Fragment fragment, boolean viewScoped, ComponentReleaser.OnReleaseListener listener) {
+        FragmentComponentReleaser releaser = new FragmentComponentReleaser(fragment, mMockFragmentManager, viewScoped);
+        releaser.onRegisterReleaser(listener);
+        return releaser;
+    }
+
+    private FragmentManager.FragmentLifecycleCallbacks captureCallbacks() {
+        ArgumentCaptor<FragmentManager.FragmentLifecycleCallbacks> captor = ArgumentCaptor.forClass(FragmentManager.FragmentLifecycleCallbacks.class);
+        verify(mMockFragmentManager).registerFragmentLifecycleCallbacks(captor.capture(), eq(false));
+        return captor.getValue();
+    }
+}
@@ -0,0 +1,48 @@
+package knight704.ufinjector.releasers;
+
+import android.app.Activity;
+import android.view.View;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import knight704.ufinjector.ReleaseReason;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ViewComponentReleaserTest {
+    @Test
+    public void testReleaserShouldListenToAttachStateOfViewUntilUnregistered() throws Exception {
+        View view = mock(View.class);
+        ViewComponentReleaser releaser = new ViewComponentReleaser(view, null);
+        releaser.onRegisterReleaser(mock(ComponentReleaser.OnReleaseListener.class));
+        verify(view).addOnAttachStateChangeListener(releaser);
+
+        releaser.onUnregisterReleaser();
+        verify(view).removeOnAttachStateChangeListener(releaser);
+    }
+
+    @Test
+    public void testDetachShouldReleaseWithReasonOfActivity() throws Exception {
+        View view = mock(View.class);
+        Activity activity = mock(Activity.class);
+        ComponentReleaser.OnReleaseReasonListener listener = mock(ComponentReleaser.OnReleaseReasonListener.class);
+        new ViewComponentReleaser(view, activity).onRegisterReleaser(listener);
+        ArgumentCaptor<View.OnAttachStateChangeListener> captor = ArgumentCaptor.forClass(View.OnAttachStateChangeListener.class);
+        verify(view).addOnAttachStateChangeListener(captor.capture());
+
+        captor.getValue().onViewDetachedFromWindow(view);
+        verify(listener).onRelease(ReleaseReason.STOP);
+
+        ComponentReleaser.OnReleaseReasonListener rotated = mock(ComponentReleaser.OnReleaseReasonListener.class);
+        new ViewComponentReleaser(view, activity).onRegisterReleaser(rotated);
+        when(activity.isChangingConfigurations()).thenReturn(true);
+        verify(view, times(2)).addOnAttachStateChangeListener(captor.capture());
+
+        captor.getValue().onViewDetachedFromWindow(view);
+        verify(rotated).onRelease(ReleaseReason.CONFIG_CHANGE);
+    }
+}
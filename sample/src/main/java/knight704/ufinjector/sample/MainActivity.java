@@ -11,8 +11,8 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import dagger.Component;
-import knight704.ufinjector.ComponentFactory;
 import knight704.ufinjector.Injector;
+import knight704.ufinjector.annotations.GenerateFactory;
 
 public class MainActivity extends AppCompatActivity implements MainPresenter.View {
     @Inject
@@ -33,12 +33,7 @@ public class MainActivity extends AppCompatActivity implements MainPresenter.Vie
         setContentView(mGreeting);
         Injector.with(this)
                 .retainOnConfigChange(true)
-                .build(MainComponent.class, new ComponentFactory<MainComponent>() {
-                    @Override
-                    public MainComponent create() {
-                        return DaggerMainActivity_MainComponent.create();
-                    }
-                })
+                .build(MainComponent.class, MainActivity_MainComponentFactory.INSTANCE)
                 .inject(this);
     }
 
@@ -60,6 +55,7 @@ public class MainActivity extends AppCompatActivity implements MainPresenter.Vie
     }
 
     @Singleton
+    @GenerateFactory
     @Component
     public interface MainComponent {
         void inject(MainActivity activity);